@@ -6,45 +6,118 @@
 //// 3) Completed: record completion and finalize metrics; history should log transitions.
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class AGScheduler implements Scheduler {
 
+    private final QuantumHistory.Mode historyMode;
+    private final int historyLimit;
+
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final ArrayList<Process> readyQueue = new ArrayList<>();
+    // Processes in arrival order (stable) and the next one to arrive
+    private final ArrayList<Process> byArrival = new ArrayList<>();
+    private int nextArrival;
+    private int completed;
+    private final Consumer<Process> enqueue = readyQueue::add;
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("AG");
+
     public AGScheduler() {
+        this(QuantumHistory.Mode.FULL, 0);
+    }
+
+    /**
+     * @param historyMode how much quantum history to report per process
+     * @param historyLimit number of values kept in LAST_N mode
+     */
+    public AGScheduler(QuantumHistory.Mode historyMode, int historyLimit) {
+        if (historyMode == QuantumHistory.Mode.LAST_N && historyLimit <= 0) {
+            throw new IllegalArgumentException("LAST_N history needs a positive limit");
+        }
+        this.historyMode = historyMode;
+        this.historyLimit = historyLimit;
     }
 
     @Override
     public ScheduleResult schedule(Process[] processes, int contextSwitch) {
-        ScheduleResult result = new ScheduleResult();
-        List<Process> processList = new ArrayList<>();
-        LinkedList<Process> readyQueue = new LinkedList<>();
-
-        // Create process copies
-        for(Process p : processes) {
-            processList.add(new Process(p.getProcessName(), p.getArrivalTime(),
-                    p.getBurstTime(), p.getPriority(), p.getQuantum()));
-        }
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        // AG's quantum rules assume free switches, so the fixed delay does not apply
+        return schedule(processes, ContextSwitchCost.fixed(0), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, long contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(0), result);
+    }
 
-        int currTime = 0;
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        readyQueue.clear();
+        devices.reset();
+
+        // Runtime state lives in pooled processes, never in the workload
+        List<Process> processList = pool.copyOf(processes);
+        Parallel.forRange(processList.size(), i -> {
+            Process p = processList.get(i);
+            QuantumHistory history = p.getQuantumHistoryBuffer();
+            // pooled copies keep a matching buffer, already re-seeded by resetFrom
+            if (historyMode == QuantumHistory.Mode.OFF) {
+                if (history != null) p.trackQuantumHistory(null);
+            } else if (history == null || !history.matches(historyMode, historyLimit)) {
+                p.trackQuantumHistory(QuantumHistory.of(historyMode, historyLimit));
+            }
+        });
+        // processes with nothing to run count as done from the start
+        completed = (int) Parallel.sum(processList.size(), i -> processList.get(i).isCompleted() ? 1 : 0);
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+
+        byArrival.clear();
+        byArrival.addAll(processList);
+        pool.sortByArrival(byArrival);
+        nextArrival = 0;
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        long currTime = 0;
         Process currProcess = null;
+        Process last = null; // last dispatched
 
-        while(!allCompleted(processList)) {
-            // Add arriving processes to ready queue
-            addArrivals(processList, readyQueue, currTime);
+        while (completed < processList.size()) {
+            // Add arriving processes to ready queue, then those finishing I/O
+            addArrivals(currTime);
+            devices.advance(currTime, enqueue);
 
-            // If no ready process and no current process, advance time
+            // If no ready process and no current process, jump to the next arrival or I/O completion
             if(readyQueue.isEmpty() && currProcess == null) {
-                currTime++;
+                recorder.record(currTime, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                currTime = nextEvent();
                 continue;
             }
 
             // Select new process if none is currently running
             if (currProcess == null) {
-                if(readyQueue.isEmpty()) {
-                    currTime++;
-                    continue;
-                }
-                currProcess = readyQueue.removeFirst(); // FCFS - take from front
+                currProcess = readyQueue.remove(0); // FCFS - take from front
                 result.executionOrder.add(currProcess.getProcessName());
+                recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.DISPATCH,
+                        readyQueue.size(), FlightRecorder.Cause.FIFO);
+                currTime = switchContext(switchCost, last, currProcess, currTime, result);
+                last = currProcess;
             }
 
             int Q = currProcess.getQuantum();
@@ -53,14 +126,10 @@ public class AGScheduler implements Scheduler {
             int sjfTime = Q - fcfsTime - priorityTime;
 
             // =================== FCFS Phase (25%) ===================
-            for (int i = 0; i < fcfsTime && currProcess.getRemainingTime() > 0; i++) {
-                currProcess.consumeCpu(1);
-                currTime++;
-                addArrivals(processList, readyQueue, currTime);
-            }
+            currTime = runPhase(currProcess, fcfsTime, currTime);
 
             if (currProcess.getRemainingTime() == 0) {
-                finishProcess(currProcess, currTime);
+                endCpuBurst(currProcess, currTime, devices);
                 currProcess = null;
                 continue;
             }
@@ -75,22 +144,24 @@ public class AGScheduler implements Scheduler {
                 int remainingQuantum = Q - usedTime;
                 int quantumIncrease = (int) Math.ceil(remainingQuantum / 2.0);
                 currProcess.setQuantum(Q + quantumIncrease);
-                readyQueue.addLast(currProcess);
+                readyQueue.add(currProcess);
+                recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.PREEMPT,
+                        readyQueue.size(), FlightRecorder.Cause.HIGHER_PRIORITY);
 
                 currProcess = readyQueue.remove(higherPriorityIdx);
                 result.executionOrder.add(currProcess.getProcessName());
+                recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.DISPATCH,
+                        readyQueue.size(), FlightRecorder.Cause.HIGHEST_PRIORITY);
+                currTime = switchContext(switchCost, last, currProcess, currTime, result);
+                last = currProcess;
                 continue;
             }
 
             // Execute priority phase fully
-            for (int i = 0; i < priorityTime && currProcess.getRemainingTime() > 0; i++) {
-                currProcess.consumeCpu(1);
-                currTime++;
-                addArrivals(processList, readyQueue, currTime);
-            }
+            currTime = runPhase(currProcess, priorityTime, currTime);
 
             if (currProcess.getRemainingTime() == 0) {
-                finishProcess(currProcess, currTime);
+                endCpuBurst(currProcess, currTime, devices);
                 currProcess = null;
                 continue;
             }
@@ -103,22 +174,24 @@ public class AGScheduler implements Scheduler {
                 // Preempted by shorter job before SJF phase starts
                 int remainingSJF = sjfTime;
                 currProcess.setQuantum(Q + remainingSJF);
-                readyQueue.addLast(currProcess);
+                readyQueue.add(currProcess);
+                recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.PREEMPT,
+                        readyQueue.size(), FlightRecorder.Cause.SHORTER_JOB);
 
                 currProcess = readyQueue.remove(shorterJobIdx);
                 result.executionOrder.add(currProcess.getProcessName());
+                recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.DISPATCH,
+                        readyQueue.size(), FlightRecorder.Cause.SHORTEST_REMAINING);
+                currTime = switchContext(switchCost, last, currProcess, currTime, result);
+                last = currProcess;
                 continue;
             }
 
             // Execute SJF phase fully
-            for (int i = 0; i < sjfTime && currProcess.getRemainingTime() > 0; i++) {
-                currProcess.consumeCpu(1);
-                currTime++;
-                addArrivals(processList, readyQueue, currTime);
-            }
+            currTime = runPhase(currProcess, sjfTime, currTime);
 
             if (currProcess.getRemainingTime() == 0) {
-                finishProcess(currProcess, currTime);
+                endCpuBurst(currProcess, currTime, devices);
                 currProcess = null;
                 continue;
             }
@@ -126,52 +199,93 @@ public class AGScheduler implements Scheduler {
             // =================== Quantum Exhausted ===================
             // Process used all quantum without completing
             currProcess.setQuantum(Q + 2);
-            readyQueue.addLast(currProcess);
+            readyQueue.add(currProcess);
+            recorder.record(currTime, currProcess.getProcessName(), FlightRecorder.Event.PREEMPT,
+                    readyQueue.size(), FlightRecorder.Cause.QUANTUM_EXPIRED);
             currProcess = null;
         }
 
-        // Calculate final statistics
-        double totalWait = 0, totalTurnaround = 0;
-        for (Process p : processList) {
-            int turnaround = p.getCompletionTime() - p.getArrivalTime();
-            int waiting = turnaround - p.getBurstTime();
-
-            result.waitingTimes.put(p.getProcessName(), waiting);
-            result.turnaroundTimes.put(p.getProcessName(), turnaround);
-            result.quantumHistory.put(p.getProcessName(), p.getQuantumHistory());
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
 
-            totalWait += waiting;
-            totalTurnaround += turnaround;
+        // Calculate final statistics; the per-name maps fill in order, the totals are reduced in parallel
+        for (int i = 0; i < processList.size(); i++) {
+            Process p = processList.get(i);
+            long turnaround = p.getCompletionTime() - p.getArrivalTime();
+            result.waitingTimes.putLong(p.getProcessName(), turnaround - p.getBurstTime() - p.getBlockedTime());
+            result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+            if (historyMode != QuantumHistory.Mode.OFF) {
+                result.quantumHistory.put(p.getProcessName(), p.getQuantumHistoryBuffer().snapshot());
+            }
         }
-
-        result.averageWaiting = totalWait / processList.size();
-        result.averageTurnaround = totalTurnaround / processList.size();
+        long totalTurnaround = Parallel.sum(processList.size(), i -> {
+            Process p = processList.get(i);
+            return p.getCompletionTime() - p.getArrivalTime();
+        });
+        long totalWait = totalTurnaround - Parallel.sum(processList.size(), i -> {
+            Process p = processList.get(i);
+            return p.getBurstTime() + p.getBlockedTime();
+        });
+
+        result.averageWaiting = (double) totalWait / processList.size();
+        result.averageTurnaround = (double) totalTurnaround / processList.size();
+        devices.report(result, currTime);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
 
         return result;
     }
 
-    private boolean allCompleted(List<Process> processes) {
-        for (Process p : processes) {
-            if (!p.isCompleted()) {
-                return false;
-            }
+    /**
+     * Run {@code p} for up to {@code ticks} or until its burst ends, admitting
+     * arrivals and I/O returns as they happen; returns the new time. Runs from
+     * event to event, so the cost does not depend on the length of the phase.
+     */
+    private long runPhase(Process p, long ticks, long time) {
+        long end = time + ticks;
+        while (time < end && p.getRemainingTime() > 0) {
+            long run = Math.min(end - time, p.getRemainingTime());
+            run = Math.max(1, Math.min(run, nextEvent() - time));
+            p.consumeCpu(run);
+            devices.cpuBusy(time, time + run);
+            time += run;
+            addArrivals(time);
+            devices.advance(time, enqueue);
         }
-        return true;
+        return time;
     }
 
-    private void addArrivals(List<Process> all, LinkedList<Process> ready, int time) {
-        for (Process p : all) {
-            if (p.getArrivalTime() == time && !p.isCompleted()) {
-                // Only add if not already in ready queue and not currently running
-                if (!ready.contains(p) && p.getArriveState() == false) {
-                    ready.addLast(p);
-                    p.setArriveState(true);
-                }
+    // Charge the switch from 'from' to 'to' (none for the first dispatch or the same process),
+    // admitting arrivals and I/O returns as they happen; returns the new time
+    private long switchContext(ContextSwitchCost.Run switchCost, Process from, Process to, long time,
+                               ScheduleResult result) {
+        if (from == null || from == to) return time;
+        long cost = switchCost.cost(from.getPosition(), to.getPosition(), time);
+        result.switchOverhead += cost;
+        long end = time + cost;
+        while (time < end) {
+            time = Math.min(end, nextEvent());
+            addArrivals(time);
+            devices.advance(time, enqueue);
+        }
+        return time;
+    }
+
+    private void addArrivals(long time) {
+        while (nextArrival < byArrival.size() && byArrival.get(nextArrival).getArrivalTime() <= time) {
+            Process p = byArrival.get(nextArrival++);
+            if (!p.isCompleted()) {
+                readyQueue.add(p);
+                p.setArriveState(true);
             }
         }
     }
 
-    private int getHighestPriority(Process current, LinkedList<Process> ready) {
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent() {
+        long arrival = nextArrival < byArrival.size() ? byArrival.get(nextArrival).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    private int getHighestPriority(Process current, List<Process> ready) {
         int minPriority = current.getPriority();
         int minIdx = -1;
 
@@ -186,8 +300,8 @@ public class AGScheduler implements Scheduler {
         return minIdx;
     }
 
-    private int getShortestJob(Process current, LinkedList<Process> ready) {
-        int minRemaining = current.getRemainingTime();
+    private int getShortestJob(Process current, List<Process> ready) {
+        long minRemaining = current.getRemainingTime();
         int minIdx = -1;
 
         // Find process with shortest remaining time
@@ -201,8 +315,36 @@ public class AGScheduler implements Scheduler {
         return minIdx;
     }
 
-    private void finishProcess(Process p, int time) {
+    // A CPU burst followed by I/O blocks on the device and keeps its quantum;
+    // the last burst completes the process.
+    private void endCpuBurst(Process p, long time, IODevices devices) {
+        if (p.hasPendingIo()) {
+            devices.submit(p, time);
+            recorder.record(time, p.getProcessName(), FlightRecorder.Event.BLOCK, readyQueue.size(),
+                    FlightRecorder.Cause.IO);
+        } else {
+            finishProcess(p, time);
+            recorder.complete(time, p.getProcessName(), readyQueue.size(),
+                    time - p.getArrivalTime() - p.getBurstTime() - p.getBlockedTime(), time - p.getArrivalTime());
+        }
+    }
+
+    private void finishProcess(Process p, long time) {
         p.setCompletionTime(time);
         p.setQuantum(0);
+        completed++;
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        readyQueue.clear();
+        byArrival.clear();
+        byArrival.trimToSize();
     }
-}
\ No newline at end of file
+}
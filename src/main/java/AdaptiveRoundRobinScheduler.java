@@ -0,0 +1,247 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Round robin whose quantum is recomputed every round from the ready set.
+ *
+ * A round is one pass over the processes ready when it starts. At that point
+ * the quantum becomes the given percentile (0.5 = median) of their remaining
+ * CPU bursts, clamped to [minQuantum, maxQuantum], so a mix of short and long
+ * bursts lets the short ones finish in one slice without slicing the long
+ * ones finely. The switch cost cap raises the quantum until the mean switch
+ * cost seen so far is at most {@code maxSwitchShare} of a switch plus its
+ * slice; maxQuantum still wins when the two conflict. Picking the percentile
+ * is linear in the ready set and happens once per round, which has one
+ * dispatch per ready process, so the cost per dispatch stays constant and
+ * nothing is done per tick. Dispatch, switching and I/O otherwise behave as in
+ * {@link RoundRobinScheduler}, so with minQuantum == maxQuantum both give the
+ * same results, zero-length I/O bursts included. Every change of quantum is
+ * reported in {@link ScheduleResult#quantumTrajectory}.
+ */
+public class AdaptiveRoundRobinScheduler implements Scheduler {
+    private final double percentile;
+    private final long minQuantum;
+    private final long maxQuantum;
+    private final double maxSwitchShare;
+
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final ArrayDeque<Process> readyQueue = new ArrayDeque<>();
+    private final Consumer<Process> enqueue = readyQueue::add;
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("AdaptiveRoundRobin");
+    private long[] scratch = new long[0]; // remaining bursts of the ready set, for the percentile
+
+    /**
+     * @param percentile     fraction in (0, 1] of remaining bursts a quantum should cover, 0.5 = median
+     * @param minQuantum     smallest quantum
+     * @param maxQuantum     largest quantum
+     * @param maxSwitchShare largest share of CPU time a switch may take next to its slice, 1 = no cap
+     */
+    public AdaptiveRoundRobinScheduler(double percentile, long minQuantum, long maxQuantum, double maxSwitchShare) {
+        if (!(percentile > 0 && percentile <= 1)) throw new IllegalArgumentException("Quantum percentile must be in (0, 1]");
+        if (minQuantum <= 0) throw new IllegalArgumentException("Time quantum must be positive");
+        if (maxQuantum < minQuantum) throw new IllegalArgumentException("Largest quantum is below the smallest");
+        if (!(maxSwitchShare > 0 && maxSwitchShare <= 1)) throw new IllegalArgumentException("Switch share cap must be in (0, 1]");
+        this.percentile = percentile;
+        this.minQuantum = minQuantum;
+        this.maxQuantum = maxQuantum;
+        this.maxSwitchShare = maxSwitchShare;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] input, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        List<Process> processes = pool.copyOf(input);
+        int n = processes.size();
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        pool.sortByArrival(processes);
+        result.endPhase(ScheduleResult.Phase.SORT);
+        readyQueue.clear();
+        devices.reset();
+
+        long time = 0;
+        int idx = 0;
+        Process current = null;
+        long sliceRemaining = 0;
+        Process last = null; // last dispatched; a context switch precedes every dispatch but the first
+        long switches = 0;
+        long quantum = 0;
+        int roundLeft = 0; // dispatches left in the current round
+        double totalWait = 0, totalTurn = 0;
+        int completed = 0;
+
+        while (completed < n) {
+            idx = admit(processes, idx, time);
+            devices.advance(time, enqueue);
+
+            if (current == null || sliceRemaining == 0) {
+                if (current != null) {
+                    readyQueue.add(current);
+                    recorder.record(time, current.getProcessName(), FlightRecorder.Event.PREEMPT, readyQueue.size(),
+                            FlightRecorder.Cause.QUANTUM_EXPIRED);
+                    current = null;
+                }
+                Process next = readyQueue.peek();
+                if (next == null) {
+                    recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                    time = nextEvent(processes, idx);
+                    continue;
+                }
+                if (roundLeft == 0) {
+                    // New round over everything ready now
+                    roundLeft = readyQueue.size();
+                    long q = nextQuantum(switches == 0 ? 0 : (double) result.switchOverhead / switches);
+                    if (q != quantum) {
+                        quantum = q;
+                        result.quantumTrajectory.add(new ScheduleResult.QuantumChange(time, quantum));
+                    }
+                }
+                if (last != null) {
+                    // switch from event to event, admitting arrivals and I/O returns as they happen
+                    long cost = switchCost.cost(last.getPosition(), next.getPosition(), time);
+                    result.switchOverhead += cost;
+                    switches++;
+                    long switchEnd = time + cost;
+                    while (time < switchEnd) {
+                        time = Math.min(switchEnd, nextEvent(processes, idx));
+                        idx = admit(processes, idx, time);
+                        devices.advance(time, enqueue);
+                    }
+                }
+                current = readyQueue.poll();
+                roundLeft--;
+                sliceRemaining = quantum;
+                last = current;
+                if (current.getStartTime() == -1) current.setStartTime(time);
+                result.executionOrder.add(current.getProcessName());
+                recorder.record(time, current.getProcessName(), FlightRecorder.Event.DISPATCH, readyQueue.size(),
+                        FlightRecorder.Cause.FIFO);
+            }
+
+            // Run until the slice or burst ends, or the next arrival or I/O completion
+            long run = Math.min(sliceRemaining, current.getRemainingTime());
+            run = Math.max(1, Math.min(run, nextEvent(processes, idx) - time));
+            current.consumeCpu(run);
+            sliceRemaining -= run;
+            devices.cpuBusy(time, time + run);
+            time += run;
+
+            if (current.hasPendingIo()) {
+                // arrivals and I/O returns at this time queue ahead of nothing: the CPU is free
+                idx = admit(processes, idx, time);
+                devices.advance(time, enqueue);
+                devices.submit(current, time);
+                recorder.record(time, current.getProcessName(), FlightRecorder.Event.BLOCK, readyQueue.size(),
+                        FlightRecorder.Cause.IO);
+                current = null;
+                sliceRemaining = 0;
+            } else if (current.isCompleted()) {
+                current.setCompletionTime(time);
+                long turnaround = time - current.getArrivalTime();
+                long waiting = turnaround - current.getBurstTime() - current.getBlockedTime();
+                result.waitingTimes.putLong(current.getProcessName(), waiting);
+                result.turnaroundTimes.putLong(current.getProcessName(), turnaround);
+                totalWait += waiting;
+                totalTurn += turnaround;
+                recorder.complete(time, current.getProcessName(), readyQueue.size(), waiting, turnaround);
+                completed++;
+                current = null;
+                sliceRemaining = 0;
+            }
+        }
+
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        devices.report(result, time);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+        return result;
+    }
+
+    // Quantum for a round over the ready queue, given the mean switch cost so far
+    private long nextQuantum(double switchCost) {
+        int k = readyQueue.size();
+        if (scratch.length < k) scratch = new long[Math.max(k, 2 * scratch.length)];
+        int i = 0;
+        for (Process p : readyQueue) scratch[i++] = p.getRemainingTime();
+        // nearest rank, as in PolicyComparison
+        int rank = Math.max(0, (int) Math.ceil(percentile * k) - 1);
+        long q = Math.max(minQuantum, Math.min(maxQuantum, select(scratch, k, rank)));
+        if (maxSwitchShare < 1 && switchCost > 0) {
+            // cost / (cost + q) <= share  <=>  q >= cost * (1 - share) / share
+            long floor = (long) Math.ceil(switchCost * (1 - maxSwitchShare) / maxSwitchShare);
+            q = Math.min(maxQuantum, Math.max(q, floor));
+        }
+        return q;
+    }
+
+    // k-th smallest of a[0..n), reordering a; expected linear time
+    private static long select(long[] a, int n, int k) {
+        int lo = 0, hi = n - 1;
+        while (lo < hi) {
+            long pivot = a[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    long t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return a[k];
+        }
+        return a[k];
+    }
+
+    // Queue every process arriving by time; returns the new arrival index
+    private int admit(List<Process> processes, int next, long time) {
+        while (next < processes.size() && processes.get(next).getArrivalTime() <= time) {
+            readyQueue.add(processes.get(next++));
+        }
+        return next;
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processes, int next) {
+        long arrival = next < processes.size() ? processes.get(next).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        readyQueue.clear();
+        scratch = new long[0];
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * Price, in ticks, of handing the CPU from one process to another.
+ *
+ * Schedulers ask for a price at every context switch (never for the first
+ * dispatch of a run), advance simulated time by it and add it to
+ * {@link ScheduleResult#switchOverhead}. The classic fixed delay is
+ * {@link #fixed}; {@link #warmth} and {@link #workingSet} make switching back
+ * to a process that left the CPU recently cheaper than switching to a cold
+ * one, since part of its cache state is still resident.
+ *
+ * A model is immutable and can be shared by concurrent runs; each run gets
+ * its own {@link Run} from {@link #start}, which holds that run's cache state.
+ */
+public interface ContextSwitchCost {
+    /** Fresh switch state for one run over {@code workload}. */
+    Run start(ProcessSpec[] workload);
+
+    /** One run's switches, in time order. Not thread-safe. */
+    interface Run {
+        /**
+         * Ticks to switch at {@code time} from {@code from} to {@code to}, both
+         * positions in the workload. They are equal when a policy charges for
+         * re-dispatching the process that just ran (round robin does).
+         */
+        long cost(int from, int to, long time);
+
+        /**
+         * Most a switch to {@code to} can cost, without recording a switch;
+         * for planning ahead, as EDF admission does. Models that cannot bound
+         * it report 0, i.e. free switches.
+         */
+        default long maxCost(int to) {
+            return 0;
+        }
+    }
+
+    /** The same delay for every switch. */
+    static ContextSwitchCost fixed(long ticks) {
+        if (ticks < 0) throw new IllegalArgumentException("Context switch cost must not be negative");
+        Run run = new Run() {
+            @Override
+            public long cost(int from, int to, long time) {
+                return ticks;
+            }
+
+            @Override
+            public long maxCost(int to) {
+                return ticks;
+            }
+        };
+        return workload -> run;
+    }
+
+    /**
+     * {@code warm} ticks plus a refill of up to {@code cold - warm} more: the
+     * full refill for a process that has not run yet, and for one that left
+     * the CPU {@code t} ticks ago the fraction {@code 1 - 2^(-t / halfLife)}.
+     */
+    static ContextSwitchCost warmth(long warm, long cold, long halfLife) {
+        if (cold < warm) throw new IllegalArgumentException("Cold switch must cost at least a warm one");
+        return workingSet(warm, halfLife, p -> cold - warm);
+    }
+
+    /**
+     * Like {@link #warmth}, with each process's own full refill cost, for
+     * example proportional to its working set.
+     */
+    static ContextSwitchCost workingSet(long base, long halfLife, ToLongFunction<ProcessSpec> refill) {
+        return new CacheWarmthCost(base, halfLife, refill);
+    }
+
+    /**
+     * Parse {@code "fixed:T"} (or just {@code "T"}) or {@code "warmth:warm,cold,halfLife"},
+     * the forms accepted by a test case's "switchCost" input.
+     */
+    static ContextSwitchCost parse(String spec) {
+        String s = spec.trim();
+        int colon = s.indexOf(':');
+        String kind = colon < 0 ? "fixed" : s.substring(0, colon).trim();
+        String[] args = (colon < 0 ? s : s.substring(colon + 1)).split(",");
+        try {
+            if (kind.equalsIgnoreCase("fixed") && args.length == 1) {
+                return fixed(Long.parseLong(args[0].trim()));
+            }
+            if (kind.equalsIgnoreCase("warmth") && args.length == 3) {
+                return warmth(Long.parseLong(args[0].trim()), Long.parseLong(args[1].trim()),
+                        Long.parseLong(args[2].trim()));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad switch cost '" + spec + "': " + e.getMessage());
+        }
+        throw new IllegalArgumentException("Bad switch cost '" + spec + "': expected fixed:T or warmth:warm,cold,halfLife");
+    }
+}
+
+/** Refill cost decaying with the time since the incoming process last left the CPU. */
+final class CacheWarmthCost implements ContextSwitchCost {
+    private final long base;
+    private final long halfLife;
+    private final ToLongFunction<ProcessSpec> refill;
+
+    CacheWarmthCost(long base, long halfLife, ToLongFunction<ProcessSpec> refill) {
+        if (base < 0) throw new IllegalArgumentException("Context switch cost must not be negative");
+        if (halfLife <= 0) throw new IllegalArgumentException("Warmth half-life must be positive");
+        this.base = base;
+        this.halfLife = halfLife;
+        this.refill = refill;
+    }
+
+    @Override
+    public Run start(ProcessSpec[] workload) {
+        long[] full = new long[workload.length];
+        for (int i = 0; i < full.length; i++) {
+            full[i] = refill.applyAsLong(workload[i]);
+            if (full[i] < 0) throw new IllegalArgumentException("Refill cost of " + workload[i].getProcessName() + " is negative");
+        }
+        long[] leftAt = new long[workload.length]; // when each process last left the CPU, -1 = never ran
+        Arrays.fill(leftAt, -1);
+        return new Run() {
+            @Override
+            public long cost(int from, int to, long time) {
+                leftAt[from] = time;
+                long since = leftAt[to];
+                double cold = since < 0 ? 1 : 1 - Math.pow(0.5, (double) (time - since) / halfLife);
+                return base + Math.round(full[to] * cold);
+            }
+
+            @Override
+            public long maxCost(int to) {
+                // a cold refill is the most a switch can cost
+                return base + full[to];
+            }
+        };
+    }
+}
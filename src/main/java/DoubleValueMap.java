@@ -0,0 +1,148 @@
+import java.util.*;
+
+/**
+ * Map from process name to a double metric (a CPU share), the fractional
+ * counterpart of {@link LongValueMap} used for the share maps in
+ * {@link ScheduleResult}.
+ *
+ * Values are stored unboxed in insertion order behind an open-addressing
+ * index, and {@link #clear()} keeps the arrays, so a result that is reset and
+ * refilled by a reused scheduler does not allocate. Schedulers write through
+ * {@link #putDouble}; readers can use it as an ordinary {@code Map}.
+ */
+final class DoubleValueMap extends AbstractMap<String, Double> {
+    private String[] keys = new String[8];
+    private double[] values = new double[8];
+    private int[] index = new int[16]; // slot -> position + 1, 0 = empty
+    private int size;
+
+    public void putDouble(String key, double value) {
+        int pos = find(key);
+        if (pos >= 0) {
+            values[pos] = value;
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        if (size * 2 > index.length) {
+            rehash(index.length * 2);
+        } else {
+            insertIndex(size - 1);
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        int pos = find(key);
+        return pos >= 0 ? values[pos] : defaultValue;
+    }
+
+    /** Key at insertion position {@code i}, for unboxed iteration with {@link #valueAt}. */
+    String keyAt(int i) {
+        return keys[i];
+    }
+
+    double valueAt(int i) {
+        return values[i];
+    }
+
+    /** Insertion position of {@code key}, or -1. */
+    int indexOf(String key) {
+        return find(key);
+    }
+
+    /** Approximate bytes held by the arrays (keys are shared, not counted); racy reads are fine. */
+    long footprint() {
+        return 48 + keys.length * 4L + values.length * 8L + index.length * 4L;
+    }
+
+    private int find(Object key) {
+        if (key == null) return -1;
+        int mask = index.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int pos = index[slot] - 1;
+            if (keys[pos].equals(key)) return pos;
+        }
+        return -1;
+    }
+
+    private void insertIndex(int pos) {
+        int mask = index.length - 1;
+        int slot = spread(keys[pos].hashCode()) & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+        index[slot] = pos + 1;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) insertIndex(i);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public Double put(String key, Double value) {
+        int pos = find(key);
+        Double previous = pos >= 0 ? values[pos] : null;
+        putDouble(key, value);
+        return previous;
+    }
+
+    @Override
+    public Double get(Object key) {
+        int pos = find(key);
+        return pos >= 0 ? values[pos] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(index, 0);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Double>> entrySet() {
+        return new AbstractSet<Entry<String, Double>>() {
+            @Override
+            public Iterator<Entry<String, Double>> iterator() {
+                return new Iterator<Entry<String, Double>>() {
+                    private int pos;
+
+                    @Override
+                    public boolean hasNext() {
+                        return pos < size;
+                    }
+
+                    @Override
+                    public Entry<String, Double> next() {
+                        if (pos >= size) throw new NoSuchElementException();
+                        int i = pos++;
+                        return new SimpleImmutableEntry<>(keys[i], values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,311 @@
+import java.util.*;
+
+/**
+ * Preemptive earliest-deadline-first scheduler.
+ *
+ * Ready jobs sit in a heap keyed by absolute deadline (arrival + relative
+ * deadline); processes without a deadline run only when no deadline job is
+ * ready. Periodic processes (period > 0) release a new job every period until
+ * the horizon; such jobs are reported as {@code name#k}.
+ *
+ * With admission control on, an arriving job is rejected when accepting it
+ * would make a job that is currently able to meet its deadline miss it
+ * (EDF demand check over the pending jobs, O(n log n) per arrival). Each
+ * pending job is charged the most a switch into it can cost
+ * ({@link ContextSwitchCost.Run#maxCost}), so with a non-zero switch cost the
+ * check is conservative rather than exact. Rejected jobs are listed in the
+ * result and excluded from the averages.
+ */
+public class EDFScheduler implements Scheduler {
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final boolean admissionControl;
+    private final long horizon;
+
+    // Working state retained between runs, grown to the largest job count (see Scheduler.reset)
+    private final ArrayList<String> names = new ArrayList<>();
+    private long[] release = new long[0];
+    private long[] burst = new long[0];
+    private long[] remaining = new long[0];
+    private long[] absDeadline = new long[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private int[] pending = new int[0];
+    private int[] owner = new int[0]; // workload position of each job's process
+    // Earliest absolute deadline first, then earliest release
+    private final IntHeap.IntComparator byDeadline = (a, b) -> {
+        int c = Long.compare(absDeadline[a], absDeadline[b]);
+        if (c != 0) return c;
+        c = Long.compare(release[a], release[b]);
+        return c != 0 ? c : Integer.compare(a, b);
+    };
+    private final IntHeap ready = new IntHeap(byDeadline);
+    private final FlightRecorder recorder = new FlightRecorder("EDF");
+    // Totals of the current run, kept by complete()
+    private int admitted;
+    private int misses;
+    private long maxLateness;
+    private double totalWait, totalTurn;
+
+    public EDFScheduler() {
+        this(false, 0);
+    }
+
+    /**
+     * @param admissionControl reject jobs that would make the pending set unschedulable
+     * @param horizon release periodic jobs before this time (0 = only the first job)
+     */
+    public EDFScheduler(boolean admissionControl, long horizon) {
+        this.admissionControl = admissionControl;
+        this.horizon = horizon;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+
+        // Count jobs so the buffers can be sized before expanding periodic processes
+        int n = 0;
+        for (ProcessSpec p : processes) {
+            try {
+                n = Math.addExact(n, jobCount(p));
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Workload releases more than " + Integer.MAX_VALUE
+                        + " jobs before horizon " + horizon);
+            }
+        }
+        recorder.expect(n);
+        if (release.length < n) {
+            release = new long[n];
+            burst = new long[n];
+            remaining = new long[n];
+            absDeadline = new long[n];
+            order = new int[n];
+            scratch = new int[n];
+            pending = new int[n];
+            owner = new int[n];
+        }
+        long[] release = this.release;
+        long[] burst = this.burst;
+        long[] remaining = this.remaining;
+        long[] absDeadline = this.absDeadline;
+        int[] order = this.order;
+        int[] owner = this.owner;
+        names.clear();
+        ready.clear();
+
+        // Expand periodic processes into jobs
+        int j = 0;
+        for (int i = 0; i < processes.length; i++) {
+            ProcessSpec p = processes[i];
+            int jobs = jobCount(p);
+            for (int k = 0; k < jobs; k++, j++) {
+                names.add(p.getPeriod() > 0 && horizon > 0 ? p.getProcessName() + "#" + k : p.getProcessName());
+                owner[j] = i;
+                release[j] = p.getArrivalTime() + k * p.getPeriod();
+                burst[j] = p.getBurstTime();
+                remaining[j] = p.getBurstTime();
+                absDeadline[j] = p.getDeadline() > 0 ? release[j] + p.getDeadline() : NO_DEADLINE;
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        IndexSort.sortByKey(order, n, release, scratch);
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        long time = 0;
+        int idx = 0;
+        int finished = 0; // completed or rejected
+        int current = -1;
+        int last = -1;
+        admitted = 0;
+        misses = 0;
+        maxLateness = Long.MIN_VALUE;
+        totalWait = 0;
+        totalTurn = 0;
+
+        while (finished < n) {
+            while (idx < n && release[order[idx]] <= time) {
+                int job = order[idx++];
+                if (remaining[job] <= 0) {
+                    // nothing to run: complete on release rather than dispatching it
+                    complete(job, time, result);
+                    finished++;
+                } else if (admissionControl && !admissible(job, current, time, switchCost)) {
+                    result.rejected.add(names.get(job));
+                    recorder.record(time, names.get(job), FlightRecorder.Event.REJECT, ready.size(),
+                            FlightRecorder.Cause.ADMISSION);
+                    finished++;
+                } else {
+                    ready.add(job);
+                }
+            }
+
+            // Preempt when a job with an earlier deadline is ready
+            if (current != -1 && !ready.isEmpty() && byDeadline.compare(ready.peek(), current) < 0) {
+                ready.add(current);
+                recorder.record(time, names.get(current), FlightRecorder.Event.PREEMPT, ready.size(),
+                        FlightRecorder.Cause.EARLIER_DEADLINE);
+                current = -1;
+            }
+
+            if (current == -1) {
+                if (ready.isEmpty()) {
+                    recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                    if (idx < n) time = Math.max(time, release[order[idx]]);
+                    continue;
+                }
+                int job = ready.poll();
+                if (last != job) {
+                    if (last != -1) {
+                        // arrivals during the switch are admitted next iteration and may preempt
+                        long cost = switchCost.cost(owner[last], owner[job], time);
+                        result.switchOverhead += cost;
+                        time += cost;
+                    }
+                    result.executionOrder.add(names.get(job));
+                    recorder.record(time, names.get(job), FlightRecorder.Event.DISPATCH, ready.size(),
+                            FlightRecorder.Cause.EARLIEST_DEADLINE);
+                }
+                last = job;
+                current = job;
+                if (idx < n && release[order[idx]] <= time) {
+                    continue;
+                }
+            }
+
+            // Run until completion or the next release
+            long run = remaining[current];
+            if (idx < n) run = Math.min(run, release[order[idx]] - time);
+            run = Math.max(run, 1);
+            time += run;
+            remaining[current] -= run;
+
+            if (remaining[current] == 0) {
+                complete(current, time, result);
+                finished++;
+                current = -1;
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = admitted == 0 ? 0 : totalWait / admitted;
+        result.averageTurnaround = admitted == 0 ? 0 : totalTurn / admitted;
+        result.deadlineMisses = misses;
+        result.maxLateness = maxLateness == Long.MIN_VALUE ? 0 : maxLateness;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    // Number of jobs a process releases: one, or one per period before the horizon
+    private int jobCount(ProcessSpec p) {
+        if (p.getPeriod() <= 0 || horizon <= 0) return 1;
+        long span = horizon - p.getArrivalTime();
+        long jobs = span <= 0 ? 1 : (span - 1) / p.getPeriod() + 1;
+        try {
+            return Math.toIntExact(jobs);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(p.getProcessName() + " releases " + jobs + " jobs (period "
+                    + p.getPeriod() + ") before horizon " + horizon + "; at most " + Integer.MAX_VALUE + " are supported");
+        }
+    }
+
+    // Record the completion of a job at time into the result and the run's totals
+    private void complete(int job, long time, ScheduleResult result) {
+        long turnaround = time - release[job];
+        long waiting = turnaround - burst[job];
+        result.waitingTimes.putLong(names.get(job), waiting);
+        result.turnaroundTimes.putLong(names.get(job), turnaround);
+        totalWait += waiting;
+        totalTurn += turnaround;
+        if (absDeadline[job] != NO_DEADLINE) {
+            long lateness = time - absDeadline[job];
+            result.lateness.putLong(names.get(job), lateness);
+            maxLateness = Math.max(maxLateness, lateness);
+            if (lateness > 0) misses++;
+        }
+        recorder.complete(time, names.get(job), ready.size(), waiting, turnaround,
+                absDeadline[job] < time ? FlightRecorder.Cause.DEADLINE_MISSED : FlightRecorder.Cause.NONE);
+        admitted++;
+    }
+
+    /**
+     * EDF feasibility check: run the pending work back to back in deadline
+     * order, each job after the most its switch can cost, and count misses
+     * with and without the candidate job. The running job pays no switch while
+     * it stays first.
+     */
+    private boolean admissible(int candidate, int current, long time, ContextSwitchCost.Run switchCost) {
+        int[] owner = this.owner;
+        long[] absDeadline = this.absDeadline;
+        long[] remaining = this.remaining;
+        if (absDeadline[candidate] == NO_DEADLINE) return true;
+        // the candidate is in neither the ready queue nor current, so pending has room for both
+        int[] pending = this.pending;
+        int count = ready.copyTo(pending);
+        if (current != -1) pending[count++] = current;
+        IndexSort.sortEntries(pending, count, absDeadline, scratch);
+
+        int missesWithout = 0, missesWith = 0;
+        long finishWithout = time, finishWith = time;
+        boolean placed = false;
+        for (int i = 0; i < count; i++) {
+            int j = pending[i];
+            if (!placed && absDeadline[candidate] < absDeadline[j]) {
+                finishWith += switchCost.maxCost(owner[candidate]) + remaining[candidate];
+                if (finishWith > absDeadline[candidate]) return false;
+                placed = true;
+            }
+            long switchIn = j == current && i == 0 ? 0 : switchCost.maxCost(owner[j]);
+            finishWithout += switchIn + remaining[j];
+            finishWith += (placed ? switchCost.maxCost(owner[j]) : switchIn) + remaining[j];
+            if (finishWithout > absDeadline[j]) missesWithout++;
+            if (finishWith > absDeadline[j]) missesWith++;
+        }
+        if (!placed) {
+            finishWith += switchCost.maxCost(owner[candidate]) + remaining[candidate];
+            if (finishWith > absDeadline[candidate]) return false;
+        }
+        return missesWith == missesWithout;
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        names.clear();
+        names.trimToSize();
+        release = new long[0];
+        burst = new long[0];
+        remaining = new long[0];
+        absDeadline = new long[0];
+        order = new int[0];
+        scratch = new int[0];
+        pending = new int[0];
+        owner = new int[0];
+        ready.release();
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Completely-fair (CFS-style) scheduler.
+ *
+ * Each process accumulates virtual runtime inversely proportional to its
+ * weight; the runnable process with the smallest vruntime is kept on top of
+ * an {@link IntHeap} and picked in O(log n). Priorities are
+ * read as nice values (-20..19, lower is more important) and mapped to the
+ * Linux weight table. The engine advances from event to event (arrival, slice
+ * end, completion) rather than tick by tick.
+ */
+public class FairShareScheduler implements Scheduler {
+    // sched_prio_to_weight, nice -20 .. 19
+    private static final int[] NICE_TO_WEIGHT = {
+        88761, 71755, 56483, 46273, 36291,
+        29154, 23254, 18705, 14949, 11916,
+        9548, 7620, 6100, 4904, 3906,
+        3121, 2501, 1991, 1586, 1277,
+        1024, 820, 655, 526, 423,
+        335, 272, 215, 172, 137,
+        110, 87, 70, 56, 45,
+        36, 29, 23, 18, 15,
+    };
+    private static final int NICE_0_WEIGHT = 1024;
+    // vruntime is kept in 1/VRUNTIME_SCALE of a nice-0 tick to stay integral
+    private static final long VRUNTIME_SCALE = 1024;
+
+    private final long targetLatency;
+    private final long minGranularity;
+
+    // Working state retained between runs, grown to the largest input (see Scheduler.reset)
+    private long[] remaining = new long[0];
+    private int[] weight = new int[0];
+    private long[] vruntime = new long[0];
+    private long[] arrival = new long[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    // Runnable processes (excluding the one on the CPU) ordered by vruntime, then index
+    private final IntHeap ready = new IntHeap((a, b) -> {
+        int c = Long.compare(vruntime[a], vruntime[b]);
+        return c != 0 ? c : Integer.compare(a, b);
+    });
+    // The same processes, largest vruntime on top, for the fairness spread
+    private final IntHeap latest = new IntHeap((a, b) -> Long.compare(vruntime[b], vruntime[a]));
+    private final FlightRecorder recorder = new FlightRecorder("FairShare");
+
+    public FairShareScheduler() {
+        this(6, 1);
+    }
+
+    /**
+     * @param targetLatency period in which every runnable process should run once
+     * @param minGranularity smallest slice handed out, stretching the period when crowded
+     */
+    public FairShareScheduler(long targetLatency, long minGranularity) {
+        if (targetLatency <= 0 || minGranularity <= 0) {
+            throw new IllegalArgumentException("Target latency and minimum granularity must be positive");
+        }
+        this.targetLatency = targetLatency;
+        this.minGranularity = minGranularity;
+    }
+
+    static int weightOf(int priority) {
+        int nice = Math.max(-20, Math.min(19, priority));
+        return NICE_TO_WEIGHT[nice + 20];
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        int n = processes.length;
+
+        if (remaining.length < n) {
+            remaining = new long[n];
+            weight = new int[n];
+            vruntime = new long[n];
+            arrival = new long[n];
+            order = new int[n];
+            scratch = new int[n];
+        }
+        long[] remaining = this.remaining;
+        int[] weight = this.weight;
+        long[] vruntime = this.vruntime;
+        long[] arrival = this.arrival;
+        int[] order = this.order;
+        Parallel.forRange(n, i -> {
+            remaining[i] = processes[i].getBurstTime();
+            weight[i] = weightOf(processes[i].getPriority());
+            vruntime[i] = 0;
+            arrival[i] = processes[i].getArrivalTime();
+        });
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        IndexSort.sortByKey(order, n, arrival, scratch);
+        result.endPhase(ScheduleResult.Phase.SORT);
+        ready.clear();
+        latest.clear();
+
+        long time = 0;
+        int idx = 0;
+        int completed = 0;
+        int current = -1;
+        int last = -1;
+        long sliceLeft = 0;
+        long totalWeight = 0; // weight of all runnable processes, including current
+        long minVruntime = 0;
+        long maxLag = 0;
+        double totalWait = 0, totalTurn = 0;
+
+        while (completed < n) {
+            // Admit arrivals at min_vruntime so they neither starve others nor get starved
+            boolean preempt = false;
+            while (idx < n && arrival[order[idx]] <= time) {
+                int p = order[idx++];
+                if (remaining[p] <= 0) {
+                    long turnaround = completeEmpty(processes[p], time, result);
+                    totalWait += turnaround - processes[p].getBurstTime();
+                    totalTurn += turnaround;
+                    completed++;
+                    continue;
+                }
+                vruntime[p] = Math.max(vruntime[p], minVruntime);
+                enqueue(p);
+                totalWeight += weight[p];
+                if (current != -1 && vruntime[current] - vruntime[p] > scaledDelta(minGranularity, weight[p])) {
+                    preempt = true;
+                }
+            }
+
+            if (current == -1 || sliceLeft == 0 || preempt) {
+                if (current != -1) {
+                    enqueue(current);
+                    recorder.record(time, processes[current].getProcessName(), FlightRecorder.Event.PREEMPT,
+                            ready.size(), preempt ? FlightRecorder.Cause.LOWEST_VRUNTIME : FlightRecorder.Cause.SLICE_EXPIRED);
+                }
+                if (ready.isEmpty()) {
+                    // CPU idle: jump to the next arrival
+                    recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                    if (idx < n) time = Math.max(time, arrival[order[idx]]);
+                    current = -1;
+                    continue;
+                }
+                int p = ready.poll();
+                latest.remove(p);
+
+                // Fairness: spread of vruntime across the runnable set at this decision
+                long spread = latest.isEmpty() ? 0 : vruntime[latest.peek()] - vruntime[p];
+                maxLag = Math.max(maxLag, spread);
+
+                if (last != p) {
+                    if (last != -1) {
+                        long cost = switchCost.cost(last, p, time);
+                        result.switchOverhead += cost;
+                        time += cost;
+                        while (idx < n && arrival[order[idx]] <= time) {
+                            int a = order[idx++];
+                            if (remaining[a] <= 0) {
+                                long turnaround = completeEmpty(processes[a], time, result);
+                                totalWait += turnaround - processes[a].getBurstTime();
+                                totalTurn += turnaround;
+                                completed++;
+                                continue;
+                            }
+                            vruntime[a] = Math.max(vruntime[a], minVruntime);
+                            enqueue(a);
+                            totalWeight += weight[a];
+                        }
+                    }
+                    result.executionOrder.add(processes[p].getProcessName());
+                    recorder.record(time, processes[p].getProcessName(), FlightRecorder.Event.DISPATCH,
+                            ready.size(), FlightRecorder.Cause.LOWEST_VRUNTIME);
+                }
+                last = p;
+                current = p;
+
+                // Slice: the process's weighted share of the scheduling period
+                long nrRunning = ready.size() + 1;
+                long period = Math.max(targetLatency, nrRunning * minGranularity);
+                sliceLeft = Math.max(minGranularity, period * weight[p] / totalWeight);
+            }
+
+            // Run until slice end, completion or the next arrival
+            long run = Math.min(sliceLeft, remaining[current]);
+            if (idx < n) {
+                run = Math.min(run, arrival[order[idx]] - time);
+            }
+            run = Math.max(run, 1);
+
+            time += run;
+            remaining[current] -= run;
+            sliceLeft = Math.max(0, sliceLeft - run);
+            vruntime[current] += scaledDelta(run, weight[current]);
+
+            long leftmost = ready.isEmpty() ? vruntime[current] : Math.min(vruntime[current], vruntime[ready.peek()]);
+            minVruntime = Math.max(minVruntime, leftmost);
+
+            if (remaining[current] == 0) {
+                ProcessSpec p = processes[current];
+                long turnaround = time - p.getArrivalTime();
+                long waiting = turnaround - p.getBurstTime();
+                result.waitingTimes.putLong(p.getProcessName(), waiting);
+                result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+                totalWait += waiting;
+                totalTurn += turnaround;
+                totalWeight -= weight[current];
+                recorder.complete(time, p.getProcessName(), ready.size(), waiting, turnaround);
+                completed++;
+                current = -1;
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        result.maxVruntimeLag = (double) maxLag / VRUNTIME_SCALE;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    private void enqueue(int p) {
+        ready.add(p);
+        latest.add(p);
+    }
+
+    // A process with no CPU time left completes on admission and never becomes runnable;
+    // returns its turnaround
+    private long completeEmpty(ProcessSpec p, long time, ScheduleResult result) {
+        long turnaround = time - p.getArrivalTime();
+        long waiting = turnaround - p.getBurstTime();
+        result.waitingTimes.putLong(p.getProcessName(), waiting);
+        result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+        recorder.complete(time, p.getProcessName(), ready.size(), waiting, turnaround);
+        return turnaround;
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        remaining = new long[0];
+        weight = new int[0];
+        vruntime = new long[0];
+        arrival = new long[0];
+        order = new int[0];
+        scratch = new int[0];
+        ready.release();
+        latest.release();
+    }
+
+    /**
+     * Virtual runtime charged for {@code delta} ticks of real CPU at the given
+     * weight. Split so the product cannot overflow: exact for any delta whose
+     * result fits in a long, i.e. up to about 1.3e14 ticks at nice 19.
+     */
+    static long scaledDelta(long delta, int weight) {
+        long scale = NICE_0_WEIGHT * VRUNTIME_SCALE;
+        return delta / weight * scale + delta % weight * scale / weight;
+    }
+}
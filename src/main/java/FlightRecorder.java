@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Always-on ring buffer of a scheduler's most recent decisions, so a run that
+ * looks wrong can be explained without re-running it with prints.
+ *
+ * Each built-in scheduler owns one and records dispatches, preemptions, I/O
+ * blocks, idle gaps and completions with the simulated time, the process, the
+ * ready-queue depth and the cause. Events go into parallel primitive arrays
+ * (process names are stored as the existing references, or as positions for
+ * off-heap workloads, which keep no name objects), so recording allocates
+ * nothing and costs a handful of array stores. Only the last
+ * {@link #capacity()} events of the current run are kept; a scheduler's ring
+ * is resized with {@link #setCapacity} ("recorderCapacity" in a test case).
+ *
+ * The ring can be dumped on demand. It is dumped to the dump target
+ * automatically when a run throws, and once per run when a process completes
+ * after waiting longer than the configured threshold. Dumping while a run is
+ * in progress on another thread is best effort.
+ *
+ * Large runs are also published over JMX through a {@link SimulationMonitor},
+ * fed from the same event stream.
+ */
+public final class FlightRecorder {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    public enum Event { DISPATCH, PREEMPT, BLOCK, IDLE, COMPLETE, REJECT, BOOST }
+
+    /** Why an event happened: the selection rule for dispatches, the trigger otherwise. */
+    public enum Cause {
+        NONE,
+        // dispatch rules
+        FIFO, SHORTEST_REMAINING, HIGHEST_PRIORITY, TOP_LEVEL, LOWEST_VRUNTIME, EARLIEST_DEADLINE,
+        LOWEST_PASS, LOTTERY_DRAW, SHORTEST_PREDICTED,
+        // preemption and other triggers
+        QUANTUM_EXPIRED, SHORTER_JOB, HIGHER_PRIORITY, HIGHER_LEVEL, EARLIER_DEADLINE, SLICE_EXPIRED,
+        IO, DEADLINE_MISSED, ADMISSION, PERIODIC
+    }
+
+    private static final Event[] EVENTS = Event.values();
+    private static final Cause[] CAUSES = Cause.values();
+
+    private final String owner;
+    private int mask;
+    private long[] times;
+    private String[] processes;
+    private int[] ids; // process position when recorded without a name, else -1
+    private byte[] events;
+    private byte[] causes;
+    private int[] depths;
+    private long count;
+
+    private long waitingThreshold = Long.MAX_VALUE;
+    private boolean anomalyDumped;
+    private Consumer<String> dumpTarget = System.err::print;
+
+    // Progress of the current run, published to the monitor if there is one
+    private SimulationMonitor monitor;
+    private int completed;
+    private double totalWaiting;
+    private double totalTurnaround;
+
+    public FlightRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity events kept, rounded up to a power of two */
+    public FlightRecorder(int capacity) {
+        this("Scheduler", capacity);
+    }
+
+    /** @param owner scheduler name the run is monitored under */
+    FlightRecorder(String owner) {
+        this(owner, DEFAULT_CAPACITY);
+    }
+
+    private FlightRecorder(String owner, int capacity) {
+        this.owner = owner;
+        setCapacity(capacity);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Keep the last {@code capacity} events, rounded up to a power of two.
+     * Drops the events recorded so far; call it between runs.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        if (times != null && size == times.length) return;
+        mask = size - 1;
+        times = new long[size];
+        processes = new String[size];
+        ids = new int[size];
+        events = new byte[size];
+        causes = new byte[size];
+        depths = new int[size];
+        count = 0;
+    }
+
+    /** Events recorded in the current (or last) run, including those overwritten. */
+    public long getEventCount() {
+        return count;
+    }
+
+    /** JMX view of the run in progress, or null when it is not monitored. */
+    public SimulationMonitor getMonitor() {
+        return monitor;
+    }
+
+    /** Dump the ring once per run when a process completes after waiting longer than this. */
+    public void setWaitingThreshold(long threshold) {
+        this.waitingThreshold = threshold;
+    }
+
+    /** Where automatic dumps go; standard error by default. */
+    public void setDumpTarget(Consumer<String> target) {
+        this.dumpTarget = target;
+    }
+
+    /**
+     * Run one scheduling pass over {@code processes} processes: clear the ring,
+     * register a monitor if the run is large enough, run {@code body}, and dump
+     * the ring if it throws (other than by being cancelled).
+     */
+    <T> T run(int processes, ScheduleResult result, Supplier<T> body) {
+        count = 0;
+        anomalyDumped = false;
+        completed = 0;
+        totalWaiting = 0;
+        totalTurnaround = 0;
+        monitor = SimulationMonitor.register(owner, processes, result);
+        try {
+            return body.get();
+        } catch (CancellationException e) {
+            throw e;
+        } catch (RuntimeException | Error e) {
+            dumpTarget.accept(dumpWithHeader("Run failed: " + e));
+            throw e;
+        } finally {
+            if (monitor != null) {
+                monitor.unregister();
+                monitor = null;
+            }
+        }
+    }
+
+    /** Jobs the run will complete, when the engine expands the workload beyond one per process. */
+    void expect(int jobs) {
+        if (monitor != null) monitor.expect(jobs);
+    }
+
+    void record(long time, String process, Event event, int depth, Cause cause) {
+        store(time, process, -1, event, depth, cause);
+    }
+
+    /** Record against a process's position in an {@link OffHeapWorkload}. */
+    void record(long time, int process, Event event, int depth, Cause cause) {
+        store(time, null, process, event, depth, cause);
+    }
+
+    private void store(long time, String process, int id, Event event, int depth, Cause cause) {
+        int i = (int) count++ & mask;
+        times[i] = time;
+        processes[i] = process;
+        ids[i] = id;
+        events[i] = (byte) event.ordinal();
+        causes[i] = (byte) cause.ordinal();
+        depths[i] = depth;
+        if (monitor != null && (count & (SimulationMonitor.PUBLISH_INTERVAL - 1)) == 0) {
+            publish(time);
+        }
+    }
+
+    private void publish(long time) {
+        monitor.publish(time, count, completed, totalWaiting, totalTurnaround);
+        if (monitor.isCancelRequested()) {
+            throw new CancellationException(owner + " run cancelled at time " + time);
+        }
+    }
+
+    /** Record a completion, count it towards progress and check it against the waiting threshold. */
+    void complete(long time, String process, int depth, long waiting, long turnaround, Cause cause) {
+        count(waiting, turnaround);
+        record(time, process, Event.COMPLETE, depth, cause);
+        if (waiting > waitingThreshold && !anomalyDumped) anomaly(time, process, waiting);
+    }
+
+    /** Completion of the process at {@code process} in an {@link OffHeapWorkload}. */
+    void complete(long time, int process, int depth, long waiting, long turnaround) {
+        count(waiting, turnaround);
+        record(time, process, Event.COMPLETE, depth, Cause.NONE);
+        if (waiting > waitingThreshold && !anomalyDumped) anomaly(time, "#" + process, waiting);
+    }
+
+    private void count(long waiting, long turnaround) {
+        completed++;
+        totalWaiting += waiting;
+        totalTurnaround += turnaround;
+    }
+
+    private void anomaly(long time, String process, long waiting) {
+        anomalyDumped = true;
+        dumpTarget.accept(dumpWithHeader("Anomaly: " + process + " waited " + waiting + " (threshold "
+                + waitingThreshold + ") by time " + time));
+    }
+
+    void complete(long time, String process, int depth, long waiting, long turnaround) {
+        complete(time, process, depth, waiting, turnaround, Cause.NONE);
+    }
+
+    /** The retained events, oldest first, one per line. */
+    public String dump() {
+        return dumpWithHeader(null);
+    }
+
+    private String dumpWithHeader(String header) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            if (header != null) sb.append(header).append('\n');
+            dump(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder does not throw
+        }
+        return sb.toString();
+    }
+
+    public void dump(Appendable out) throws IOException {
+        long end = count;
+        long start = Math.max(0, end - capacity());
+        out.append(String.format("Flight recorder: last %d of %d events%n", end - start, end));
+        for (long n = start; n < end; n++) {
+            int i = (int) n & mask;
+            out.append(String.format("%12d  %-8s %-10s depth=%-6d %s%n", times[i], EVENTS[events[i]],
+                    processes[i] != null ? processes[i] : ids[i] >= 0 ? "#" + ids[i] : "-", depths[i],
+                    causes[i] == 0 ? "" : CAUSES[causes[i]].name().toLowerCase()));
+        }
+    }
+}
@@ -0,0 +1,425 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical weighted fair share: process groups (tenants) split the CPU by
+ * weight, and each group schedules its own processes with an inner policy.
+ *
+ * Groups are chosen as in stride scheduling. A group's pass advances by
+ * {@code STRIDE1 / weight} for every tick it runs, and the backlogged group
+ * with the smallest pass (kept in a heap, so O(log groups) per decision) gets
+ * the next slice of up to {@code quantum} ticks. A group that becomes
+ * backlogged again joins at the pass of the group chosen last, so it is not
+ * owed the time it had nothing to run. Within its slice the group runs its
+ * round robin head, its shortest remaining burst or its highest priority
+ * (lowest number) process; the latter two preempt within the group when a
+ * better process of the same group becomes ready. Under AG the group's ready
+ * set is run as AGScheduler runs its own: each process works through its
+ * quantum in FCFS, priority and SJF phases, yields at a phase boundary to a
+ * better process of the group, and takes up an unfinished phase first when
+ * the group's slice ran out. Groups without a configured weight get weight 1.
+ * Processes with nothing to run complete on admission without being
+ * dispatched. Per-group totals are reported in {@link ScheduleResult#groups}.
+ */
+public class GroupScheduler implements Scheduler {
+    private static final long STRIDE1 = 1L << 20;
+    // cgroup v2's cpu.weight ceiling; keeps every stride above 100, so truncating it skews shares by under 1%
+    static final int MAX_WEIGHT = 10_000;
+
+    /** Policy each group applies to its own processes. */
+    public enum Policy {
+        RR, SJF, PRIORITY, AG;
+
+        /** RR, SJF, Priority or AG, ignoring case. */
+        public static Policy parse(String name) {
+            for (Policy p : values()) {
+                if (p.name().equalsIgnoreCase(name.trim())) return p;
+            }
+            throw new IllegalArgumentException("Unknown group policy: " + name + " (expected RR, SJF, Priority or AG)");
+        }
+    }
+
+    // Shortest remaining burst, then earliest arrival, then workload order
+    private static final Comparator<Process> SHORTEST_REMAINING = (a, b) -> {
+        if (a.getRemainingTime() != b.getRemainingTime()) {
+            return Long.compare(a.getRemainingTime(), b.getRemainingTime());
+        }
+        if (a.getArrivalTime() != b.getArrivalTime()) return Long.compare(a.getArrivalTime(), b.getArrivalTime());
+        return Integer.compare(a.getPosition(), b.getPosition());
+    };
+    // Lowest priority number, then earliest arrival, then workload order
+    private static final Comparator<Process> HIGHEST_PRIORITY = (a, b) -> {
+        if (a.getPriority() != b.getPriority()) return Integer.compare(a.getPriority(), b.getPriority());
+        if (a.getArrivalTime() != b.getArrivalTime()) return Long.compare(a.getArrivalTime(), b.getArrivalTime());
+        return Integer.compare(a.getPosition(), b.getPosition());
+    };
+
+    private final Policy policy;
+    private final long quantum;
+    private final Map<String, Integer> weights;
+
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final IODevices devices = new IODevices();
+    private final HashMap<String, Integer> groupIds = new HashMap<>();
+    private final ArrayList<String> groupNames = new ArrayList<>();
+    private final ArrayList<Queue<Process>> queues = new ArrayList<>(); // ready processes per group
+    private int[] groupOf = new int[0]; // by workload position
+    private long[] used = new long[0];  // AG: ticks of its current quantum each process has run, by position
+    private long[] pass = new long[0];
+    private long[] stride = new long[0];
+    private final IntHeap backlogged = new IntHeap((a, b) -> {
+        int c = Long.compare(pass[a], pass[b]);
+        return c != 0 ? c : Integer.compare(a, b);
+    });
+    private final Consumer<Process> enqueue = this::enqueue;
+    private final FlightRecorder recorder = new FlightRecorder("Group");
+    private int running = -1;  // group holding the CPU, not in the heap while it runs
+    private long virtualPass;  // pass of the group chosen last
+    private long now;          // time of the arrivals and I/O returns being queued
+    private int finished;      // processes completed so far in the current run
+
+    /**
+     * @param policy  policy inside each group
+     * @param quantum longest slice a group gets per decision
+     * @param weights CPU weight per group name, 1 to {@value #MAX_WEIGHT}; unlisted groups get 1
+     */
+    public GroupScheduler(Policy policy, long quantum, Map<String, Integer> weights) {
+        if (quantum <= 0) throw new IllegalArgumentException("Time quantum must be positive");
+        for (Map.Entry<String, Integer> e : weights.entrySet()) {
+            if (e.getValue() == null || e.getValue() <= 0 || e.getValue() > MAX_WEIGHT) {
+                throw new IllegalArgumentException("Weight of group " + e.getKey() + " must be between 1 and "
+                        + MAX_WEIGHT);
+            }
+        }
+        this.policy = policy;
+        this.quantum = quantum;
+        this.weights = new HashMap<>(weights);
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] input, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        List<Process> processes = pool.copyOf(input);
+        int n = processes.size();
+        int groups = assignGroups(input);
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        pool.sortByArrival(processes);
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        devices.reset();
+        backlogged.clear();
+        running = -1;
+        virtualPass = 0;
+        finished = 0;
+        long[] cpu = new long[groups];
+        long[] contended = new long[groups]; // CPU time won while every group was backlogged
+
+        long time = 0;
+        int idx = 0;
+        Process last = null;
+
+        while (finished < n) {
+            idx = admit(processes, idx, time);
+            if (backlogged.isEmpty()) {
+                recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                // nothing pending once the last arrivals completed on admission
+                if (finished < n) time = nextEvent(processes, idx);
+                continue;
+            }
+
+            // Fair share across groups, then the group's own policy
+            boolean allBacklogged = backlogged.size() == groups;
+            int g = backlogged.poll();
+            running = g;
+            virtualPass = pass[g];
+            Queue<Process> queue = queues.get(g);
+            Process p = queue.poll();
+            if (last != null && last != p) {
+                // switch from event to event, admitting arrivals and I/O returns as they happen
+                long cost = switchCost.cost(last.getPosition(), p.getPosition(), time);
+                result.switchOverhead += cost;
+                long switchEnd = time + cost;
+                while (time < switchEnd) {
+                    time = Math.min(switchEnd, nextEvent(processes, idx));
+                    idx = admit(processes, idx, time);
+                }
+            }
+            if (p != last) {
+                result.executionOrder.add(p.getProcessName());
+                recorder.record(time, p.getProcessName(), FlightRecorder.Event.DISPATCH, backlogged.size(),
+                        FlightRecorder.Cause.LOWEST_PASS);
+            }
+            last = p;
+            if (p.getStartTime() == -1) p.setStartTime(time);
+
+            // Run until the slice or burst ends, or a better process of the group is ready
+            long ran = 0;
+            FlightRecorder.Cause yielded = null; // why p gave up the CPU before the slice ended
+            while (true) {
+                long run = Math.min(quantum - ran, p.getRemainingTime());
+                if (policy == Policy.AG) {
+                    yielded = agYield(p, queue);
+                    if (yielded != null || ran >= quantum) break;
+                    run = Math.min(run, agPhaseLeft(p));
+                }
+                run = Math.max(1, Math.min(run, nextEvent(processes, idx) - time));
+                p.consumeCpu(run);
+                devices.cpuBusy(time, time + run);
+                time += run;
+                ran += run;
+                used[p.getPosition()] += run;
+                idx = admit(processes, idx, time);
+                if (p.getRemainingTime() == 0) break;
+                if (policy == Policy.AG) continue;
+                if (ran >= quantum) break;
+                if (policy != Policy.RR && !queue.isEmpty() && better(queue.peek(), p)) {
+                    yielded = policy == Policy.SJF ? FlightRecorder.Cause.SHORTER_JOB
+                            : FlightRecorder.Cause.HIGHER_PRIORITY;
+                    break;
+                }
+            }
+            pass[g] += ran * stride[g];
+            cpu[g] += ran;
+            if (allBacklogged) contended[g] += ran;
+
+            if (p.hasPendingIo()) {
+                // AG starts the quantum over after I/O, keeping its length
+                used[p.getPosition()] = 0;
+                devices.submit(p, time);
+                recorder.record(time, p.getProcessName(), FlightRecorder.Event.BLOCK, backlogged.size(),
+                        FlightRecorder.Cause.IO);
+            } else if (p.isCompleted()) {
+                complete(p, time);
+            } else {
+                if (policy == Policy.AG && yielded == null) {
+                    // the slice ran out inside p's quantum: p carries on first when the group runs again
+                    ((Deque<Process>) queue).addFirst(p);
+                } else {
+                    queue.add(p);
+                }
+                recorder.record(time, p.getProcessName(), FlightRecorder.Event.PREEMPT, backlogged.size(),
+                        yielded == null ? FlightRecorder.Cause.QUANTUM_EXPIRED : yielded);
+            }
+            running = -1;
+            if (!queue.isEmpty()) backlogged.add(g);
+        }
+
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        // Per process in arrival order, summed per group
+        long[] totalWait = new long[groups];
+        long[] totalTurn = new long[groups];
+        int[] members = new int[groups];
+        for (Process p : processes) {
+            int g = groupOf[p.getPosition()];
+            long turnaround = p.getCompletionTime() - p.getArrivalTime();
+            long waiting = turnaround - p.getBurstTime() - p.getBlockedTime();
+            result.waitingTimes.putLong(p.getProcessName(), waiting);
+            result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+            totalWait[g] += waiting;
+            totalTurn[g] += turnaround;
+            members[g]++;
+        }
+        long waitSum = 0, turnSum = 0, cpuSum = 0, contendedSum = 0, weightSum = 0;
+        for (int g = 0; g < groups; g++) {
+            waitSum += totalWait[g];
+            turnSum += totalTurn[g];
+            cpuSum += cpu[g];
+            contendedSum += contended[g];
+            weightSum += weightOf(groupNames.get(g));
+        }
+        result.averageWaiting = n == 0 ? 0 : (double) waitSum / n;
+        result.averageTurnaround = n == 0 ? 0 : (double) turnSum / n;
+        for (int g = 0; g < groups; g++) {
+            ScheduleResult.Group stats = new ScheduleResult.Group();
+            stats.weight = weightOf(groupNames.get(g));
+            stats.processes = members[g];
+            stats.cpuTime = cpu[g];
+            stats.entitledShare = (double) stats.weight / weightSum;
+            // Shares only mean something under contention; without any, fall back to the whole run
+            stats.achievedShare = contendedSum > 0 ? (double) contended[g] / contendedSum
+                    : cpuSum == 0 ? 0 : (double) cpu[g] / cpuSum;
+            stats.averageWaiting = members[g] == 0 ? 0 : (double) totalWait[g] / members[g];
+            stats.averageTurnaround = members[g] == 0 ? 0 : (double) totalTurn[g] / members[g];
+            result.groups.put(groupNames.get(g), stats);
+        }
+        devices.report(result, time);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+        return result;
+    }
+
+    // Number the groups in order of first appearance and reset their state; returns the count
+    private int assignGroups(ProcessSpec[] input) {
+        groupIds.clear();
+        groupNames.clear();
+        if (groupOf.length < input.length) {
+            groupOf = new int[input.length];
+            used = new long[input.length];
+        }
+        Arrays.fill(used, 0, input.length, 0);
+        for (int i = 0; i < input.length; i++) {
+            String name = input[i].getGroup();
+            Integer id = groupIds.get(name);
+            if (id == null) {
+                id = groupNames.size();
+                groupIds.put(name, id);
+                groupNames.add(name);
+            }
+            groupOf[i] = id;
+        }
+        int groups = groupNames.size();
+        if (pass.length < groups) {
+            pass = new long[groups];
+            stride = new long[groups];
+        }
+        for (int g = 0; g < groups; g++) {
+            pass[g] = 0;
+            stride[g] = STRIDE1 / weightOf(groupNames.get(g));
+            if (g == queues.size()) {
+                queues.add(policy == Policy.RR || policy == Policy.AG ? new ArrayDeque<>()
+                        : new PriorityQueue<>(policy == Policy.SJF ? SHORTEST_REMAINING : HIGHEST_PRIORITY));
+            }
+            queues.get(g).clear();
+        }
+        return groups;
+    }
+
+    private int weightOf(String group) {
+        return weights.getOrDefault(group, 1);
+    }
+
+    // Ready process p joins its group, which becomes backlogged unless it already is or runs
+    private void enqueue(Process p) {
+        if (p.getRemainingTime() <= 0) {
+            // an empty CPU burst: straight on to its I/O, or done without ever being queued
+            if (p.hasPendingIo()) {
+                devices.submit(p, now);
+            } else {
+                complete(p, now);
+            }
+            return;
+        }
+        int g = groupOf[p.getPosition()];
+        Queue<Process> queue = queues.get(g);
+        if (queue.isEmpty() && g != running) {
+            pass[g] = Math.max(pass[g], virtualPass);
+            backlogged.add(g);
+        }
+        queue.add(p);
+    }
+
+    private void complete(Process p, long time) {
+        p.setCompletionTime(time);
+        finished++;
+        recorder.complete(time, p.getProcessName(), backlogged.size(),
+                time - p.getArrivalTime() - p.getBurstTime() - p.getBlockedTime(), time - p.getArrivalTime());
+    }
+
+    private boolean better(Process a, Process b) {
+        return policy == Policy.SJF ? a.getRemainingTime() < b.getRemainingTime() : a.getPriority() < b.getPriority();
+    }
+
+    /**
+     * AG at a phase boundary of p's quantum: hand the CPU to the first process
+     * of the group with a higher priority (after the FCFS phase) or a shorter
+     * remaining burst (after the priority phase), moving it to the head of the
+     * queue, or give up a used-up quantum. The quantum grows as in
+     * AGScheduler. Returns the cause, or null when p runs on.
+     */
+    private FlightRecorder.Cause agYield(Process p, Queue<Process> queue) {
+        int q = p.getQuantum();
+        int phase = (int) Math.ceil(q * 0.25); // FCFS and priority phases; SJF gets the rest
+        long done = used[p.getPosition()];
+        FlightRecorder.Cause cause = null;
+        if (done == phase && promote(queue, p, true)) {
+            p.setQuantum(q + (int) Math.ceil((q - phase) / 2.0));
+            cause = FlightRecorder.Cause.HIGHER_PRIORITY;
+        } else if (done == 2L * phase && promote(queue, p, false)) {
+            p.setQuantum(q + (q - 2 * phase));
+            cause = FlightRecorder.Cause.SHORTER_JOB;
+        } else if (done >= Math.max(q, 2L * phase)) {
+            p.setQuantum(q + 2);
+            cause = FlightRecorder.Cause.QUANTUM_EXPIRED;
+        }
+        if (cause != null) used[p.getPosition()] = 0;
+        return cause;
+    }
+
+    // AG: ticks left in p's current phase
+    private long agPhaseLeft(Process p) {
+        int q = p.getQuantum();
+        long phase = (long) Math.ceil(q * 0.25);
+        long done = used[p.getPosition()];
+        return (done < phase ? phase : done < 2 * phase ? 2 * phase : Math.max(q, 2 * phase)) - done;
+    }
+
+    // AG: move the queued process that beats p by the most (the first of equals) to the head; false if none does
+    private static boolean promote(Queue<Process> queue, Process p, boolean byPriority) {
+        Process best = p;
+        for (Process c : queue) {
+            if (byPriority ? c.getPriority() < best.getPriority() : c.getRemainingTime() < best.getRemainingTime()) {
+                best = c;
+            }
+        }
+        if (best == p) return false;
+        Deque<Process> deque = (Deque<Process>) queue;
+        deque.removeFirstOccurrence(best);
+        deque.addFirst(best);
+        return true;
+    }
+
+    // Queue every process arriving by time, then those finishing I/O; returns the new arrival index
+    private int admit(List<Process> processes, int next, long time) {
+        now = time;
+        while (next < processes.size() && processes.get(next).getArrivalTime() <= time) {
+            enqueue(processes.get(next++));
+        }
+        devices.advance(time, enqueue);
+        return next;
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processes, int next) {
+        long arrival = next < processes.size() ? processes.get(next).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        queues.clear();
+        groupIds.clear();
+        groupNames.clear();
+        groupOf = new int[0];
+        used = new long[0];
+        pass = new long[0];
+        stride = new long[0];
+        backlogged.clear();
+    }
+}
@@ -0,0 +1,244 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Simulated I/O devices shared by one scheduling run.
+ *
+ * Each device serves one request at a time in FIFO order; a request's service
+ * time is the length of the process's pending I/O burst. Schedulers submit a
+ * process when its CPU burst ends with I/O pending and call {@link #advance}
+ * as simulated time moves so finished processes rejoin their ready queue.
+ * Pending completions are kept in a {@link TimingWheel} keyed by device id,
+ * so finding the next one does not scan the devices.
+ */
+class IODevices {
+    private static final class Device {
+        final int id;
+        final ArrayDeque<Process> queue = new ArrayDeque<>();
+        Process serving;
+        long finishTime;
+
+        Device(int id) {
+            this.id = id;
+        }
+    }
+
+    // indexed by device id; kept across runs together with each device's queue
+    private final ArrayList<Device> devices = new ArrayList<>();
+    // finish time of every busy device
+    private final TimingWheel completions = new TimingWheel();
+    private int[] tied = new int[0];
+    private int busyDevices;
+    private long cpuTime;
+    private long overlapTime;
+    private boolean used;
+
+    /** Clear all device state for a new run, keeping the devices and their queues. */
+    void reset() {
+        for (int i = 0; i < devices.size(); i++) {
+            Device d = devices.get(i);
+            d.queue.clear();
+            d.serving = null;
+        }
+        completions.reset(0);
+        busyDevices = 0;
+        cpuTime = 0;
+        overlapTime = 0;
+        used = false;
+    }
+
+    /** Block a process on the device of its pending I/O burst. */
+    void submit(Process p, long time) {
+        used = true;
+        int id = p.getIoDevice();
+        while (devices.size() <= id) {
+            devices.add(new Device(devices.size()));
+        }
+        completions.ensureCapacity(devices.size());
+        Device d = devices.get(id);
+        p.setIoStartTime(time);
+        if (d.serving == null) {
+            start(d, p, time);
+        } else {
+            d.queue.addLast(p);
+        }
+    }
+
+    private void start(Device d, Process p, long time) {
+        if (d.serving == null) busyDevices++;
+        d.serving = p;
+        d.finishTime = time + p.getIoBurst();
+        completions.schedule(d.id, d.finishTime);
+    }
+
+    /**
+     * Complete every request finishing at or before {@code time}, in finish-time
+     * order, handing each process (with its next CPU burst loaded) to {@code onReady}.
+     */
+    void advance(long time, Consumer<Process> onReady) {
+        while (busyDevices > 0) {
+            long at = completions.peekDeadline();
+            if (at > time) return;
+            completions.advance(at);
+            Device next = devices.get(lowestDue(at));
+
+            Process done = next.serving;
+            long finishedAt = next.finishTime;
+            done.addBlockedTime(finishedAt - done.getIoStartTime());
+            done.nextCpuBurst();
+            next.serving = null;
+            busyDevices--;
+            if (!next.queue.isEmpty()) {
+                start(next, next.queue.pollFirst(), finishedAt);
+            }
+            onReady.accept(done);
+        }
+    }
+
+    // Take the lowest device id among the requests finishing at 'at', leaving the rest due
+    private int lowestDue(long at) {
+        int best = completions.pollDue();
+        int count = 0;
+        for (int id = completions.pollDue(); id != -1; id = completions.pollDue()) {
+            if (count == tied.length) tied = Arrays.copyOf(tied, Math.max(4, count * 2));
+            tied[count++] = Math.max(id, best);
+            best = Math.min(id, best);
+        }
+        while (count > 0) {
+            completions.schedule(tied[--count], at);
+        }
+        return best;
+    }
+
+    boolean isBusy() {
+        return busyDevices > 0;
+    }
+
+    /** Earliest pending I/O completion, or Long.MAX_VALUE when all devices are idle. */
+    long nextCompletion() {
+        return busyDevices == 0 ? Long.MAX_VALUE : completions.peekDeadline();
+    }
+
+    /**
+     * Account CPU busy time [from, to). Callers advance the devices to
+     * {@code from} first, so device state is constant over the interval.
+     */
+    void cpuBusy(long from, long to) {
+        cpuTime += to - from;
+        if (busyDevices > 0) overlapTime += to - from;
+    }
+
+    /**
+     * Device state at one instant for {@link WhatIf} checkpoints, with processes
+     * as their {@link Process#getPosition} positions.
+     */
+    static final class Snapshot {
+        final int[] serving;   // per device, -1 when idle
+        final long[] finish;
+        final int[][] queues;
+        final long cpuTime;
+        final long overlapTime;
+        final boolean used;
+
+        private Snapshot(int devices, long cpuTime, long overlapTime, boolean used) {
+            serving = new int[devices];
+            finish = new long[devices];
+            queues = new int[devices][];
+            this.cpuTime = cpuTime;
+            this.overlapTime = overlapTime;
+            this.used = used;
+        }
+
+        /** Positions of the processes held by the devices, serving or queued, in device order. */
+        int[] processes() {
+            int count = 0;
+            for (int d = 0; d < serving.length; d++) {
+                count += (serving[d] >= 0 ? 1 : 0) + queues[d].length;
+            }
+            int[] held = new int[count];
+            int i = 0;
+            for (int d = 0; d < serving.length; d++) {
+                if (serving[d] >= 0) held[i++] = serving[d];
+                for (int p : queues[d]) held[i++] = p;
+            }
+            return held;
+        }
+    }
+
+    Snapshot snapshot() {
+        Snapshot s = new Snapshot(devices.size(), cpuTime, overlapTime, used);
+        for (int d = 0; d < devices.size(); d++) {
+            Device device = devices.get(d);
+            s.serving[d] = device.serving == null ? -1 : device.serving.getPosition();
+            s.finish[d] = device.finishTime;
+            int[] queue = new int[device.queue.size()];
+            int i = 0;
+            for (Process p : device.queue) queue[i++] = p.getPosition();
+            s.queues[d] = queue;
+        }
+        return s;
+    }
+
+    /** Reset, then take on the snapshot's state, mapping positions through {@code byIndex}. */
+    void restore(Snapshot s, Process[] byIndex) {
+        reset();
+        while (devices.size() < s.serving.length) {
+            devices.add(new Device(devices.size()));
+        }
+        completions.ensureCapacity(devices.size());
+        for (int d = 0; d < s.serving.length; d++) {
+            Device device = devices.get(d);
+            for (int p : s.queues[d]) device.queue.addLast(byIndex[p]);
+            if (s.serving[d] >= 0) {
+                device.serving = byIndex[s.serving[d]];
+                device.finishTime = s.finish[d];
+                completions.schedule(d, s.finish[d]);
+                busyDevices++;
+            }
+        }
+        cpuTime = s.cpuTime;
+        overlapTime = s.overlapTime;
+        used = s.used;
+    }
+
+    /** True when the devices hold the same requests as in the snapshot (accounting aside). */
+    boolean matches(Snapshot s) {
+        int n = Math.max(devices.size(), s.serving.length);
+        for (int d = 0; d < n; d++) {
+            Device device = d < devices.size() ? devices.get(d) : null;
+            int serving = device == null || device.serving == null ? -1 : device.serving.getPosition();
+            int[] queue = d < s.serving.length ? s.queues[d] : new int[0];
+            if (serving != (d < s.serving.length ? s.serving[d] : -1)) return false;
+            if (serving >= 0 && device.finishTime != s.finish[d]) return false;
+            if ((device == null ? 0 : device.queue.size()) != queue.length) return false;
+            int i = 0;
+            if (device != null) {
+                for (Process p : device.queue) {
+                    if (p.getPosition() != queue[i++]) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    long cpuTime() {
+        return cpuTime;
+    }
+
+    long overlapTime() {
+        return overlapTime;
+    }
+
+    boolean isUsed() {
+        return used;
+    }
+
+    /** Store CPU utilization and I/O overlap over [0, endTime) into the result. */
+    void report(ScheduleResult result, long endTime) {
+        if (endTime <= 0) return;
+        result.cpuUtilization = (double) cpuTime / endTime;
+        if (used) {
+            result.ioOverlap = (double) overlapTime / endTime;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Stable sort of process indices by a {@code long} key, used for arrival
+ * order, working only in the caller's buffers. Replaces packing (arrival,
+ * index) into one long, which only works while times fit in 32 bits.
+ *
+ * Large inputs ({@link Parallel#THRESHOLD} and up) sort their runs and do the
+ * merges of each pass in parallel; the merges of a pass are independent, so
+ * the result is the same as sequentially.
+ */
+final class IndexSort {
+    // Runs up to this length are insertion-sorted before merging
+    private static final int RUN = 32;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Fill {@code idx[0..n)} with 0..n-1 ordered by {@code key}, ties by index.
+     *
+     * @param scratch buffer of at least {@code n} ints, clobbered
+     */
+    static void sortByKey(int[] idx, int n, long[] key, int[] scratch) {
+        for (int i = 0; i < n; i++) {
+            idx[i] = i;
+        }
+        sortEntries(idx, n, key, scratch);
+    }
+
+    /**
+     * Stable sort of the indices already in {@code idx[0..n)} by {@code key}.
+     *
+     * @param scratch buffer of at least {@code n} ints, clobbered
+     */
+    static void sortEntries(int[] idx, int n, long[] key, int[] scratch) {
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) {
+            if (key[idx[i]] < key[idx[i - 1]]) sorted = false;
+        }
+        // traces are usually recorded in arrival order already
+        if (sorted) return;
+        boolean parallel = n >= Parallel.THRESHOLD;
+
+        each((n + RUN - 1) / RUN, parallel, r -> {
+            int lo = r * RUN;
+            int hi = Math.min(lo + RUN, n);
+            for (int i = lo + 1; i < hi; i++) {
+                int v = idx[i];
+                long k = key[v];
+                int j = i - 1;
+                while (j >= lo && key[idx[j]] > k) {
+                    idx[j + 1] = idx[j];
+                    j--;
+                }
+                idx[j + 1] = v;
+            }
+        });
+
+        int[] src = idx;
+        int[] dst = scratch;
+        for (int width = RUN; width < n; width <<= 1) {
+            int w = width;
+            int[] from = src, to = dst;
+            each((int) ((n + 2L * w - 1) / (2L * w)), parallel, m -> {
+                int lo = (int) Math.min((long) m * 2 * w, n);
+                int mid = Math.min(lo + w, n);
+                int hi = (int) Math.min(lo + 2L * w, n);
+                int a = lo, b = mid, out = lo;
+                while (a < mid && b < hi) {
+                    to[out++] = key[from[b]] < key[from[a]] ? from[b++] : from[a++];
+                }
+                while (a < mid) to[out++] = from[a++];
+                while (b < hi) to[out++] = from[b++];
+            });
+            int[] t = src;
+            src = dst;
+            dst = t;
+        }
+        if (src != idx) System.arraycopy(src, 0, idx, 0, n);
+    }
+
+    // Run tasks 0..count-1, forking when the sort as a whole is large enough
+    private static void each(int count, boolean parallel, IntConsumer task) {
+        if (parallel && count > 1) {
+            IntStream.range(0, count).parallel().forEach(task);
+        } else {
+            for (int i = 0; i < count; i++) task.accept(i);
+        }
+    }
+}
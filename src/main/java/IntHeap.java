@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int ids (process or job indices) ordered by a caller
+ * supplied comparator. Unlike PriorityQueue&lt;Integer&gt; it never boxes, and
+ * its backing arrays are kept across clear() so reused schedulers stop
+ * allocating once warmed up. Each id's slot is tracked, so an id can also be
+ * removed or re-sorted after its key changed in O(log n).
+ */
+final class IntHeap {
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private final IntComparator cmp;
+    private int[] heap = new int[16];
+    private int size;
+    // Slot of each id in heap, -1 when absent; grown to the largest id added
+    private int[] slot = new int[0];
+
+    IntHeap(IntComparator cmp) {
+        this.cmp = cmp;
+    }
+
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+
+    void clear() {
+        for (int i = 0; i < size; i++) slot[heap[i]] = -1;
+        size = 0;
+    }
+
+    boolean contains(int id) {
+        return id < slot.length && slot[id] >= 0;
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    void add(int id) {
+        if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+        if (id >= slot.length) {
+            int old = slot.length;
+            slot = Arrays.copyOf(slot, Math.max(id + 1, 2 * old));
+            Arrays.fill(slot, old, slot.length, -1);
+        }
+        siftUp(size++, id);
+    }
+
+    int poll() {
+        int top = heap[0];
+        slot[top] = -1;
+        int last = heap[--size];
+        if (size > 0) siftDown(0, last);
+        return top;
+    }
+
+    /** Remove {@code id}, which must be in the heap. */
+    void remove(int id) {
+        int i = slot[id];
+        slot[id] = -1;
+        int last = heap[--size];
+        if (i == size) return;
+        // the moved element may belong above or below the hole
+        if (i > 0 && cmp.compare(last, heap[(i - 1) >>> 1]) < 0) siftUp(i, last);
+        else siftDown(i, last);
+    }
+
+    /** Restore the order after the key of {@code id}, which must be in the heap, changed. */
+    void update(int id) {
+        int i = slot[id];
+        if (i > 0 && cmp.compare(id, heap[(i - 1) >>> 1]) < 0) siftUp(i, id);
+        else siftDown(i, id);
+    }
+
+    // Place id at or above slot i
+    private void siftUp(int i, int id) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (cmp.compare(id, heap[parent]) >= 0) break;
+            heap[i] = heap[parent];
+            slot[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        slot[id] = i;
+    }
+
+    // Place id at or below slot i
+    private void siftDown(int i, int id) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && cmp.compare(heap[child + 1], heap[child]) < 0) child++;
+            if (cmp.compare(id, heap[child]) <= 0) break;
+            heap[i] = heap[child];
+            slot[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = id;
+        slot[id] = i;
+    }
+
+    /** Copy the current contents (in heap order) into {@code out}, returning the count. */
+    int copyTo(int[] out) {
+        System.arraycopy(heap, 0, out, 0, size);
+        return size;
+    }
+
+    void release() {
+        heap = new int[16];
+        slot = new int[0];
+        size = 0;
+    }
+}
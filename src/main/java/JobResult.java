@@ -0,0 +1,87 @@
+import java.io.*;
+
+/**
+ * Summary of one {@link SweepJob} run on a worker: the aggregate metrics of
+ * its {@link ScheduleResult}, without the per-process maps, so results of
+ * huge traces stay small on the wire and in the coordinator's heap.
+ */
+public class JobResult {
+    public int jobIndex;
+    public String scheduler;
+    public String worker;
+    public int attempts;
+    public String error; // null when the job succeeded
+
+    public double averageWaiting;
+    public double averageTurnaround;
+    public int completed;
+    public int dispatches;
+    public int deadlineMisses;
+    public long maxLateness;
+    public int rejected;
+    public double cpuUtilization;
+    public double maxVruntimeLag;
+    public long switchOverhead;
+    public long elapsedNanos;
+
+    public boolean succeeded() {
+        return error == null;
+    }
+
+    static JobResult summarize(ScheduleResult r, long elapsedNanos) {
+        JobResult s = new JobResult();
+        s.averageWaiting = r.averageWaiting;
+        s.averageTurnaround = r.averageTurnaround;
+        s.completed = r.waitingTimes.size();
+        s.dispatches = r.executionOrder.size();
+        s.deadlineMisses = r.deadlineMisses;
+        s.maxLateness = r.maxLateness;
+        s.rejected = r.rejected.size();
+        s.cpuUtilization = r.cpuUtilization;
+        s.maxVruntimeLag = r.maxVruntimeLag;
+        s.switchOverhead = r.switchOverhead;
+        s.elapsedNanos = elapsedNanos;
+        return s;
+    }
+
+    void writeSummary(DataOutput out) throws IOException {
+        out.writeDouble(averageWaiting);
+        out.writeDouble(averageTurnaround);
+        out.writeInt(completed);
+        out.writeInt(dispatches);
+        out.writeInt(deadlineMisses);
+        out.writeLong(maxLateness);
+        out.writeInt(rejected);
+        out.writeDouble(cpuUtilization);
+        out.writeDouble(maxVruntimeLag);
+        out.writeLong(switchOverhead);
+        out.writeLong(elapsedNanos);
+    }
+
+    static JobResult readSummary(DataInput in) throws IOException {
+        JobResult s = new JobResult();
+        s.averageWaiting = in.readDouble();
+        s.averageTurnaround = in.readDouble();
+        s.completed = in.readInt();
+        s.dispatches = in.readInt();
+        s.deadlineMisses = in.readInt();
+        s.maxLateness = in.readLong();
+        s.rejected = in.readInt();
+        s.cpuUtilization = in.readDouble();
+        s.maxVruntimeLag = in.readDouble();
+        s.switchOverhead = in.readLong();
+        s.elapsedNanos = in.readLong();
+        return s;
+    }
+
+    @Override
+    public String toString() {
+        if (error != null) {
+            return String.format("#%d %s FAILED after %d attempt(s): %s", jobIndex, scheduler, attempts, error);
+        }
+        return String.format("#%d %s on %s: avgWait=%.2f avgTurnaround=%.2f completed=%d dispatches=%d"
+                        + " switchOverhead=%d (%.1f ms)",
+                jobIndex, scheduler, worker, averageWaiting, averageTurnaround, completed, dispatches,
+                switchOverhead, elapsedNanos / 1e6);
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.json.JSONObject;
+
+/**
+ * Lock-free latency histogram for one service endpoint.
+ *
+ * Latencies are recorded in microseconds into log-linear buckets (8 per power
+ * of two, so percentiles are within about 12%), which keeps recording O(1)
+ * and allocation-free on the request path.
+ */
+final class LatencyMetrics {
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = (63 - 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    void record(long nanos, int status) {
+        long micros = Math.max(0, nanos / 1000);
+        // max first, so a snapshot's max covers every value it counts
+        maxMicros.accumulate(micros);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+        if (status == 503) {
+            rejected.increment();
+        } else if (status >= 400) {
+            errors.increment();
+        }
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int octave = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (octave - 3)) & (SUB_BUCKETS - 1);
+        return (octave - 2) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into the bucket
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int octave = bucket / SUB_BUCKETS + 2;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (octave - 3)) - 1;
+    }
+
+    // Bucket bound at rank p, capped at the largest recorded value the bound may overshoot
+    private long percentile(long[] counts, long total, double p, long max) {
+        long rank = (long) Math.ceil(p * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) return Math.min(upperBound(i), max);
+        }
+        return 0;
+    }
+
+    JSONObject snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long max = maxMicros.get();
+        JSONObject json = new JSONObject();
+        json.put("count", count.sum());
+        json.put("errors", errors.sum());
+        json.put("rejected", rejected.sum());
+        json.put("meanMicros", total == 0 ? 0 : totalMicros.sum() / total);
+        json.put("p50Micros", percentile(counts, total, 0.50, max));
+        json.put("p95Micros", percentile(counts, total, 0.95, max));
+        json.put("p99Micros", percentile(counts, total, 0.99, max));
+        json.put("maxMicros", max);
+        return json;
+    }
+}
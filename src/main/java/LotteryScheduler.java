@@ -0,0 +1,197 @@
+import java.util.*;
+
+/**
+ * Lottery scheduling: randomized proportional share.
+ *
+ * Every quantum a ticket is drawn uniformly from the runnable processes'
+ * tickets. Tickets are held in a Fenwick tree indexed by arrival order, so
+ * both the draw and joining/leaving cost O(log n). Runs are reproducible for
+ * a given seed. Processes with nothing to run complete on arrival without
+ * holding tickets.
+ */
+public class LotteryScheduler implements Scheduler {
+    private final long timeQuantum;
+    private final long seed;
+
+    // Working state retained between runs, grown to the largest input (see Scheduler.reset)
+    private long[] remaining = new long[0];
+    private int[] tickets = new int[0];
+    private long[] arrival = new long[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private long[] tree = new long[1];
+    private final ShareAccounting shares = new ShareAccounting();
+    private final FlightRecorder recorder = new FlightRecorder("Lottery");
+    // Totals of the current run, kept by complete()
+    private double totalWait, totalTurn;
+
+    public LotteryScheduler(long timeQuantum, long seed) {
+        if (timeQuantum <= 0) throw new IllegalArgumentException("Time quantum must be positive");
+        this.timeQuantum = timeQuantum;
+        this.seed = seed;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        int n = processes.length;
+
+        if (remaining.length < n) {
+            remaining = new long[n];
+            tickets = new int[n];
+            arrival = new long[n];
+            order = new int[n];
+            scratch = new int[n];
+            tree = new long[n + 1];
+        }
+        long[] remaining = this.remaining;
+        int[] tickets = this.tickets;
+        long[] arrival = this.arrival;
+        int[] order = this.order;
+        long[] tree = this.tree;
+        Parallel.forRange(n, i -> {
+            remaining[i] = processes[i].getBurstTime();
+            tickets[i] = Math.max(1, processes[i].getTickets());
+            arrival[i] = processes[i].getArrivalTime();
+        });
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        IndexSort.sortByKey(order, n, arrival, scratch);
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        // Fenwick tree over arrival slots (1-based); slot k holds process order[k - 1]
+        Arrays.fill(tree, 0, n + 1, 0);
+        int topBit = Integer.highestOneBit(Math.max(n, 1));
+        long totalTickets = 0;
+        SplittableRandom random = new SplittableRandom(seed);
+        shares.reset(n);
+
+        long time = 0;
+        int idx = 0;
+        int completed = 0;
+        int last = -1;
+        totalWait = 0;
+        totalTurn = 0;
+
+        while (completed < n) {
+            while (idx < n && arrival[order[idx]] <= time) {
+                int p = order[idx];
+                shares.join(p, tickets[p], time);
+                idx++;
+                if (remaining[p] == 0) {
+                    // nothing to run: complete on arrival rather than entering the draw
+                    completed++;
+                    complete(processes, p, time, idx - completed, result);
+                    continue;
+                }
+                update(tree, n, idx, tickets[p]);
+                totalTickets += tickets[p];
+            }
+
+            if (totalTickets == 0) {
+                recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                time = Math.max(time, arrival[order[idx]]);
+                continue;
+            }
+
+            // Draw the winning ticket and descend the tree to its slot
+            long draw = random.nextLong(totalTickets);
+            int slot = 0;
+            for (int bit = topBit; bit != 0; bit >>= 1) {
+                int nextSlot = slot + bit;
+                if (nextSlot <= n && tree[nextSlot] <= draw) {
+                    slot = nextSlot;
+                    draw -= tree[nextSlot];
+                }
+            }
+            // The descent stops on the last slot whose prefix is <= draw; the winner is the
+            // next tree slot, i.e. order[slot] in 0-based arrival order
+            int p = order[slot];
+
+            if (last != p) {
+                if (last != -1) {
+                    long cost = switchCost.cost(last, p, time);
+                    result.switchOverhead += cost;
+                    time += cost;
+                }
+                result.executionOrder.add(processes[p].getProcessName());
+                // depth counts every runnable process, the winner included
+                recorder.record(time, processes[p].getProcessName(), FlightRecorder.Event.DISPATCH, idx - completed,
+                        FlightRecorder.Cause.LOTTERY_DRAW);
+            }
+            last = p;
+
+            long run = Math.min(timeQuantum, remaining[p]);
+            time += run;
+            remaining[p] -= run;
+
+            if (remaining[p] == 0) {
+                update(tree, n, slot + 1, -tickets[p]);
+                totalTickets -= tickets[p];
+                completed++;
+                complete(processes, p, time, idx - completed, result);
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    // Record the completion of process p at time into the result and the run's totals
+    private void complete(ProcessSpec[] processes, int p, long time, int depth, ScheduleResult result) {
+        ProcessSpec proc = processes[p];
+        long turnaround = time - proc.getArrivalTime();
+        long waiting = turnaround - proc.getBurstTime();
+        result.waitingTimes.putLong(proc.getProcessName(), waiting);
+        result.turnaroundTimes.putLong(proc.getProcessName(), turnaround);
+        totalWait += waiting;
+        totalTurn += turnaround;
+        shares.leave(p, proc, tickets[p], time, result);
+        recorder.complete(time, proc.getProcessName(), depth, waiting, turnaround);
+    }
+
+    private static void update(long[] tree, int n, int slot, long delta) {
+        for (; slot <= n; slot += slot & -slot) {
+            tree[slot] += delta;
+        }
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        remaining = new long[0];
+        tickets = new int[0];
+        arrival = new long[0];
+        order = new int[0];
+        scratch = new int[0];
+        tree = new long[1];
+        shares.release();
+    }
+}
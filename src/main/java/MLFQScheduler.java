@@ -0,0 +1,361 @@
+import java.util.*;
+
+/**
+ * Multilevel feedback queue scheduler.
+ *
+ * Level 0 is the highest priority. New arrivals enter level 0, a process that
+ * uses up its allotment at a level is demoted one level, and every
+ * {@code boostInterval} time units all processes are moved back to level 0.
+ * The highest non-empty level is found through a two-level bitmap, so picking
+ * the next process costs O(1) regardless of the number of levels.
+ */
+public class MLFQScheduler implements Scheduler {
+    // summary word (64 bits) x 64 bits per word
+    static final int MAX_LEVELS = 64 * 64;
+
+    private final long[] levelQuantum;
+    private final long boostInterval;
+
+    // Working state retained between runs, grown to the largest input (see Scheduler.reset)
+    private long[] remaining = new long[0];
+    private long[] used = new long[0];    // time consumed of the current level's allotment
+    private int[] epoch = new int[0];     // boost epoch in which 'used' was last valid
+    private long[] arrival = new long[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private LevelQueues queues;
+    private final FlightRecorder recorder = new FlightRecorder("MLFQ");
+
+    /**
+     * @param levels number of queues
+     * @param baseQuantum quantum of level 0, doubled for every lower level
+     * @param boostInterval period of the priority boost (0 disables boosting)
+     */
+    public MLFQScheduler(int levels, long baseQuantum, long boostInterval) {
+        this(doublingQuanta(levels, baseQuantum), boostInterval);
+    }
+
+    /**
+     * @param levelQuantum quantum (allotment) for each level, level 0 first
+     * @param boostInterval period of the priority boost (0 disables boosting)
+     */
+    public MLFQScheduler(long[] levelQuantum, long boostInterval) {
+        if (levelQuantum.length == 0 || levelQuantum.length > MAX_LEVELS) {
+            throw new IllegalArgumentException("MLFQ needs between 1 and " + MAX_LEVELS + " levels");
+        }
+        for (long q : levelQuantum) {
+            if (q <= 0) throw new IllegalArgumentException("MLFQ quantum must be positive");
+        }
+        this.levelQuantum = levelQuantum.clone();
+        this.boostInterval = boostInterval;
+        this.queues = new LevelQueues(levelQuantum.length, 0);
+    }
+
+    private static long[] doublingQuanta(int levels, long baseQuantum) {
+        long[] quanta = new long[Math.max(levels, 0)];
+        for (int i = 0; i < quanta.length; i++) {
+            // saturate instead of overflowing once the doubling passes the long range
+            quanta[i] = i < 63 && baseQuantum <= Long.MAX_VALUE >> i ? baseQuantum << i : Long.MAX_VALUE;
+        }
+        return quanta;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        int n = processes.length;
+        int levels = levelQuantum.length;
+
+        // Per-process state in flat arrays so a million processes cost no objects per tick
+        if (remaining.length < n) {
+            remaining = new long[n];
+            used = new long[n];
+            epoch = new int[n];
+            arrival = new long[n];
+            order = new int[n];
+            scratch = new int[n];
+            queues = new LevelQueues(levels, n);
+        }
+        long[] remaining = this.remaining;
+        long[] used = this.used;
+        int[] epoch = this.epoch;
+        long[] arrival = this.arrival;
+        int[] order = this.order;
+        LevelQueues queues = this.queues;
+        queues.clear();
+
+        Parallel.forRange(n, i -> {
+            remaining[i] = processes[i].getBurstTime();
+            arrival[i] = processes[i].getArrivalTime();
+        });
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        IndexSort.sortByKey(order, n, arrival, scratch);
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        long time = 0;
+        int idx = 0;
+        int completed = 0;
+        int current = -1;
+        int last = -1;
+        int boostEpoch = 0;
+        long nextBoost = boostInterval > 0 ? boostInterval : Long.MAX_VALUE;
+        double totalWait = 0, totalTurn = 0;
+
+        while (completed < n) {
+            // Admit arrivals into the top level
+            while (idx < n && arrival[order[idx]] <= time) {
+                int p = order[idx++];
+                if (remaining[p] <= 0) {
+                    // nothing to run: complete on admission rather than dispatching it
+                    long turnaround = time - arrival[p];
+                    long waiting = turnaround - processes[p].getBurstTime();
+                    result.waitingTimes.putLong(processes[p].getProcessName(), waiting);
+                    result.turnaroundTimes.putLong(processes[p].getProcessName(), turnaround);
+                    totalWait += waiting;
+                    totalTurn += turnaround;
+                    recorder.complete(time, processes[p].getProcessName(), queues.size(), waiting, turnaround);
+                    completed++;
+                    continue;
+                }
+                used[p] = 0;
+                epoch[p] = boostEpoch;
+                queues.addLast(0, p);
+            }
+
+            if (time >= nextBoost) {
+                queues.boost();
+                boostEpoch++;
+                recorder.record(time, null, FlightRecorder.Event.BOOST, queues.size(), FlightRecorder.Cause.PERIODIC);
+                if (current != -1) {
+                    queues.level[current] = 0;
+                    used[current] = 0;
+                    epoch[current] = boostEpoch;
+                }
+                nextBoost = (time / boostInterval + 1) * boostInterval;
+            }
+
+            // Preempt the running process if a higher level became non-empty;
+            // it resumes first when its level is served again
+            if (current != -1 && !queues.isEmpty() && queues.highest() < queues.level[current]) {
+                queues.addFirst(queues.level[current], current);
+                recorder.record(time, processes[current].getProcessName(), FlightRecorder.Event.PREEMPT,
+                        queues.size(), FlightRecorder.Cause.HIGHER_LEVEL);
+                current = -1;
+            }
+
+            if (current == -1) {
+                if (queues.isEmpty()) {
+                    // CPU idle: jump straight to the next arrival
+                    recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                    if (idx < n) time = Math.max(time, arrival[order[idx]]);
+                    continue;
+                }
+                int p = queues.poll();
+                if (epoch[p] != boostEpoch) {
+                    // boosted while queued: fresh allotment at level 0
+                    used[p] = 0;
+                    epoch[p] = boostEpoch;
+                }
+
+                if (last != p) {
+                    if (last != -1) {
+                        // arrivals and a boost during the switch are handled next iteration and may preempt
+                        long cost = switchCost.cost(last, p, time);
+                        result.switchOverhead += cost;
+                        time += cost;
+                    }
+                    result.executionOrder.add(processes[p].getProcessName());
+                    recorder.record(time, processes[p].getProcessName(), FlightRecorder.Event.DISPATCH,
+                            queues.size(), FlightRecorder.Cause.TOP_LEVEL);
+                }
+                last = p;
+                current = p;
+                if (idx < n && arrival[order[idx]] <= time || time >= nextBoost) {
+                    continue;
+                }
+            }
+
+            // Run until the next event: completion, allotment used, arrival preemption or boost
+            int lvl = queues.level[current];
+            long run = Math.min(levelQuantum[lvl] - used[current], remaining[current]);
+            if (lvl > 0 && idx < n) run = Math.min(run, arrival[order[idx]] - time);
+            if (nextBoost != Long.MAX_VALUE) run = Math.min(run, nextBoost - time);
+            run = Math.max(run, 1);
+
+            time += run;
+            remaining[current] -= run;
+            used[current] += run;
+
+            if (remaining[current] == 0) {
+                ProcessSpec p = processes[current];
+                long turnaround = time - p.getArrivalTime();
+                long waiting = turnaround - p.getBurstTime();
+                result.waitingTimes.putLong(p.getProcessName(), waiting);
+                result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+                totalWait += waiting;
+                totalTurn += turnaround;
+                recorder.complete(time, p.getProcessName(), queues.size(), waiting, turnaround);
+                completed++;
+                current = -1;
+            } else if (used[current] >= levelQuantum[lvl]) {
+                // Allotment used up: demote and requeue at the tail of the lower level
+                used[current] = 0;
+                queues.addLast(Math.min(lvl + 1, levels - 1), current);
+                recorder.record(time, processes[current].getProcessName(), FlightRecorder.Event.PREEMPT,
+                        queues.size(), FlightRecorder.Cause.QUANTUM_EXPIRED);
+                current = -1;
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        remaining = new long[0];
+        used = new long[0];
+        epoch = new int[0];
+        arrival = new long[0];
+        order = new int[0];
+        scratch = new int[0];
+        queues = new LevelQueues(levelQuantum.length, 0);
+    }
+
+    /**
+     * FIFO queue per level as intrusive linked lists over process indices,
+     * with a two-level bitmap of non-empty levels.
+     */
+    static final class LevelQueues {
+        final int[] level;
+        private final int[] next;
+        private final int[] head;
+        private final int[] tail;
+        private final long[] words;
+        private long summary;
+        private int size;
+
+        LevelQueues(int levels, int capacity) {
+            level = new int[capacity];
+            next = new int[capacity];
+            head = new int[levels];
+            tail = new int[levels];
+            Arrays.fill(head, -1);
+            Arrays.fill(tail, -1);
+            words = new long[(levels + 63) >>> 6];
+        }
+
+        void clear() {
+            Arrays.fill(head, -1);
+            Arrays.fill(tail, -1);
+            Arrays.fill(words, 0);
+            summary = 0;
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return summary == 0;
+        }
+
+        /** Highest (numerically lowest) non-empty level; only valid when not empty. */
+        int highest() {
+            int w = Long.numberOfTrailingZeros(summary);
+            return (w << 6) + Long.numberOfTrailingZeros(words[w]);
+        }
+
+        void addLast(int l, int p) {
+            level[p] = l;
+            next[p] = -1;
+            if (tail[l] == -1) head[l] = p; else next[tail[l]] = p;
+            tail[l] = p;
+            size++;
+            mark(l);
+        }
+
+        void addFirst(int l, int p) {
+            level[p] = l;
+            next[p] = head[l];
+            head[l] = p;
+            if (tail[l] == -1) tail[l] = p;
+            size++;
+            mark(l);
+        }
+
+        /** Remove the head of the highest non-empty level. */
+        int poll() {
+            int l = highest();
+            int p = head[l];
+            head[l] = next[p];
+            size--;
+            if (head[l] == -1) {
+                tail[l] = -1;
+                words[l >>> 6] &= ~(1L << (l & 63));
+                if (words[l >>> 6] == 0) summary &= ~(1L << (l >>> 6));
+            }
+            level[p] = l;
+            return p;
+        }
+
+        /**
+         * Splice every lower level onto the tail of level 0, keeping their order.
+         * Costs O(non-empty levels); stale per-process levels are fixed up by poll().
+         */
+        void boost() {
+            long s = summary;
+            while (s != 0) {
+                int w = Long.numberOfTrailingZeros(s);
+                s &= s - 1;
+                long bits = w == 0 ? words[0] & ~1L : words[w];
+                while (bits != 0) {
+                    int l = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (tail[0] == -1) head[0] = head[l]; else next[tail[0]] = head[l];
+                    tail[0] = tail[l];
+                    head[l] = -1;
+                    tail[l] = -1;
+                }
+                words[w] = 0;
+            }
+            summary = 0;
+            if (head[0] != -1) mark(0);
+        }
+
+        private void mark(int l) {
+            words[l >>> 6] |= 1L << (l & 63);
+            summary |= 1L << (l >>> 6);
+        }
+    }
+}
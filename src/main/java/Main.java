@@ -1,7 +1,23 @@
 import java.util.*;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            // Service mode: java Main --serve [port] [maxConcurrent] [maxQueued]
+            SchedulerService.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--scale")) {
+            // Scalability curves: java Main --scale [schedulers=...] [baseline=report.json] [option=value ...]
+            ScalabilityHarness.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--replay")) {
+            // Trace replay: java Main --replay <trace[.gz]> <scheduler[,...]> [option=value ...]
+            TraceReader.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("CPU Schedulers Simulator");
@@ -44,6 +60,28 @@ public class Main {
         }
     }
 
+    private static long readLong(Scanner scanner, String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return Long.parseLong(scanner.next());
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid integer.");
+            }
+        }
+    }
+
+    private static double readDouble(Scanner scanner, String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            try {
+                return Double.parseDouble(scanner.next());
+            } catch (NumberFormatException e) {
+                System.out.println("Please enter a valid number.");
+            }
+        }
+    }
+
     private static void runManualFlow(Scanner scanner) {
         int n = readInt(scanner, "Enter number of processes: ");
         int contextSwitch = readInt(scanner, "Enter Context Switching delay: ");
@@ -53,8 +91,8 @@ public class Main {
             System.out.println("Process #" + (i + 1));
             System.out.print("  Name: ");
             String name = scanner.next();
-            int arrival = readInt(scanner, "  Arrival Time: ");
-            int burst = readInt(scanner, "  Burst Time: ");
+            long arrival = readLong(scanner, "  Arrival Time: ");
+            long burst = readLong(scanner, "  Burst Time: ");
             int priority = readInt(scanner, "  Priority: ");
             processes[i] = new Process(name, arrival, burst, priority);
         }
@@ -64,6 +102,15 @@ public class Main {
         System.out.println("  2) SJF (Preemptive)");
         System.out.println("  3) Priority (Preemptive)");
         System.out.println("  4) AG Scheduler");
+        System.out.println("  5) Multilevel Feedback Queue");
+        System.out.println("  6) Completely Fair (vruntime)");
+        System.out.println("  7) Earliest Deadline First");
+        System.out.println("  8) Stride (proportional share)");
+        System.out.println("  9) Lottery (proportional share)");
+        System.out.println(" 10) Compare RR, SJF, Priority and AG side by side");
+        System.out.println(" 11) Group fair share (tenants)");
+        System.out.println(" 12) SJF with predicted bursts (non-clairvoyant)");
+        System.out.println(" 13) Round Robin with adaptive quantum");
         int choice = readInt(scanner, "Your choice: ");
 
         ScheduleResult result = null;
@@ -85,10 +132,102 @@ public class Main {
                 result = ps.schedule(processes, contextSwitch);
                 break;
             }
-            case 4:
-                Scheduler ag = new AGScheduler();
-                result = ag.schedule(processes, 1);
+            case 4: {
+                System.out.println("Quantum history: 1) Full  2) Last N values  3) Off");
+                int history = readInt(scanner, "Your choice: ");
+                Scheduler ag = history == 2
+                        ? new AGScheduler(QuantumHistory.Mode.LAST_N, readInt(scanner, "Enter N: "))
+                        : new AGScheduler(history == 3 ? QuantumHistory.Mode.OFF : QuantumHistory.Mode.FULL, 0);
+                result = ag.schedule(processes, contextSwitch);
+                break;
+            }
+            case 5: {
+                int levels = readInt(scanner, "Enter number of MLFQ levels: ");
+                int baseQuantum = readInt(scanner, "Enter top-level Time Quantum: ");
+                int boostInterval = readInt(scanner, "Enter Priority Boost Interval (0 = none): ");
+                Scheduler mlfq = new MLFQScheduler(levels, baseQuantum, boostInterval);
+                result = mlfq.schedule(processes, contextSwitch);
+                break;
+            }
+            case 6: {
+                int targetLatency = readInt(scanner, "Enter Target Latency: ");
+                int minGranularity = readInt(scanner, "Enter Minimum Granularity: ");
+                Scheduler cfs = new FairShareScheduler(targetLatency, minGranularity);
+                result = cfs.schedule(processes, contextSwitch);
+                break;
+            }
+            case 7: {
+                for (Process p : processes) {
+                    p.setDeadline(readInt(scanner, "  Relative Deadline of " + p.getProcessName() + " (0 = none): "));
+                }
+                int admission = readInt(scanner, "Enable admission control? (1 = yes, 0 = no): ");
+                Scheduler edf = new EDFScheduler(admission == 1, 0);
+                result = edf.schedule(processes, contextSwitch);
+                break;
+            }
+            case 8:
+            case 9: {
+                for (Process p : processes) {
+                    p.setTickets(readInt(scanner, "  Tickets of " + p.getProcessName() + ": "));
+                }
+                int shareQuantum = readInt(scanner, "Enter Time Quantum: ");
+                Scheduler share = choice == 8
+                        ? new StrideScheduler(shareQuantum)
+                        : new LotteryScheduler(shareQuantum, readInt(scanner, "Enter Random Seed: "));
+                result = share.schedule(processes, contextSwitch);
+                break;
+            }
+            case 10: {
+                Map<String, String> parameters = new HashMap<>();
+                parameters.put("contextSwitch", Integer.toString(contextSwitch));
+                parameters.put("rrQuantum", Integer.toString(readInt(scanner, "Enter Round Robin Time Quantum: ")));
+                parameters.put("agingInterval", Integer.toString(readInt(scanner, "Enter Aging Interval: ")));
+                try {
+                    System.out.println();
+                    System.out.print(PolicyComparison.run(ProcessSpec.of(processes),
+                            Arrays.asList("RR", "SJF", "Priority", "AG"), TestCaseLoader.parseParameters(parameters)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            }
+            case 11: {
+                Map<String, Integer> weights = new LinkedHashMap<>();
+                for (Process p : processes) {
+                    System.out.print("  Group of " + p.getProcessName() + ": ");
+                    p.setGroup(scanner.next());
+                    if (!weights.containsKey(p.getGroup())) weights.put(p.getGroup(), 1);
+                }
+                for (Map.Entry<String, Integer> e : weights.entrySet()) {
+                    e.setValue(readInt(scanner, "  Weight of group " + e.getKey() + ": "));
+                }
+                System.out.println("Policy inside each group: 1) Round Robin  2) SJF  3) Priority  4) AG");
+                int inner = readInt(scanner, "Your choice: ");
+                GroupScheduler.Policy policy = inner == 2 ? GroupScheduler.Policy.SJF
+                        : inner == 3 ? GroupScheduler.Policy.PRIORITY
+                        : inner == 4 ? GroupScheduler.Policy.AG : GroupScheduler.Policy.RR;
+                int groupQuantum = readInt(scanner, "Enter Group Time Quantum: ");
+                Scheduler group = new GroupScheduler(policy, groupQuantum, weights);
+                result = group.schedule(processes, contextSwitch);
                 break;
+            }
+            case 12: {
+                double alpha = readDouble(scanner, "Enter Prediction Alpha (0-1): ");
+                long initial = readLong(scanner, "Enter Initial Burst Estimate (0 = mean so far): ");
+                int preempt = readInt(scanner, "Preemptive (SRTF)? (1 = yes, 0 = no): ");
+                Scheduler predictive = new PredictiveSJFScheduler(alpha, initial, preempt == 1);
+                result = predictive.schedule(processes, contextSwitch);
+                break;
+            }
+            case 13: {
+                double percentile = readDouble(scanner, "Enter Quantum Percentile of Remaining Bursts (0.5 = median): ");
+                int minQuantum = readInt(scanner, "Enter Minimum Quantum: ");
+                int maxQuantum = readInt(scanner, "Enter Maximum Quantum: ");
+                double share = readDouble(scanner, "Enter Max Switch Cost Share (1 = no cap): ");
+                Scheduler adaptive = new AdaptiveRoundRobinScheduler(percentile, minQuantum, maxQuantum, share);
+                result = adaptive.schedule(processes, contextSwitch);
+                break;
+            }
             default:
                 System.out.println("Invalid choice.");
         }
@@ -105,13 +244,59 @@ public class Main {
             System.out.println("  " + e);
         }
         System.out.println("\nWaiting Times:");
-        for (Map.Entry<String, Integer> e : result.waitingTimes.entrySet()) {
+        for (Map.Entry<String, Long> e : result.waitingTimes.entrySet()) {
             System.out.println("  " + e.getKey() + ": " + e.getValue());
         }
         System.out.println("\nTurnaround Times:");
-        for (Map.Entry<String, Integer> e : result.turnaroundTimes.entrySet()) {
+        for (Map.Entry<String, Long> e : result.turnaroundTimes.entrySet()) {
             System.out.println("  " + e.getKey() + ": " + e.getValue());
         }
         System.out.printf("\nAverages -> Waiting: %.2f, Turnaround: %.2f\n", result.averageWaiting, result.averageTurnaround);
+        if (result.switchOverhead > 0) {
+            System.out.printf("Context Switch Overhead: %d\n", result.switchOverhead);
+        }
+        if (!result.quantumHistory.isEmpty()) {
+            System.out.println("\nQuantum History:");
+            for (Map.Entry<String, List<Integer>> e : result.quantumHistory.entrySet()) {
+                System.out.println("  " + e.getKey() + ": " + e.getValue());
+            }
+        }
+        if (!result.quantumTrajectory.isEmpty()) {
+            System.out.println("Quantum Trajectory (time:quantum): " + result.quantumTrajectory);
+        }
+        if (result.predictedBursts > 0) {
+            System.out.printf("Burst Prediction Error: %.2f (bias %.2f over %d bursts)\n",
+                    result.predictionError, result.predictionBias, result.predictedBursts);
+        }
+        if (result.ioOverlap > 0) {
+            System.out.printf("CPU Utilization: %.2f, I/O Overlap: %.2f\n", result.cpuUtilization, result.ioOverlap);
+        }
+        if (!result.lateness.isEmpty() || !result.rejected.isEmpty()) {
+            System.out.println("\nLateness (completion - deadline):");
+            for (Map.Entry<String, Long> e : result.lateness.entrySet()) {
+                System.out.println("  " + e.getKey() + ": " + e.getValue());
+            }
+            System.out.printf("Deadline Misses: %d, Max Lateness: %d\n", result.deadlineMisses, result.maxLateness);
+            if (!result.rejected.isEmpty()) {
+                System.out.println("Rejected by admission control: " + result.rejected);
+            }
+        }
+        if (!result.requestedShare.isEmpty()) {
+            System.out.println("\nCPU Share (requested -> achieved):");
+            for (Map.Entry<String, Double> e : result.requestedShare.entrySet()) {
+                System.out.printf("  %s: %.3f -> %.3f\n", e.getKey(), e.getValue(), result.achievedShare.get(e.getKey()));
+            }
+        }
+        if (result.maxVruntimeLag > 0) {
+            System.out.printf("Max vruntime lag: %.2f\n", result.maxVruntimeLag);
+        }
+        if (!result.groups.isEmpty()) {
+            System.out.println("\nGroups (weight, CPU share entitled -> achieved, avg waiting, avg turnaround):");
+            for (Map.Entry<String, ScheduleResult.Group> e : result.groups.entrySet()) {
+                ScheduleResult.Group g = e.getValue();
+                System.out.printf("  %s: %d, %.3f -> %.3f, %.2f, %.2f\n", e.getKey(), g.weight, g.entitledShare,
+                        g.achievedShare, g.averageWaiting, g.averageTurnaround);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Workload stored outside the Java heap, for traces with more processes than
+ * the heap could hold as {@link ProcessSpec} objects.
+ *
+ * Each process is one fixed-width record: its input fields followed by the
+ * per-process results of the last run (remaining time, start, completion,
+ * waiting) and one int the engine uses for its ready queue. Names are kept
+ * UTF-8 encoded in a separate byte area and only decoded on request, so the
+ * heap holds a few bookkeeping arrays whatever the workload size. Records and
+ * names live in fixed-size blocks of either direct buffers or a memory-mapped
+ * scratch file; mapped blocks are paged by the OS and count against neither
+ * {@code -Xmx} nor {@code -XX:MaxDirectMemorySize}, which is what lets a trace
+ * larger than the heap (or than physical memory) run.
+ *
+ * Processes are appended in arrival order, as {@link TraceReader} hands them
+ * out, and are addressed by that position. Only single-burst processes can be
+ * stored. Schedulers with an off-heap engine ({@link RoundRobinScheduler},
+ * {@link SJFScheduler}; see {@link Scheduler#supportsOffHeap}) read and write
+ * the columns directly through {@link Scheduler#schedule(OffHeapWorkload, long)};
+ * a workload is not thread-safe, so runs on one workload must be sequential.
+ */
+public final class OffHeapWorkload implements AutoCloseable {
+    // Record layout, in bytes
+    private static final int ARRIVAL = 0;
+    private static final int BURST = 8;
+    private static final int DEADLINE = 16;
+    private static final int PERIOD = 24;
+    private static final int PRIORITY = 32;
+    private static final int QUANTUM = 36;
+    private static final int TICKETS = 40;
+    private static final int LINK = 44;
+    private static final int NAME = 48;
+    private static final int REMAINING = 56;
+    private static final int START = 64;
+    private static final int COMPLETION = 72;
+    private static final int WAITING = 80;
+    static final int RECORD_BYTES = 88;
+
+    // 2^16 records per block: about 5.5 MB, small enough for tiny workloads
+    private static final int RECORD_BITS = 16;
+    private static final int RECORD_MASK = (1 << RECORD_BITS) - 1;
+    private static final int BLOCK_BYTES = RECORD_BYTES << RECORD_BITS;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+
+    private final FileChannel file; // null for direct buffers
+    private final ArrayList<ByteBuffer> records = new ArrayList<>();
+    private final ArrayList<ByteBuffer> names = new ArrayList<>();
+    private long blocks;
+    private int size;
+    private long nameEnd; // next free byte of the name area
+    private boolean closed;
+
+    private OffHeapWorkload(FileChannel file) {
+        this.file = file;
+    }
+
+    /** Empty workload in direct buffers (limited by {@code -XX:MaxDirectMemorySize}). */
+    public static OffHeapWorkload allocateDirect() {
+        return new OffHeapWorkload(null);
+    }
+
+    /**
+     * Empty workload mapped onto {@code scratch}, which is created or truncated.
+     * The file is working storage for this object only; delete it after closing.
+     */
+    public static OffHeapWorkload map(Path scratch) throws IOException {
+        return new OffHeapWorkload(FileChannel.open(scratch, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /** Append the reader's remaining records; returns how many were added. */
+    public long addAll(TraceReader reader) throws IOException {
+        long added = 0;
+        ProcessSpec p;
+        while ((p = reader.next()) != null) {
+            add(p);
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Append a process. Its arrival must not be earlier than the last one's.
+     *
+     * @throws IllegalArgumentException if the process has I/O bursts, arrives out of
+     *         order, or its name is longer than 65535 bytes
+     */
+    public void add(ProcessSpec spec) {
+        if (closed) throw new IllegalStateException("Workload is closed");
+        if (spec.hasIo()) {
+            throw new IllegalArgumentException("Off-heap workloads hold single-burst processes: " + spec.getProcessName());
+        }
+        if (size > 0 && spec.getArrivalTime() < getArrivalTime(size - 1)) {
+            throw new IllegalArgumentException("Processes must be added in arrival order: " + spec.getProcessName());
+        }
+        if (size == Integer.MAX_VALUE) throw new IllegalStateException("Workload is full");
+        long name = addName(spec.getProcessName());
+        if ((size & RECORD_MASK) == 0) records.add(newBlock());
+        ByteBuffer b = records.get(size >>> RECORD_BITS);
+        int at = (size & RECORD_MASK) * RECORD_BYTES;
+        b.putLong(at + ARRIVAL, spec.getArrivalTime());
+        b.putLong(at + BURST, spec.getBurstTime());
+        b.putLong(at + DEADLINE, spec.getDeadline());
+        b.putLong(at + PERIOD, spec.getPeriod());
+        b.putInt(at + PRIORITY, spec.getPriority());
+        b.putInt(at + QUANTUM, spec.getQuantum());
+        b.putInt(at + TICKETS, spec.getTickets());
+        b.putLong(at + NAME, name);
+        size++;
+        clearResult(size - 1);
+    }
+
+    private long addName(String name) {
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > MAX_NAME_BYTES) throw new IllegalArgumentException("Process name too long: " + name);
+        int need = 2 + utf8.length;
+        // a name never straddles two blocks
+        if ((nameEnd % BLOCK_BYTES) + need > BLOCK_BYTES) nameEnd = (nameEnd / BLOCK_BYTES + 1) * BLOCK_BYTES;
+        while (names.size() <= nameEnd / BLOCK_BYTES) names.add(newBlock());
+        ByteBuffer b = names.get((int) (nameEnd / BLOCK_BYTES));
+        int at = (int) (nameEnd % BLOCK_BYTES);
+        b.putShort(at, (short) utf8.length);
+        for (int i = 0; i < utf8.length; i++) b.put(at + 2 + i, utf8[i]);
+        long offset = nameEnd;
+        nameEnd += need;
+        return offset;
+    }
+
+    private ByteBuffer newBlock() {
+        ByteBuffer b;
+        if (file == null) {
+            b = ByteBuffer.allocateDirect(BLOCK_BYTES);
+        } else {
+            try {
+                b = file.map(FileChannel.MapMode.READ_WRITE, blocks * BLOCK_BYTES, BLOCK_BYTES);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map workload block " + blocks, e);
+            }
+        }
+        blocks++;
+        return b.order(ByteOrder.nativeOrder());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Bytes of off-heap storage in use (whole blocks). */
+    public long offHeapBytes() {
+        return blocks * BLOCK_BYTES;
+    }
+
+    // ---- input columns ----
+
+    public String getProcessName(int i) {
+        long offset = records(i).getLong(at(i) + NAME);
+        ByteBuffer b = names.get((int) (offset / BLOCK_BYTES));
+        int at = (int) (offset % BLOCK_BYTES);
+        byte[] utf8 = new byte[b.getShort(at) & 0xFFFF];
+        for (int k = 0; k < utf8.length; k++) utf8[k] = b.get(at + 2 + k);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    public long getArrivalTime(int i) { return records(i).getLong(at(i) + ARRIVAL); }
+    public long getBurstTime(int i) { return records(i).getLong(at(i) + BURST); }
+    public int getPriority(int i) { return records(i).getInt(at(i) + PRIORITY); }
+
+    /** Input fields of process {@code i} as a heap object, e.g. to inspect or re-run it. */
+    public ProcessSpec getSpec(int i) {
+        ByteBuffer b = records(i);
+        int at = at(i);
+        return new ProcessSpec(getProcessName(i), b.getLong(at + ARRIVAL), b.getLong(at + BURST),
+                b.getInt(at + PRIORITY), b.getInt(at + QUANTUM), b.getLong(at + DEADLINE), b.getLong(at + PERIOD),
+                b.getInt(at + TICKETS));
+    }
+
+    // ---- results of the last run (-1 until the process completes) ----
+
+    public long getStartTime(int i) { return records(i).getLong(at(i) + START); }
+    public long getCompletionTime(int i) { return records(i).getLong(at(i) + COMPLETION); }
+    public long getWaitingTime(int i) { return records(i).getLong(at(i) + WAITING); }
+
+    public long getTurnaroundTime(int i) {
+        long completion = getCompletionTime(i);
+        return completion < 0 ? -1 : completion - getArrivalTime(i);
+    }
+
+    // ---- engine access ----
+
+    /** Clear every process's results and load its remaining time, before a run. */
+    void resetResults() {
+        if (closed) throw new IllegalStateException("Workload is closed");
+        for (int i = 0; i < size; i++) clearResult(i);
+    }
+
+    private void clearResult(int i) {
+        ByteBuffer b = records(i);
+        int at = at(i);
+        b.putLong(at + REMAINING, b.getLong(at + BURST));
+        b.putLong(at + START, -1);
+        b.putLong(at + COMPLETION, -1);
+        b.putLong(at + WAITING, -1);
+        b.putInt(at + LINK, -1);
+    }
+
+    long remaining(int i) { return records(i).getLong(at(i) + REMAINING); }
+    void setRemaining(int i, long remaining) { records(i).putLong(at(i) + REMAINING, remaining); }
+    void setStartTime(int i, long time) { records(i).putLong(at(i) + START, time); }
+
+    /** Record completion at {@code time}; waiting is whatever the turnaround did not spend running. */
+    void complete(int i, long time) {
+        ByteBuffer b = records(i);
+        int at = at(i);
+        b.putLong(at + COMPLETION, time);
+        b.putLong(at + WAITING, time - b.getLong(at + ARRIVAL) - b.getLong(at + BURST));
+    }
+
+    /** Per-process int an engine may use for its ready queue (a next pointer, a heap slot). */
+    int link(int i) { return records(i).getInt(at(i) + LINK); }
+    void setLink(int i, int value) { records(i).putInt(at(i) + LINK, value); }
+
+    private ByteBuffer records(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Process " + i + " of " + size);
+        return records.get(i >>> RECORD_BITS);
+    }
+
+    private static int at(int i) {
+        return (i & RECORD_MASK) * RECORD_BYTES;
+    }
+
+    /**
+     * Drop the buffers and close the scratch file. Direct and mapped memory is
+     * returned once the buffers are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        records.clear();
+        names.clear();
+        size = 0;
+        if (file != null) file.close();
+    }
+}
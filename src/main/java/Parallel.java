@@ -0,0 +1,36 @@
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Data-parallel loops for the phases around a simulation's dispatch loop
+ * (copying the workload, sorting it by arrival, reducing the results), which
+ * touch every process independently. Below {@link #THRESHOLD} elements they
+ * run inline, since forking costs more than the work; above it they run on
+ * the common fork-join pool, which concurrent simulations share.
+ */
+final class Parallel {
+    static final int THRESHOLD = 1 << 14;
+
+    private Parallel() {
+    }
+
+    /** Run {@code body} for 0..n-1, in no particular order; the calls must be independent. */
+    static void forRange(int n, IntConsumer body) {
+        if (n < THRESHOLD) {
+            for (int i = 0; i < n; i++) body.accept(i);
+        } else {
+            IntStream.range(0, n).parallel().forEach(body);
+        }
+    }
+
+    /** Sum of {@code f} over 0..n-1; exact, so the result does not depend on the split. */
+    static long sum(int n, IntToLongFunction f) {
+        if (n < THRESHOLD) {
+            long total = 0;
+            for (int i = 0; i < n; i++) total += f.applyAsLong(i);
+            return total;
+        }
+        return IntStream.range(0, n).parallel().mapToLong(f).sum();
+    }
+}
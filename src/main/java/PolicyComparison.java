@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Side-by-side comparison of several scheduling policies on one workload.
+ *
+ * The workload is loaded once and shared: every policy runs on its own
+ * scheduler instance against the same immutable {@link ProcessSpec} array,
+ * concurrently on a thread pool. Each run is reduced to a handful of metrics
+ * as soon as it finishes, so only one full {@link ScheduleResult} per thread is
+ * alive at a time. For every metric (all are lower-is-better) the report names
+ * the winning policy, or all of them when tied.
+ */
+public final class PolicyComparison {
+    /** Compared metrics, in report order. */
+    public enum Metric {
+        AVG_WAITING("avg wait"),
+        P50_WAITING("p50 wait"),
+        P95_WAITING("p95 wait"),
+        P99_WAITING("p99 wait"),
+        MAX_WAITING("max wait"),
+        AVG_TURNAROUND("avg turnaround"),
+        P50_TURNAROUND("p50 turnaround"),
+        P95_TURNAROUND("p95 turnaround"),
+        P99_TURNAROUND("p99 turnaround"),
+        MAX_TURNAROUND("max turnaround"),
+        CONTEXT_SWITCHES("context switches"),
+        SWITCH_OVERHEAD("switch overhead");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /** Outcome of one policy. */
+    public static final class Entry {
+        public final String scheduler;
+        public String error; // null when the run succeeded
+        public int completed;
+        public int dispatches;
+        public long elapsedNanos;
+        // Engine phase times, indexed by ScheduleResult.Phase ordinal
+        public final long[] phaseNanos = new long[ScheduleResult.Phase.values().length];
+        private final double[] values = new double[Metric.values().length];
+
+        Entry(String scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        public double get(Metric metric) {
+            return values[metric.ordinal()];
+        }
+    }
+
+    /** Sees each full result before it is reduced to metrics, on the thread that ran it. */
+    public interface ResultHandler {
+        void accept(String scheduler, ScheduleResult result) throws IOException;
+    }
+
+    private final List<Entry> entries;
+    private final TimeScale timeUnit;
+    private final int processes;
+    private final long elapsedNanos;
+
+    private PolicyComparison(List<Entry> entries, TimeScale timeUnit, int processes, long elapsedNanos) {
+        this.entries = entries;
+        this.timeUnit = timeUnit;
+        this.processes = processes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Run every scheduler type (names as in {@link TestRunner#createScheduler})
+     * over {@code workload}, configured from {@code parameters}, at most
+     * {@code threads} at a time. {@code handler}, if not null, gets every
+     * successful result, e.g. to export it.
+     */
+    public static PolicyComparison run(ProcessSpec[] workload, List<String> schedulers,
+                                       TestCaseLoader.TestCase parameters, int threads, ResultHandler handler)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, schedulers.size())));
+        try {
+            List<Future<Entry>> futures = new ArrayList<>();
+            for (String type : schedulers) {
+                futures.add(pool.submit(() -> runOne(type, workload, parameters, handler)));
+            }
+            List<Entry> entries = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    entries.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Entry failed = new Entry(schedulers.get(i));
+                    failed.error = String.valueOf(e.getCause());
+                    entries.add(failed);
+                }
+            }
+            return new PolicyComparison(entries, parameters.timeUnit, workload.length, System.nanoTime() - start);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Run on all available processors. */
+    public static PolicyComparison run(ProcessSpec[] workload, List<String> schedulers,
+                                       TestCaseLoader.TestCase parameters) throws InterruptedException {
+        return run(workload, schedulers, parameters, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    private static Entry runOne(String type, ProcessSpec[] workload, TestCaseLoader.TestCase parameters,
+                                ResultHandler handler) {
+        Entry entry = new Entry(type);
+        Scheduler scheduler = TestRunner.createScheduler(type, parameters);
+        if (scheduler == null) {
+            entry.error = "Unknown scheduler: " + type;
+            return entry;
+        }
+        long start = System.nanoTime();
+        ScheduleResult r;
+        try {
+            r = parameters.schedule(scheduler, workload);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            entry.error = e.toString();
+            return entry;
+        }
+        entry.elapsedNanos = System.nanoTime() - start;
+        System.arraycopy(r.phaseNanos, 0, entry.phaseNanos, 0, entry.phaseNanos.length);
+        if (handler != null) {
+            r.timeUnit = parameters.timeUnit;
+            try {
+                handler.accept(type, r);
+            } catch (IOException e) {
+                entry.error = "Could not hand over result: " + e.getMessage();
+                return entry;
+            }
+        }
+        entry.completed = r.waitingTimes.size();
+        entry.dispatches = r.executionOrder.size();
+
+        long[] waiting = r.waitingTimes.toLongArray();
+        long[] turnaround = r.turnaroundTimes.toLongArray();
+        // sequential below the JDK's own parallel threshold
+        Arrays.parallelSort(waiting);
+        Arrays.parallelSort(turnaround);
+        double[] v = entry.values;
+        v[Metric.AVG_WAITING.ordinal()] = r.averageWaiting;
+        v[Metric.P50_WAITING.ordinal()] = percentile(waiting, 0.50);
+        v[Metric.P95_WAITING.ordinal()] = percentile(waiting, 0.95);
+        v[Metric.P99_WAITING.ordinal()] = percentile(waiting, 0.99);
+        v[Metric.MAX_WAITING.ordinal()] = percentile(waiting, 1.0);
+        v[Metric.AVG_TURNAROUND.ordinal()] = r.averageTurnaround;
+        v[Metric.P50_TURNAROUND.ordinal()] = percentile(turnaround, 0.50);
+        v[Metric.P95_TURNAROUND.ordinal()] = percentile(turnaround, 0.95);
+        v[Metric.P99_TURNAROUND.ordinal()] = percentile(turnaround, 0.99);
+        v[Metric.MAX_TURNAROUND.ordinal()] = percentile(turnaround, 1.0);
+        v[Metric.CONTEXT_SWITCHES.ordinal()] = contextSwitches(r.executionOrder);
+        v[Metric.SWITCH_OVERHEAD.ordinal()] = r.switchOverhead;
+        return entry;
+    }
+
+    // Nearest-rank percentile of sorted values; 0 when empty
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    // Dispatches that hand the CPU to a different process than the previous one
+    private static int contextSwitches(List<String> order) {
+        int switches = 0;
+        for (int i = 1; i < order.size(); i++) {
+            if (!order.get(i).equals(order.get(i - 1))) switches++;
+        }
+        return switches;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /** Policies with the lowest value of {@code metric}; empty if no run succeeded. */
+    public List<String> winners(Metric metric) {
+        double best = Double.POSITIVE_INFINITY;
+        for (Entry e : entries) {
+            if (e.succeeded()) best = Math.min(best, e.get(metric));
+        }
+        List<String> winners = new ArrayList<>();
+        for (Entry e : entries) {
+            if (e.succeeded() && e.get(metric) == best) winners.add(e.scheduler);
+        }
+        return winners;
+    }
+
+    /** Wall time of the whole comparison; compare with the sum of {@link Entry#elapsedNanos}. */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("processes", processes);
+        if (timeUnit != TimeScale.TICKS) json.put("timeUnit", timeUnit.symbol());
+        json.put("elapsedMillis", elapsedNanos / 1e6);
+        JSONArray runs = new JSONArray();
+        for (Entry e : entries) {
+            JSONObject run = new JSONObject().put("scheduler", e.scheduler);
+            if (!e.succeeded()) {
+                runs.put(run.put("error", e.error));
+                continue;
+            }
+            run.put("completed", e.completed);
+            run.put("dispatches", e.dispatches);
+            run.put("elapsedMillis", e.elapsedNanos / 1e6);
+            JSONObject phases = new JSONObject();
+            for (ScheduleResult.Phase phase : ScheduleResult.Phase.values()) {
+                phases.put(phase.name().toLowerCase(Locale.ROOT), e.phaseNanos[phase.ordinal()] / 1e6);
+            }
+            run.put("phaseMillis", phases);
+            for (Metric m : Metric.values()) {
+                run.put(key(m), e.get(m));
+            }
+            runs.put(run);
+        }
+        json.put("runs", runs);
+        JSONObject winners = new JSONObject();
+        for (Metric m : Metric.values()) {
+            winners.put(key(m), new JSONArray(winners(m)));
+        }
+        json.put("winners", winners);
+        return json;
+    }
+
+    // camelCase JSON key of a metric, e.g. p95Waiting
+    private static String key(Metric m) {
+        String[] words = m.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder sb = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            sb.append(Character.toUpperCase(words[i].charAt(0))).append(words[i], 1, words[i].length());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Comparison of %d policies on %d processes (%.1f ms wall)%n",
+                entries.size(), processes, elapsedNanos / 1e6));
+        if (timeUnit != TimeScale.TICKS) sb.append("Times in ").append(timeUnit.symbol()).append('\n');
+        sb.append(String.format("%-18s", "metric"));
+        for (Entry e : entries) {
+            sb.append(String.format("%14s", e.scheduler));
+        }
+        sb.append(String.format("  %s%n", "winner"));
+        for (Metric m : Metric.values()) {
+            sb.append(String.format("%-18s", m.label()));
+            for (Entry e : entries) {
+                sb.append(e.succeeded() ? String.format("%14.2f", e.get(m)) : String.format("%14s", "-"));
+            }
+            sb.append("  ").append(String.join(", ", winners(m))).append('\n');
+        }
+        sb.append(String.format("%-18s", "dispatches"));
+        for (Entry e : entries) {
+            sb.append(String.format("%14d", e.dispatches));
+        }
+        sb.append('\n').append(String.format("%-18s", "run time (ms)"));
+        for (Entry e : entries) {
+            sb.append(String.format("%14.1f", e.elapsedNanos / 1e6));
+        }
+        sb.append('\n');
+        for (ScheduleResult.Phase phase : ScheduleResult.Phase.values()) {
+            sb.append(String.format("%-18s", "  " + phase.name().toLowerCase(Locale.ROOT)));
+            for (Entry e : entries) {
+                sb.append(String.format("%14.1f", e.phaseNanos[phase.ordinal()] / 1e6));
+            }
+            sb.append('\n');
+        }
+        for (Entry e : entries) {
+            if (!e.succeeded()) sb.append(e.scheduler).append(" failed: ").append(e.error).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,266 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Shortest job first without knowing burst lengths in advance.
+ *
+ * {@link SJFScheduler} orders by the exact remaining burst, which a real
+ * kernel never knows. This scheduler orders by a prediction instead: each
+ * process's next CPU burst is estimated by the exponential average
+ * {@code tau' = alpha * burst + (1 - alpha) * tau} over its own completed
+ * bursts, so multi-burst (recurring) processes converge on their pattern. A
+ * process with no history yet starts at {@code initialEstimate}, or, when that
+ * is 0, at the mean of all bursts completed so far in the run. While a burst
+ * runs its predicted remainder is the estimate minus the time used, never
+ * below 0.
+ *
+ * Preemptive mode (SRTF) re-checks at arrivals and I/O completions only, the
+ * sole moments a queued prediction can beat the running one, so there is no
+ * per-tick work. The simulation itself still uses the true burst lengths to
+ * decide when a burst ends; the policy never reads them. Every finished CPU
+ * burst is scored against the prediction it was scheduled with, reported as
+ * {@link ScheduleResult#predictionError} and {@link ScheduleResult#predictionBias}.
+ * Empty CPU bursts are never queued or scored: the process goes straight on
+ * to its I/O, or completes on admission.
+ */
+public class PredictiveSJFScheduler implements Scheduler {
+    private final double alpha;
+    private final long initialEstimate;
+    private final boolean preemptive;
+
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private double[] estimate = new double[0]; // predicted length of the current burst, by workload position
+    private long[] used = new long[0];         // CPU time used in the current burst, by workload position
+    private double[] key = new double[0];      // predicted remainder when queued, by workload position
+    private final PriorityQueue<Process> readyQueue = new PriorityQueue<>((a, b) -> {
+        int c = Double.compare(key[a.getPosition()], key[b.getPosition()]);
+        if (c != 0) return c;
+        if (a.getArrivalTime() != b.getArrivalTime()) return Long.compare(a.getArrivalTime(), b.getArrivalTime());
+        return Integer.compare(a.getPosition(), b.getPosition());
+    });
+    private final Consumer<Process> enqueue = this::enqueue;
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("PredictiveSJF");
+    // Bursts completed in the current run, for the estimate of processes without history
+    private long observedTotal;
+    private long observedBursts;
+    private long now;      // time of the arrivals and I/O returns being queued
+    private int finished;  // processes completed so far in the current run
+
+    /**
+     * @param alpha           weight of the latest burst in the average, in [0, 1]
+     * @param initialEstimate first prediction for every process, or 0 for the run's mean burst so far
+     * @param preemptive      preempt when a ready process is predicted to finish sooner (SRTF)
+     */
+    public PredictiveSJFScheduler(double alpha, long initialEstimate, boolean preemptive) {
+        if (!(alpha >= 0 && alpha <= 1)) throw new IllegalArgumentException("Prediction alpha must be in [0, 1]");
+        if (initialEstimate < 0) throw new IllegalArgumentException("Initial burst estimate must not be negative");
+        this.alpha = alpha;
+        this.initialEstimate = initialEstimate;
+        this.preemptive = preemptive;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] input, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        List<Process> processList = pool.copyOf(input);
+        int n = processList.size();
+        if (estimate.length < n) {
+            estimate = new double[n];
+            used = new long[n];
+            key = new double[n];
+        }
+        Arrays.fill(estimate, 0, n, -1); // -1 = no prediction yet
+        Arrays.fill(used, 0, n, 0);
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        pool.sortByArrival(processList);
+        result.endPhase(ScheduleResult.Phase.SORT);
+        devices.reset();
+        readyQueue.clear();
+        observedTotal = 0;
+        observedBursts = 0;
+        finished = 0;
+
+        long currentTime = 0;
+        double absError = 0, signedError = 0;
+        int nextArrival = 0;
+        Process currentProcess = null;
+        Process lastProcess = null;
+        boolean recheck = false; // queue changed during a context switch: run one unit, then re-check
+
+        while (finished < n) {
+            nextArrival = admit(processList, nextArrival, currentTime);
+
+            // A ready process predicted to finish before the running one takes the CPU
+            if (preemptive && currentProcess != null && !readyQueue.isEmpty()
+                    && key[readyQueue.peek().getPosition()] < remainder(currentProcess)) {
+                enqueue(currentProcess);
+                recorder.record(currentTime, currentProcess.getProcessName(), FlightRecorder.Event.PREEMPT,
+                        readyQueue.size(), FlightRecorder.Cause.SHORTER_JOB);
+                currentProcess = null;
+            }
+
+            if (currentProcess == null && !readyQueue.isEmpty()) {
+                Process selected = readyQueue.poll();
+                if (lastProcess != null && selected != lastProcess) {
+                    int queued = readyQueue.size();
+                    long cost = switchCost.cost(lastProcess.getPosition(), selected.getPosition(), currentTime);
+                    result.switchOverhead += cost;
+                    long switchEnd = currentTime + cost;
+                    while (currentTime < switchEnd) {
+                        currentTime = Math.min(switchEnd, nextEvent(processList, nextArrival));
+                        nextArrival = admit(processList, nextArrival, currentTime);
+                    }
+                    recheck = readyQueue.size() > queued;
+                }
+                currentProcess = selected;
+                if (currentProcess.getStartTime() == -1) currentProcess.setStartTime(currentTime);
+                if (currentProcess != lastProcess) {
+                    result.executionOrder.add(currentProcess.getProcessName());
+                    lastProcess = currentProcess;
+                    recorder.record(currentTime, currentProcess.getProcessName(), FlightRecorder.Event.DISPATCH,
+                            readyQueue.size(), FlightRecorder.Cause.SHORTEST_PREDICTED);
+                }
+            }
+
+            if (currentProcess != null) {
+                long run = Math.min(currentProcess.getRemainingTime(), nextEvent(processList, nextArrival) - currentTime);
+                run = recheck ? 1 : Math.max(run, 1);
+                recheck = false;
+                currentProcess.consumeCpu(run);
+                devices.cpuBusy(currentTime, currentTime + run);
+                currentTime += run;
+                int pos = currentProcess.getPosition();
+                used[pos] += run;
+
+                if (currentProcess.getRemainingTime() == 0) {
+                    // Burst over: score the prediction, then fold the burst into the average
+                    long burst = used[pos];
+                    absError += Math.abs(estimate[pos] - burst);
+                    signedError += estimate[pos] - burst;
+                    estimate[pos] = alpha * burst + (1 - alpha) * estimate[pos];
+                    used[pos] = 0;
+                    observedTotal += burst;
+                    observedBursts++;
+                }
+                if (currentProcess.hasPendingIo()) {
+                    devices.submit(currentProcess, currentTime);
+                    recorder.record(currentTime, currentProcess.getProcessName(), FlightRecorder.Event.BLOCK,
+                            readyQueue.size(), FlightRecorder.Cause.IO);
+                    currentProcess = null;
+                } else if (currentProcess.isCompleted()) {
+                    complete(currentProcess, currentTime);
+                    currentProcess = null;
+                }
+            } else {
+                recorder.record(currentTime, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                // nothing pending once the last arrivals completed on admission
+                if (finished < n) currentTime = nextEvent(processList, nextArrival);
+            }
+        }
+
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        double totalWait = 0, totalTurn = 0;
+        for (Process p : processList) {
+            long turnaround = p.getCompletionTime() - p.getArrivalTime();
+            long waiting = turnaround - p.getBurstTime() - p.getBlockedTime();
+            result.waitingTimes.putLong(p.getProcessName(), waiting);
+            result.turnaroundTimes.putLong(p.getProcessName(), turnaround);
+            totalWait += waiting;
+            totalTurn += turnaround;
+        }
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        result.predictedBursts = observedBursts;
+        result.predictionError = observedBursts == 0 ? 0 : absError / observedBursts;
+        result.predictionBias = observedBursts == 0 ? 0 : signedError / observedBursts;
+        devices.report(result, currentTime);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+        return result;
+    }
+
+    // Predicted CPU time left in p's current burst
+    private double remainder(Process p) {
+        int pos = p.getPosition();
+        return Math.max(0, estimate[pos] - used[pos]);
+    }
+
+    private void complete(Process p, long time) {
+        p.setCompletionTime(time);
+        finished++;
+        recorder.complete(time, p.getProcessName(), readyQueue.size(),
+                time - p.getArrivalTime() - p.getBurstTime() - p.getBlockedTime(), time - p.getArrivalTime());
+    }
+
+    // Queue p under its predicted remainder, which stays fixed while it waits
+    private void enqueue(Process p) {
+        if (p.getRemainingTime() <= 0) {
+            // an empty CPU burst: straight on to its I/O, or done without ever being queued or scored
+            if (p.hasPendingIo()) {
+                devices.submit(p, now);
+            } else {
+                complete(p, now);
+            }
+            return;
+        }
+        int pos = p.getPosition();
+        if (estimate[pos] < 0) {
+            estimate[pos] = initialEstimate > 0 ? initialEstimate
+                    : observedBursts == 0 ? 0 : (double) observedTotal / observedBursts;
+        }
+        key[pos] = remainder(p);
+        readyQueue.add(p);
+    }
+
+    // Queue every process arriving by currentTime, then those finishing I/O; returns the new arrival index
+    private int admit(List<Process> processList, int next, long currentTime) {
+        now = currentTime;
+        while (next < processList.size() && processList.get(next).getArrivalTime() <= currentTime) {
+            enqueue(processList.get(next++));
+        }
+        devices.advance(currentTime, enqueue);
+        return next;
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processList, int next) {
+        long arrival = next < processList.size() ? processList.get(next).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        readyQueue.clear();
+        estimate = new double[0];
+        used = new long[0];
+        key = new double[0];
+    }
+}
@@ -1,113 +1,153 @@
 import java.util.*;
+import java.util.function.Consumer;
 
 public class PriorityScheduler implements Scheduler {
-    private final int agingInterval;
+    private final long agingInterval;
 
-    public PriorityScheduler(int agingInterval) {
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("Priority");
+    // The run's processes in arrival order; the ids below index into it
+    private List<Process> processes = Collections.emptyList();
+    // Current priority and arrival by id, mirrored so ordering reads no objects
+    private int[] priority = new int[0];
+    private long[] arrival = new long[0];
+    // Arrived, unfinished processes not blocked on I/O (the running one included), best
+    // first: lower numeric priority, then earlier arrival, then name; equals keep arrival order
+    private final IntHeap ready = new IntHeap((a, b) -> {
+        if (priority[a] != priority[b]) return Integer.compare(priority[a], priority[b]);
+        if (arrival[a] != arrival[b]) return Long.compare(arrival[a], arrival[b]);
+        int c = processes.get(a).getProcessName().compareTo(processes.get(b).getProcessName());
+        return c != 0 ? c : Integer.compare(a, b);
+    });
+    // Next aging boundary of every waiting process that can still gain a level
+    private final TimingWheel aging = new TimingWheel();
+    private long ioReturnTime;
+    private int finished; // processes completed so far in the current run
+    // processes finishing I/O become ready again; their aging clock restarts then
+    private final Consumer<Process> restartAging = p -> {
+        p.setLastAgingTime(ioReturnTime);
+        makeReady(p, ioReturnTime);
+    };
+
+    public PriorityScheduler(long agingInterval) {
         this.agingInterval = agingInterval;
     }
 
     @Override
     public ScheduleResult schedule(Process[] inputProcesses, int contextSwitch) {
-        // Create defensive copies of processes
-        List<Process> processes = new ArrayList<>();
-        Map<String, Integer> lastAgingTime = new HashMap<>();
-
-        for (Process p : inputProcesses) {
-            Process copy = new Process(p.getProcessName(), p.getArrivalTime(),
-                    p.getBurstTime(), p.getPriority(), p.getQuantum());
-            processes.add(copy);
-            lastAgingTime.put(copy.getProcessName(), copy.getArrivalTime());
-        }
+        return schedule(inputProcesses, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] inputProcesses, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(inputProcesses), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] inputProcesses, int contextSwitch, ScheduleResult result) {
+        return schedule(inputProcesses, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] inputProcesses, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(inputProcesses.length, result,
+                () -> simulate(inputProcesses, switchCost.start(inputProcesses), result));
+    }
 
-        ScheduleResult result = new ScheduleResult();
+    private ScheduleResult simulate(ProcessSpec[] inputProcesses, ContextSwitchCost.Run switchCost,
+                                    ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        // Runtime state lives in pooled processes, never in the workload
+        List<Process> processes = pool.copyOf(inputProcesses);
+        Parallel.forRange(processes.size(), i -> {
+            Process copy = processes.get(i);
+            copy.setLastAgingTime(copy.getArrivalTime());
+        });
 
-        int time = 0;
-        int finished = 0;
+        devices.reset();
+        this.processes = processes;
+        ready.clear();
+        aging.reset(0);
+        aging.ensureCapacity(processes.size());
+
+        long time = 0;
+        finished = 0;
+        int arrived = 0; // processes before this index have arrived by 'time'
         Process current = null;
+        result.endPhase(ScheduleResult.Phase.PREPARE);
 
         // sort by arrival to make arrivals predictable
-        processes.sort(Comparator.comparingInt(Process::getArrivalTime));
-
-        // helper comparator: lower numeric priority means higher priority
-        Comparator<Process> prioCmp = Comparator
-                .comparingInt((Process p) -> p.getPriority())
-                .thenComparingInt(Process::getArrivalTime)
-                .thenComparing(Process::getProcessName);
+        pool.sortByArrival(processes);
+        if (priority.length < processes.size()) {
+            priority = new int[processes.size()];
+            arrival = new long[processes.size()];
+        }
+        Parallel.forRange(processes.size(), i -> {
+            Process p = processes.get(i);
+            p.setIndex(i);
+            priority[i] = p.getPriority();
+            arrival[i] = p.getArrivalTime();
+        });
+        result.endPhase(ScheduleResult.Phase.SORT);
 
         // previous running process name to record executionOrder only on switches
         String prevRunning = null;
+        // after a second context switch the choice is not re-evaluated: run one unit, then re-check
+        boolean recheck;
 
+        // Preemptive, but time moves from event to event: the choice of process can only
+        // change at an arrival, an I/O completion, a burst end or when a waiting process ages
         while (finished < processes.size()) {
 
+            ioReturnTime = time;
+            devices.advance(time, restartAging);
+            arrived = admit(arrived, time);
+
             // apply aging for waiting processes
-            for (Process p : processes) {
-                if (p.getRemainingTime() > 0 && p.getArrivalTime() <= time) {
-                    int lastAge = lastAgingTime.get(p.getProcessName());
-                    while (agingInterval > 0 && (time - lastAge) >= agingInterval) {
-                        if (p.getPriority() > 1) {
-                            p.setPriority(p.getPriority() - 1);
-                        }
-                        lastAge += agingInterval;
-                        lastAgingTime.put(p.getProcessName(), lastAge);
-                    }
-                }
-            }
+            ageDue(time);
 
-            // build ready list
-            List<Process> ready = new ArrayList<>();
-            for (Process p : processes) {
-                if (p.getArrivalTime() <= time && p.getRemainingTime() > 0) {
-                    ready.add(p);
-                }
-            }
+            // pick highest priority (lowest numeric) among ready processes
+            Process next = highestReady();
 
-            if (ready.isEmpty()) {
-                time++;
+            if (next == null) {
+                // CPU idle: jump to the next arrival or I/O completion
+                recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                // nothing pending once the last arrivals completed on admission
+                if (finished < processes.size()) time = nextEvent(processes, arrived);
                 continue;
             }
 
-            // pick highest priority (lowest numeric)
-            ready.sort(prioCmp);
-            Process next = ready.get(0);
+            recheck = false;
 
             // if switching, account for context switch time (simulate aging during it)
             if (current != null && !current.getProcessName().equals(next.getProcessName())) {
+                if (prevRunning != null) {
+                    recorder.record(time, current.getProcessName(), FlightRecorder.Event.PREEMPT, arrived - finished,
+                            FlightRecorder.Cause.HIGHER_PRIORITY);
+                }
 
                 // Record the process we INTEND to switch to
                 if (prevRunning == null || !prevRunning.equals(next.getProcessName())) {
                     result.executionOrder.add(next.getProcessName());
                     prevRunning = next.getProcessName();
+                    recorder.record(time, prevRunning, FlightRecorder.Event.DISPATCH, arrived - finished,
+                            FlightRecorder.Cause.HIGHEST_PRIORITY);
                 }
 
-                for (int i = 0; i < contextSwitch; i++) {
-                    time++;
-                    // aging during context switch - all waiting processes can age
-                    for (Process p : processes) {
-                        if (p.getRemainingTime() > 0 && p.getArrivalTime() <= time
-                                && !p.getProcessName().equals(next.getProcessName())) {
-                            int lastAge = lastAgingTime.get(p.getProcessName());
-                            while (agingInterval > 0 && (time - lastAge) >= agingInterval) {
-                                if (p.getPriority() > 1) {
-                                    p.setPriority(p.getPriority() - 1);
-                                }
-                                lastAge += agingInterval;
-                                lastAgingTime.put(p.getProcessName(), lastAge);
-                            }
-                        }
-                    }
-                }
+                // aging during context switch - all waiting processes except the incoming one can age
+                hold(next);
+                long cost = switchCost.cost(current.getPosition(), next.getPosition(), time);
+                result.switchOverhead += cost;
+                time += cost;
+                arrived = admit(arrived, time);
+                ageDue(time);
 
                 // re-evaluate after context switch - if priority changed, do another CS
-                ready.clear();
-                for (Process p : processes) {
-                    if (p.getArrivalTime() <= time && p.getRemainingTime() > 0) {
-                        ready.add(p);
-                    }
-                }
-                if (!ready.isEmpty()) {
-                    ready.sort(prioCmp);
-                    Process reevaluated = ready.get(0);
+                Process reevaluated = highestReady();
+                if (reevaluated != null) {
 
                     // If the highest priority changed during CS, need ANOTHER context switch
                     if (!reevaluated.getProcessName().equals(next.getProcessName())) {
@@ -116,25 +156,19 @@ public class PriorityScheduler implements Scheduler {
                         if (!prevRunning.equals(reevaluated.getProcessName())) {
                             result.executionOrder.add(reevaluated.getProcessName());
                             prevRunning = reevaluated.getProcessName();
+                            recorder.record(time, prevRunning, FlightRecorder.Event.DISPATCH, arrived - finished,
+                                    FlightRecorder.Cause.HIGHER_PRIORITY);
                         }
 
-                        for (int i = 0; i < contextSwitch; i++) {
-                            time++;
-                            // aging during the second context switch
-                            for (Process p : processes) {
-                                if (p.getRemainingTime() > 0 && p.getArrivalTime() <= time
-                                        && !p.getProcessName().equals(reevaluated.getProcessName())) {
-                                    int lastAge = lastAgingTime.get(p.getProcessName());
-                                    while (agingInterval > 0 && (time - lastAge) >= agingInterval) {
-                                        if (p.getPriority() > 1) {
-                                            p.setPriority(p.getPriority() - 1);
-                                        }
-                                        lastAge += agingInterval;
-                                        lastAgingTime.put(p.getProcessName(), lastAge);
-                                    }
-                                }
-                            }
-                        }
+                        // aging during the second context switch; the process passed over waits again
+                        startAging(next);
+                        hold(reevaluated);
+                        cost = switchCost.cost(next.getPosition(), reevaluated.getPosition(), time);
+                        result.switchOverhead += cost;
+                        time += cost;
+                        arrived = admit(arrived, time);
+                        ageDue(time);
+                        recheck = true;
                     }
                     next = reevaluated;
                 }
@@ -143,45 +177,156 @@ public class PriorityScheduler implements Scheduler {
                 if (prevRunning == null || !prevRunning.equals(next.getProcessName())) {
                     result.executionOrder.add(next.getProcessName());
                     prevRunning = next.getProcessName();
+                    recorder.record(time, prevRunning, FlightRecorder.Event.DISPATCH, arrived - finished,
+                            FlightRecorder.Cause.HIGHEST_PRIORITY);
                 }
             }
 
-            // run one time unit (preemptive, so check each tick)
+            // run until the next event that could preempt it or its burst ends; it does not age meanwhile
             current = next;
+            hold(current);
             if (current.getStartTime() == -1) {
                 current.setStartTime(time);
             }
-            current.setRemainingTime(current.getRemainingTime() - 1);
+            long run = Math.min(current.getRemainingTime(), nextEvent(processes, arrived) - time);
+            run = recheck ? 1 : Math.max(1, Math.min(run, aging.peekDeadline() - time));
+            current.setRemainingTime(current.getRemainingTime() - run);
             // mark that it was just run (reset its last aging time)
-            lastAgingTime.put(current.getProcessName(), time + 1);
-            time++;
+            current.setLastAgingTime(time + run);
+            devices.cpuBusy(time, time + run);
+            time += run;
 
-            if (current.getRemainingTime() == 0) {
+            if (current.hasPendingIo()) {
+                // CPU burst done: block on the I/O device (no longer in the ready list)
+                ready.remove(current.getIndex());
+                devices.submit(current, time);
+                recorder.record(time, current.getProcessName(), FlightRecorder.Event.BLOCK, arrived - finished,
+                        FlightRecorder.Cause.IO);
+                prevRunning = null;
+            } else if (current.getRemainingTime() == 0) {
                 current.setCompletionTime(time);
+                ready.remove(current.getIndex());
                 finished++;
+                recorder.complete(time, current.getProcessName(), arrived - finished,
+                        time - current.getArrivalTime() - current.getBurstTime() - current.getBlockedTime(),
+                        time - current.getArrivalTime());
                 // reset prevRunning so next scheduling records new start
                 prevRunning = null;
+            } else {
+                // back to waiting (and aging) unless it is picked again
+                startAging(current);
             }
         }
 
-        // calculate times
-        double totalWT = 0;
-        double totalTAT = 0;
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
 
-        for (Process p : processes) {
-            int tat = p.getCompletionTime() - p.getArrivalTime();
-            int wt = tat - p.getBurstTime();
+        // calculate times; the per-name maps fill in order, the totals are reduced in parallel
+        for (int i = 0; i < processes.size(); i++) {
+            Process p = processes.get(i);
+            long tat = p.getCompletionTime() - p.getArrivalTime();
+            result.turnaroundTimes.putLong(p.getProcessName(), tat);
+            result.waitingTimes.putLong(p.getProcessName(), tat - p.getBurstTime() - p.getBlockedTime());
+        }
+        long totalTAT = Parallel.sum(processes.size(), i -> {
+            Process p = processes.get(i);
+            return p.getCompletionTime() - p.getArrivalTime();
+        });
+        long totalWT = totalTAT - Parallel.sum(processes.size(), i -> {
+            Process p = processes.get(i);
+            return p.getBurstTime() + p.getBlockedTime();
+        });
+
+        result.averageWaiting = (double) totalWT / processes.size();
+        result.averageTurnaround = (double) totalTAT / processes.size();
+        devices.report(result, time);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
 
-            result.turnaroundTimes.put(p.getProcessName(), tat);
-            result.waitingTimes.put(p.getProcessName(), wt);
+        return result;
+    }
 
-            totalWT += wt;
-            totalTAT += tat;
+    // Raise priority by one level for every full aging interval waited since the last aging
+    private void age(Process p, long time) {
+        if (agingInterval <= 0) return;
+        long steps = (time - p.getLastAgingTime()) / agingInterval;
+        if (steps <= 0) return;
+        if (p.getPriority() > 1) {
+            p.setPriority((int) Math.max(1, p.getPriority() - steps));
+            priority[p.getIndex()] = p.getPriority();
         }
+        p.setLastAgingTime(p.getLastAgingTime() + steps * agingInterval);
+    }
 
-        result.averageWaiting = totalWT / processes.size();
-        result.averageTurnaround = totalTAT / processes.size();
+    // Queue every process arriving by 'time'; returns the new arrival index
+    private int admit(int arrived, long time) {
+        while (arrived < processes.size() && processes.get(arrived).getArrivalTime() <= time) {
+            makeReady(processes.get(arrived++), time);
+        }
+        return arrived;
+    }
 
-        return result;
+    private void makeReady(Process p, long time) {
+        if (p.getRemainingTime() <= 0) {
+            // an empty CPU burst: straight on to its I/O, or done without ever being queued
+            if (p.hasPendingIo()) {
+                devices.submit(p, time);
+            } else {
+                p.setCompletionTime(time);
+                finished++;
+                recorder.complete(time, p.getProcessName(), ready.size(),
+                        time - p.getArrivalTime() - p.getBurstTime() - p.getBlockedTime(), time - p.getArrivalTime());
+            }
+            return;
+        }
+        ready.add(p.getIndex());
+        startAging(p);
+    }
+
+    // Schedule the next aging boundary of a waiting process, if it can still gain a level
+    private void startAging(Process p) {
+        if (agingInterval > 0 && p.getPriority() > 1) {
+            aging.schedule(p.getIndex(), p.getLastAgingTime() + agingInterval);
+        }
+    }
+
+    // Stop aging a process that is about to run (or is being switched to)
+    private void hold(Process p) {
+        aging.cancel(p.getIndex());
+    }
+
+    // Age every waiting process whose boundary has passed, re-sorting it in the ready set
+    private void ageDue(long time) {
+        aging.advance(time);
+        for (int id = aging.pollDue(); id != -1; id = aging.pollDue()) {
+            Process p = processes.get(id);
+            age(p, time);
+            if (ready.contains(id)) ready.update(id); else ready.add(id);
+            startAging(p);
+        }
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processes, int arrived) {
+        long arrival = arrived < processes.size() ? processes.get(arrived).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    // Highest-priority arrived, unfinished (and not blocked) process, or null
+    private Process highestReady() {
+        return ready.isEmpty() ? null : processes.get(ready.peek());
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        processes = Collections.emptyList();
+        priority = new int[0];
+        arrival = new long[0];
+        ready.release();
+        aging.release();
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,148 @@
 import java.util.*;
 
 public class Process {
+    public static final int DEFAULT_TICKETS = 100;
+    public static final String DEFAULT_GROUP = "default";
+
     private String processName;
-    private int arrivalTime;
-    private int burstTime;
+    private long arrivalTime;
+    private long burstTime;
     private int priority;
     // Quantum field used for AG scheduler variants
     private int quantum;
-    private List<Integer> quantumHistory;
+    // Quantum values given by AGScheduler; null when not tracked
+    private QuantumHistory quantumHistory;
     private boolean hasArrived;
+    // Real-time constraints: relative deadline and release period (0 = none)
+    private long deadline;
+    private long period;
+    // Proportional-share tickets (stride / lottery)
+    private int tickets = DEFAULT_TICKETS;
+    // Process group (tenant) for GroupScheduler
+    private String group = DEFAULT_GROUP;
+    // Alternating CPU / I-O bursts: cpuBursts[i] is followed by ioBursts[i] on device ioDevices[i].
+    // null means a single CPU burst of burstTime.
+    private long[] cpuBursts;
+    private long[] ioBursts;
+    private int[] ioDevices;
+    // Cached toSpec() snapshot; cleared whenever an input field changes
+    private ProcessSpec spec;
 
     // Runtime state
-    private int remainingTime;
-    private int waitingTime;
-    private int startTime = -1; // first time the process gets CPU
-    private int completionTime = -1; // when the process finishes
+    private long remainingTime; // of the current CPU burst
+    private long waitingTime;
+    private int burstIndex;
+    private long blockedTime; // time spent queued for or using I/O devices
+    private long ioStartTime; // when the pending I/O request was submitted
+    private long lastAgingTime; // PriorityScheduler: last time this process was aged or ran
+    private int index; // PriorityScheduler: position in its arrival-ordered working list
+    private int position; // position in the workload, set by ProcessPool
+    private long startTime = -1; // first time the process gets CPU
+    private long completionTime = -1; // when the process finishes
 
-    public Process(String processName, int arrivalTime, int burstTime, int priority) {
+    public Process(String processName, long arrivalTime, long burstTime, int priority) {
         this(processName, arrivalTime, burstTime, priority, 0);
     }
 
-    public Process(String processName, int arrivalTime, int burstTime, int priority, int quantum) {
+    public Process(String processName, long arrivalTime, long burstTime, int priority, int quantum,
+                   long deadline, long period) {
+        this(processName, arrivalTime, burstTime, priority, quantum);
+        this.deadline = deadline;
+        this.period = period;
+    }
+
+    /**
+     * Fresh copy of another process's input fields, with runtime state reset.
+     */
+    public Process(Process other) {
+        this(other.processName, other.arrivalTime, other.burstTime, other.priority, other.quantum,
+                other.deadline, other.period);
+        this.tickets = other.tickets;
+        this.group = other.group;
+        if (other.cpuBursts != null) {
+            setBursts(other.cpuBursts, other.ioBursts, other.ioDevices);
+        }
+        if (other.quantumHistory != null) {
+            trackQuantumHistory(other.quantumHistory.emptyCopy());
+        }
+    }
+
+    /** Fresh runtime view of an immutable spec. */
+    public Process(ProcessSpec spec) {
+        this(spec.getProcessName(), spec.getArrivalTime(), spec.getBurstTime(), spec.getPriority(),
+                spec.getQuantum(), spec.getDeadline(), spec.getPeriod());
+        this.tickets = spec.getTickets();
+        this.group = spec.getGroup();
+        this.cpuBursts = spec.cpuBursts();
+        this.ioBursts = spec.ioBursts();
+        this.ioDevices = spec.ioDevices();
+        if (cpuBursts != null) this.remainingTime = cpuBursts[0];
+        this.spec = spec;
+    }
+
+    /** Runtime views of a workload, in the same order. */
+    public static Process[] fromSpecs(ProcessSpec[] specs) {
+        Process[] processes = new Process[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            processes[i] = new Process(specs[i]);
+        }
+        return processes;
+    }
+
+    /**
+     * Re-initialise this process in place as a fresh copy of {@code spec}, so
+     * schedulers can reuse working copies across runs without allocating.
+     */
+    public void resetFrom(Process spec) {
+        resetFrom(spec.toSpec());
+    }
+
+    /** Re-initialise this process in place as a fresh runtime view of {@code spec}. */
+    public void resetFrom(ProcessSpec spec) {
+        this.processName = spec.getProcessName();
+        this.arrivalTime = spec.getArrivalTime();
+        this.burstTime = spec.getBurstTime();
+        this.priority = spec.getPriority();
+        this.quantum = spec.getQuantum();
+        this.deadline = spec.getDeadline();
+        this.period = spec.getPeriod();
+        this.tickets = spec.getTickets();
+        this.group = spec.getGroup();
+        // burst arrays are never mutated, so they can be shared with the spec
+        this.cpuBursts = spec.cpuBursts();
+        this.ioBursts = spec.ioBursts();
+        this.ioDevices = spec.ioDevices();
+        this.spec = spec;
+        this.remainingTime = cpuBursts != null ? cpuBursts[0] : burstTime;
+        this.waitingTime = 0;
+        this.startTime = -1;
+        this.completionTime = -1;
+        this.burstIndex = 0;
+        this.blockedTime = 0;
+        this.ioStartTime = 0;
+        this.lastAgingTime = 0;
+        this.hasArrived = false;
+        if (quantumHistory != null) {
+            quantumHistory.clear();
+            quantumHistory.record(this.quantum);
+        }
+    }
+
+    /**
+     * Immutable snapshot of this process's input fields. The snapshot is cached
+     * until one of those fields is changed through a setter.
+     */
+    public ProcessSpec toSpec() {
+        ProcessSpec s = spec;
+        if (s == null) {
+            s = new ProcessSpec(processName, arrivalTime, burstTime, priority, quantum, deadline, period, tickets,
+                    cpuBursts, ioBursts, ioDevices, group);
+            spec = s;
+        }
+        return s;
+    }
+
+    public Process(String processName, long arrivalTime, long burstTime, int priority, int quantum) {
         this.processName = processName;
         this.arrivalTime = arrivalTime;
         this.burstTime = burstTime;
@@ -28,21 +150,20 @@ public class Process {
         this.quantum = quantum;
         this.remainingTime = burstTime;
         this.waitingTime = 0;
-        this.quantumHistory = new ArrayList<>();
-        this.quantumHistory.add(this.quantum);
         this.hasArrived = false;
     }
 
     // Getters and setters
     public String getProcessName() { return processName; }
-    public void setProcessName(String processName) { this.processName = processName; }
+    public void setProcessName(String processName) { this.processName = processName; spec = null; }
 
-    public int getArrivalTime() { return arrivalTime; }
-    public void setArrivalTime(int arrivalTime) { this.arrivalTime = arrivalTime; }
+    public long getArrivalTime() { return arrivalTime; }
+    public void setArrivalTime(long arrivalTime) { this.arrivalTime = arrivalTime; spec = null; }
 
-    public int getBurstTime() { return burstTime; }
-    public void setBurstTime(int burstTime) {
+    public long getBurstTime() { return burstTime; }
+    public void setBurstTime(long burstTime) {
         this.burstTime = burstTime;
+        this.spec = null;
         // keep remaining in sync if needed
         if (this.remainingTime > burstTime) {
             this.remainingTime = burstTime;
@@ -50,41 +171,169 @@ public class Process {
     }
 
     public int getPriority() { return priority; }
-    public void setPriority(int priority) { this.priority = priority; }
+    public void setPriority(int priority) { this.priority = priority; spec = null; }
+
+    /**
+     * Decoded copy of the tracked quantum history; empty when history is not
+     * tracked. Later quantum changes do not show up in the returned list.
+     */
+    public List<Integer> copyQuantumHistory() {
+        return quantumHistory == null ? new ArrayList<>() : quantumHistory.toList();
+    }
+
+    /**
+     * Replace the tracked history with a full history holding {@code values}.
+     * The list is copied, not kept.
+     */
+    public void loadQuantumHistory(List<Integer> values) {
+        this.quantumHistory = QuantumHistory.of(QuantumHistory.Mode.FULL, 0);
+        for (int q : values) this.quantumHistory.record(q);
+    }
 
+    /**
+     * Kept for compatibility. Now returns a copy, not the live list, and an
+     * empty one when history is not tracked.
+     *
+     * @deprecated use {@link #copyQuantumHistory()}
+     */
+    @Deprecated
     public List<Integer> getQuantumHistory() {
-        return quantumHistory;
+        return copyQuantumHistory();
     }
+
+    /**
+     * Kept for compatibility. Now copies {@code quantumHistory}; later changes
+     * to the list are not seen.
+     *
+     * @deprecated use {@link #loadQuantumHistory(List)}
+     */
+    @Deprecated
     public void setQuantumHistory(List<Integer> quantumHistory) {
-        this.quantumHistory = quantumHistory;
+        loadQuantumHistory(quantumHistory);
+    }
+
+    /**
+     * Start recording quantum changes into {@code history}, seeded with the
+     * current quantum. Pass null to stop tracking.
+     */
+    public void trackQuantumHistory(QuantumHistory history) {
+        this.quantumHistory = history;
+        if (history != null) {
+            history.clear();
+            history.record(quantum);
+        }
     }
 
+    /** The tracking buffer itself, or null when history is not tracked. */
+    public QuantumHistory getQuantumHistoryBuffer() { return quantumHistory; }
+
     public int getQuantum() { return quantum; }
     public void setQuantum(int quantum) {
         this.quantum = quantum;
-        this.quantumHistory.add(quantum);
+        this.spec = null;
+        if (quantumHistory != null) quantumHistory.record(quantum);
+    }
+
+    /** Deadline relative to arrival (0 = no deadline). */
+    public long getDeadline() { return deadline; }
+    public void setDeadline(long deadline) { this.deadline = deadline; spec = null; }
+
+    /** Release period of a periodic task (0 = one-shot). */
+    public long getPeriod() { return period; }
+    public void setPeriod(long period) { this.period = period; spec = null; }
+
+    /** Share tickets for proportional-share schedulers. */
+    public int getTickets() { return tickets; }
+    public void setTickets(int tickets) { this.tickets = tickets; spec = null; }
+
+    /** Process group (tenant) for {@link GroupScheduler}. */
+    public String getGroup() { return group; }
+    public void setGroup(String group) {
+        if (group == null) throw new IllegalArgumentException("Process group is required");
+        this.group = group;
+        spec = null;
+    }
+
+    /**
+     * Replace the single CPU burst with alternating CPU and I/O bursts.
+     * burstTime becomes the total CPU demand.
+     *
+     * @param cpuBursts CPU burst lengths, at least one
+     * @param ioBursts I/O burst lengths, one fewer than cpuBursts
+     * @param ioDevices device id serving each I/O burst (null = device 0)
+     */
+    public void setBursts(long[] cpuBursts, long[] ioBursts, int[] ioDevices) {
+        if (cpuBursts.length == 0 || ioBursts.length != cpuBursts.length - 1
+                || (ioDevices != null && ioDevices.length != ioBursts.length)) {
+            throw new IllegalArgumentException("Bursts must alternate CPU, I/O, ..., CPU");
+        }
+        this.spec = null;
+        this.cpuBursts = cpuBursts.clone();
+        this.ioBursts = ioBursts.clone();
+        this.ioDevices = ioDevices != null ? ioDevices.clone() : new int[ioBursts.length];
+        long total = 0;
+        for (long b : cpuBursts) total += b;
+        this.burstTime = total;
+        this.burstIndex = 0;
+        this.remainingTime = cpuBursts[0];
     }
 
+    public long[] getCpuBursts() { return cpuBursts; }
+    public long[] getIoBursts() { return ioBursts; }
+    public int[] getIoDevices() { return ioDevices; }
+
+    /** True when the current CPU burst is done and an I/O burst follows it. */
+    public boolean hasPendingIo() {
+        return remainingTime <= 0 && cpuBursts != null && burstIndex < ioBursts.length;
+    }
+
+    public long getIoBurst() { return ioBursts[burstIndex]; }
+    public int getIoDevice() { return ioDevices[burstIndex]; }
+
+    /** Called when the pending I/O burst completes: load the next CPU burst. */
+    public void nextCpuBurst() {
+        burstIndex++;
+        remainingTime = cpuBursts[burstIndex];
+    }
+
+    int getBurstIndex() { return burstIndex; }
+    void setBurstIndex(int burstIndex) { this.burstIndex = burstIndex; }
+
+    public long getBlockedTime() { return blockedTime; }
+    public void addBlockedTime(long amount) { blockedTime += amount; }
+
+    public long getIoStartTime() { return ioStartTime; }
+    public void setIoStartTime(long ioStartTime) { this.ioStartTime = ioStartTime; }
+
+    public long getLastAgingTime() { return lastAgingTime; }
+    public void setLastAgingTime(long lastAgingTime) { this.lastAgingTime = lastAgingTime; }
+
+    int getIndex() { return index; }
+    void setIndex(int index) { this.index = index; }
+
+    int getPosition() { return position; }
+    void setPosition(int position) { this.position = position; }
+
     public boolean getArriveState() { return hasArrived; }
     public boolean setArriveState(boolean state) { return hasArrived = state; }
-    public int getRemainingTime() { return remainingTime; }
-    public void setRemainingTime(int remainingTime) { this.remainingTime = remainingTime; }
+    public long getRemainingTime() { return remainingTime; }
+    public void setRemainingTime(long remainingTime) { this.remainingTime = remainingTime; }
 
-    public int getWaitingTime() { return waitingTime; }
-    public void setWaitingTime(int waitingTime) { this.waitingTime = waitingTime; }
+    public long getWaitingTime() { return waitingTime; }
+    public void setWaitingTime(long waitingTime) { this.waitingTime = waitingTime; }
 
-    public int getStartTime() { return startTime; }
-    public void setStartTime(int startTime) { this.startTime = startTime; }
+    public long getStartTime() { return startTime; }
+    public void setStartTime(long startTime) { this.startTime = startTime; }
 
-    public int getCompletionTime() { return completionTime; }
-    public void setCompletionTime(int completionTime) { this.completionTime = completionTime; }
+    public long getCompletionTime() { return completionTime; }
+    public void setCompletionTime(long completionTime) { this.completionTime = completionTime; }
 
     // Utility methods
     public boolean isCompleted() {
-        return remainingTime <= 0;
+        return remainingTime <= 0 && !hasPendingIo();
     }
 
-    public void consumeCpu(int amount) {
+    public void consumeCpu(long amount) {
         if (amount < 0) return;
         if (startTime == -1) {
             // start time will be set by scheduler when scheduled
@@ -92,11 +341,11 @@ public class Process {
         remainingTime = Math.max(0, remainingTime - amount);
     }
 
-    public void incrementWaiting(int amount) {
+    public void incrementWaiting(long amount) {
         if (amount > 0) waitingTime += amount;
     }
 
-    public int getTurnaroundTime() {
+    public long getTurnaroundTime() {
         if (completionTime < 0) return -1;
         return completionTime - arrivalTime;
     }
@@ -107,7 +356,7 @@ public class Process {
     }
 
     public void addToQuantumHistory(int quantum) {
-        this.quantumHistory.add(quantum);
+        if (quantumHistory != null) quantumHistory.record(quantum);
     }
 }
 
@@ -0,0 +1,62 @@
+import java.util.*;
+
+/**
+ * Scheduler-owned runtime views of a workload, kept between runs.
+ *
+ * The pool grows to the largest input seen and resets its processes in place
+ * from the immutable specs, so once warmed up a scheduler needs no per-run
+ * allocation and never touches the caller's workload. The returned list is
+ * only valid until the next call; each process knows its position in the
+ * input ({@link Process#getPosition}). Large inputs are reset and sorted in
+ * parallel (see {@link Parallel}).
+ */
+final class ProcessPool {
+    // Stable, so processes arriving together keep their input order
+    private static final Comparator<Process> BY_ARRIVAL = Comparator.comparingLong(Process::getArrivalTime);
+
+    private Process[] pool = new Process[0];
+    private Process[] sortBuffer = new Process[0];
+    private final ArrayList<Process> list = new ArrayList<>();
+
+    List<Process> copyOf(ProcessSpec[] input) {
+        if (pool.length < input.length) {
+            Process[] grown = Arrays.copyOf(pool, input.length);
+            for (int i = pool.length; i < input.length; i++) {
+                grown[i] = new Process(input[i]);
+            }
+            pool = grown;
+        }
+        Process[] pool = this.pool;
+        Parallel.forRange(input.length, i -> {
+            pool[i].resetFrom(input[i]);
+            pool[i].setPosition(i);
+        });
+        list.clear();
+        for (int i = 0; i < input.length; i++) {
+            list.add(pool[i]);
+        }
+        return list;
+    }
+
+    /** Stable sort of {@code processes} by arrival time. */
+    void sortByArrival(List<Process> processes) {
+        int n = processes.size();
+        if (n < Parallel.THRESHOLD) {
+            processes.sort(BY_ARRIVAL);
+            return;
+        }
+        if (sortBuffer.length < n) sortBuffer = new Process[n];
+        Process[] sorted = processes.toArray(sortBuffer);
+        Arrays.parallelSort(sorted, 0, n, BY_ARRIVAL);
+        for (int i = 0; i < n; i++) {
+            processes.set(i, sorted[i]);
+        }
+    }
+
+    void release() {
+        pool = new Process[0];
+        sortBuffer = new Process[0];
+        list.clear();
+        list.trimToSize();
+    }
+}
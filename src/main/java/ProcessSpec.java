@@ -0,0 +1,117 @@
+/**
+ * Immutable description of a process: the scheduler's input, without any
+ * runtime state.
+ *
+ * Schedulers read specs and keep remaining time, waiting time and the like in
+ * their own buffers, so one {@code ProcessSpec[]} workload can be shared
+ * read-only by any number of concurrent runs (one scheduler instance per
+ * thread) without copying. {@link Process} remains the mutable, per-run view.
+ */
+public final class ProcessSpec {
+    private final String processName;
+    private final long arrivalTime;
+    private final long burstTime;
+    private final int priority;
+    private final int quantum;
+    private final long deadline;
+    private final long period;
+    private final int tickets;
+    private final String group; // tenant for GroupScheduler
+    // Alternating CPU / I-O bursts as in Process; null means a single CPU burst of burstTime
+    private final long[] cpuBursts;
+    private final long[] ioBursts;
+    private final int[] ioDevices;
+
+    public ProcessSpec(String processName, long arrivalTime, long burstTime, int priority) {
+        this(processName, arrivalTime, burstTime, priority, 0, 0, 0, Process.DEFAULT_TICKETS);
+    }
+
+    public ProcessSpec(String processName, long arrivalTime, long burstTime, int priority, int quantum,
+                       long deadline, long period, int tickets) {
+        this(processName, arrivalTime, burstTime, priority, quantum, deadline, period, tickets, null, null, null);
+    }
+
+    /**
+     * @param cpuBursts CPU burst lengths, or null for a single burst of {@code burstTime};
+     *                  when given, {@code burstTime} is ignored and becomes their sum
+     * @param ioBursts I/O burst lengths, one fewer than cpuBursts
+     * @param ioDevices device id serving each I/O burst (null = device 0)
+     */
+    public ProcessSpec(String processName, long arrivalTime, long burstTime, int priority, int quantum,
+                       long deadline, long period, int tickets,
+                       long[] cpuBursts, long[] ioBursts, int[] ioDevices) {
+        this(processName, arrivalTime, burstTime, priority, quantum, deadline, period, tickets,
+                cpuBursts, ioBursts, ioDevices, Process.DEFAULT_GROUP);
+    }
+
+    /** @param group the process group (tenant) the process belongs to */
+    public ProcessSpec(String processName, long arrivalTime, long burstTime, int priority, int quantum,
+                       long deadline, long period, int tickets,
+                       long[] cpuBursts, long[] ioBursts, int[] ioDevices, String group) {
+        if (processName == null) throw new IllegalArgumentException("Process name is required");
+        if (group == null) throw new IllegalArgumentException("Process group is required");
+        this.processName = processName;
+        this.group = group;
+        this.arrivalTime = arrivalTime;
+        this.priority = priority;
+        this.quantum = quantum;
+        this.deadline = deadline;
+        this.period = period;
+        this.tickets = tickets;
+        if (cpuBursts == null) {
+            this.burstTime = burstTime;
+            this.cpuBursts = null;
+            this.ioBursts = null;
+            this.ioDevices = null;
+        } else {
+            if (ioBursts == null || cpuBursts.length == 0 || ioBursts.length != cpuBursts.length - 1
+                    || (ioDevices != null && ioDevices.length != ioBursts.length)) {
+                throw new IllegalArgumentException("Bursts must alternate CPU, I/O, ..., CPU");
+            }
+            this.cpuBursts = cpuBursts.clone();
+            this.ioBursts = ioBursts.clone();
+            this.ioDevices = ioDevices != null ? ioDevices.clone() : new int[ioBursts.length];
+            long total = 0;
+            for (long b : cpuBursts) total += b;
+            this.burstTime = total;
+        }
+    }
+
+    /** Specs of the given processes' input fields, in the same order. */
+    public static ProcessSpec[] of(Process[] processes) {
+        ProcessSpec[] specs = new ProcessSpec[processes.length];
+        for (int i = 0; i < processes.length; i++) {
+            specs[i] = processes[i].toSpec();
+        }
+        return specs;
+    }
+
+    public String getProcessName() { return processName; }
+    public long getArrivalTime() { return arrivalTime; }
+    /** Total CPU demand across all bursts. */
+    public long getBurstTime() { return burstTime; }
+    public int getPriority() { return priority; }
+    /** Initial quantum (AG scheduler). */
+    public int getQuantum() { return quantum; }
+    public long getDeadline() { return deadline; }
+    public long getPeriod() { return period; }
+    public int getTickets() { return tickets; }
+    public String getGroup() { return group; }
+
+    /** True when the process alternates CPU and I/O bursts. */
+    public boolean hasIo() { return cpuBursts != null; }
+    public int getCpuBurstCount() { return cpuBursts == null ? 1 : cpuBursts.length; }
+    public long getCpuBurst(int i) { return cpuBursts == null ? burstTime : cpuBursts[i]; }
+    public long getIoBurst(int i) { return ioBursts[i]; }
+    public int getIoDevice(int i) { return ioDevices[i]; }
+
+    // Shared with Process working copies, which never mutate them
+    long[] cpuBursts() { return cpuBursts; }
+    long[] ioBursts() { return ioBursts; }
+    int[] ioDevices() { return ioDevices; }
+
+    @Override
+    public String toString() {
+        return String.format("%s(arr=%d, burst=%d, prio=%d)", processName, arrivalTime, burstTime, priority);
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.*;
+
+/**
+ * Record of the quantum values a process has been given (AG scheduler).
+ *
+ * Three modes trade detail for memory:
+ * <ul>
+ *   <li>{@link Mode#OFF}: nothing is kept.</li>
+ *   <li>{@link Mode#LAST_N}: a ring of the most recent N values.</li>
+ *   <li>{@link Mode#FULL}: every value, stored as zigzag varint deltas in a
+ *       growable byte buffer. AG quanta move by small steps, so most entries
+ *       take one byte instead of a boxed Integer and a list slot.</li>
+ * </ul>
+ * {@link #clear()} keeps the buffer so reused processes do not allocate.
+ * {@link #snapshot()} hands the values to a result without boxing them.
+ */
+public final class QuantumHistory {
+    public enum Mode {
+        OFF, LAST_N, FULL;
+
+        public static Mode parse(String name) {
+            String key = name.trim().replace('-', '_');
+            for (Mode m : values()) {
+                if (m.name().equalsIgnoreCase(key)) return m;
+            }
+            throw new IllegalArgumentException("Unknown quantum history mode: " + name
+                    + " (expected OFF, LAST_N or FULL)");
+        }
+    }
+
+    private final Mode mode;
+    private final int limit;
+    private byte[] deltas;  // FULL
+    private int byteCount;
+    private int[] ring;     // LAST_N
+    private int size;       // values recorded since the last clear
+    private int last;
+
+    private QuantumHistory(Mode mode, int limit) {
+        this.mode = mode;
+        this.limit = limit;
+        if (mode == Mode.FULL) {
+            deltas = new byte[16];
+        } else if (mode == Mode.LAST_N) {
+            ring = new int[limit];
+        }
+    }
+
+    /** Create an empty history in the given mode; {@code limit} is only used by LAST_N. */
+    public static QuantumHistory of(Mode mode, int limit) {
+        if (mode == Mode.LAST_N && limit <= 0) {
+            throw new IllegalArgumentException("LAST_N history needs a positive limit");
+        }
+        return new QuantumHistory(mode, limit);
+    }
+
+    /** Empty history in the same mode and limit as this one. */
+    public QuantumHistory emptyCopy() {
+        return new QuantumHistory(mode, limit);
+    }
+
+    public Mode getMode() { return mode; }
+
+    /** True when this history was created with the given mode and limit. */
+    public boolean matches(Mode mode, int limit) {
+        return this.mode == mode && (mode != Mode.LAST_N || this.limit == limit);
+    }
+
+    public void record(int quantum) {
+        if (mode == Mode.FULL) {
+            if (byteCount + 5 > deltas.length) {
+                deltas = Arrays.copyOf(deltas, deltas.length * 2);
+            }
+            int delta = quantum - last;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                deltas[byteCount++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            deltas[byteCount++] = (byte) zigzag;
+        } else if (mode == Mode.LAST_N) {
+            ring[size % limit] = quantum;
+        } else {
+            return;
+        }
+        last = quantum;
+        size++;
+    }
+
+    public void clear() {
+        byteCount = 0;
+        size = 0;
+        last = 0;
+    }
+
+    /** Number of values currently retained. */
+    public int size() {
+        return mode == Mode.LAST_N ? Math.min(size, limit) : size;
+    }
+
+    /** Decode the retained values, oldest first, into a new list. */
+    public List<Integer> toList() {
+        List<Integer> values = new ArrayList<>(size());
+        if (mode == Mode.FULL) {
+            int value = 0;
+            int pos = 0;
+            while (pos < byteCount) {
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = deltas[pos++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += (zigzag >>> 1) ^ -(zigzag & 1);
+                values.add(value);
+            }
+        } else if (mode == Mode.LAST_N) {
+            for (int i = Math.max(0, size - limit); i < size; i++) {
+                values.add(ring[i % limit]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Read-only copy of the retained values, oldest first. FULL keeps the
+     * delta bytes and decodes them on access, LAST_N an int per value; the
+     * copy does not change when this history is cleared or reused.
+     */
+    public List<Integer> snapshot() {
+        if (mode == Mode.FULL) {
+            return new DeltaList(Arrays.copyOf(deltas, byteCount), size);
+        }
+        if (mode == Mode.LAST_N) {
+            int n = size();
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = ring[(size - n + i) % limit];
+            }
+            return new IntList(values);
+        }
+        return Collections.emptyList();
+    }
+
+    private static final class IntList extends AbstractList<Integer> implements RandomAccess {
+        private final int[] values;
+
+        IntList(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    // Varint deltas decoded on access. get() resumes from the last position read,
+    // so the in-order walks of equals, hashCode and toString stay linear
+    private static final class DeltaList extends AbstractList<Integer> {
+        private final byte[] deltas;
+        private final int size;
+        private volatile Cursor cursor = new Cursor(0, 0, 0);
+
+        // Index and byte position of the next value, and the value before it
+        private static final class Cursor {
+            final int index;
+            final int pos;
+            final int value;
+
+            Cursor(int index, int pos, int value) {
+                this.index = index;
+                this.pos = pos;
+                this.value = value;
+            }
+        }
+
+        DeltaList(byte[] deltas, int size) {
+            this.deltas = deltas;
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            Cursor c = cursor;
+            if (c.index > index) c = new Cursor(0, 0, 0);
+            int i = c.index;
+            int pos = c.pos;
+            int value = c.value;
+            while (true) {
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = deltas[pos++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += (zigzag >>> 1) ^ -(zigzag & 1);
+                if (i++ == index) break;
+            }
+            cursor = new Cursor(i, pos, value);
+            return value;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
@@ -0,0 +1,436 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes schedule results to a file as CSV, JSON Lines or a compact binary
+ * format: one row per process (waiting, turnaround and, when set, lateness)
+ * and one per dispatch in the execution order. Dispatch rows carry their
+ * sequence number and process but no time: results keep the execution order
+ * as names only.
+ *
+ * Rows are encoded straight from the result's unboxed maps into a
+ * {@value #BUFFER}-byte direct buffer that is drained to a {@link FileChannel}
+ * whenever it fills: numbers and names are never turned into intermediate
+ * Strings, and the file is never assembled in memory. One file can hold
+ * several results (e.g. every policy of a comparison); each is tagged with
+ * its run name and scheduler. {@link #write} is synchronized so concurrent
+ * runs can share an exporter.
+ *
+ * CSV has the columns run, scheduler, type (process or dispatch), seq,
+ * process, waiting, turnaround, lateness. JSON Lines starts each result with
+ * a summary object, followed by one object per row. The binary format is
+ * described at {@link #writeBinary}; {@link #readBinary} reads it back.
+ */
+public final class ResultExporter implements AutoCloseable {
+    public enum Format {
+        CSV, JSONL, BINARY;
+
+        /** By extension: .csv, .jsonl or .ndjson, anything else binary. */
+        public static Format forPath(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) return JSONL;
+            return BINARY;
+        }
+    }
+
+    static final int MAGIC = 0x53434852; // "SCHR"
+    static final byte VERSION = 1;
+    private static final int BUFFER = 1 << 20;
+    private static final byte[] CSV_HEADER =
+            "run,scheduler,type,seq,process,waiting,turnaround,lateness\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+    private final byte[] digits = new byte[20];
+    private boolean started;
+
+    private ResultExporter(FileChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    /** Create (or truncate) {@code path} for writing results in {@code format}. */
+    public static ResultExporter open(Path path, Format format) throws IOException {
+        return new ResultExporter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), format);
+    }
+
+    /** Create (or truncate) {@code path}, choosing the format by extension. */
+    public static ResultExporter open(Path path) throws IOException {
+        return open(path, Format.forPath(path));
+    }
+
+    public synchronized void write(String run, String scheduler, ScheduleResult r) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(run, scheduler, r);
+                break;
+            case JSONL:
+                writeJsonl(run, scheduler, r);
+                break;
+            default:
+                writeBinary(run, scheduler, r);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // ---- CSV ----
+
+    private void writeCsv(String run, String scheduler, ScheduleResult r) throws IOException {
+        if (!started) {
+            ensure(CSV_HEADER.length);
+            buffer.put(CSV_HEADER);
+            started = true;
+        }
+        LongValueMap waiting = r.waitingTimes;
+        for (int i = 0; i < waiting.size(); i++) {
+            String process = waiting.keyAt(i);
+            csvPrefix(run, scheduler, "process,", i);
+            csvText(process);
+            ascii(',');
+            number(waiting.valueAt(i));
+            ascii(',');
+            number(r.turnaroundTimes.getLong(process, 0));
+            ascii(',');
+            int late = r.lateness.indexOf(process);
+            if (late >= 0) number(r.lateness.valueAt(late));
+            ascii('\n');
+        }
+        List<String> order = r.executionOrder;
+        for (int i = 0; i < order.size(); i++) {
+            csvPrefix(run, scheduler, "dispatch,", i);
+            csvText(order.get(i));
+            ascii(',');
+            ascii(',');
+            ascii(',');
+            ascii('\n');
+        }
+    }
+
+    private void csvPrefix(String run, String scheduler, String type, int seq) throws IOException {
+        csvText(run);
+        ascii(',');
+        csvText(scheduler);
+        ascii(',');
+        text(type);
+        number(seq);
+        ascii(',');
+    }
+
+    private void csvText(String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            text(s);
+            return;
+        }
+        ascii('"');
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '"') ascii('"');
+            i += character(s, i) - 1;
+        }
+        ascii('"');
+    }
+
+    // ---- JSON Lines ----
+
+    private void writeJsonl(String run, String scheduler, ScheduleResult r) throws IOException {
+        text("{\"type\":\"summary\",\"run\":");
+        jsonText(run);
+        text(",\"scheduler\":");
+        jsonText(scheduler);
+        text(",\"timeUnit\":");
+        jsonText(r.timeUnit.symbol());
+        text(",\"processes\":");
+        number(r.waitingTimes.size());
+        text(",\"dispatches\":");
+        number(r.executionOrder.size());
+        text(",\"averageWaiting\":");
+        text(Double.toString(r.averageWaiting));
+        text(",\"averageTurnaround\":");
+        text(Double.toString(r.averageTurnaround));
+        if (!r.lateness.isEmpty()) {
+            text(",\"deadlineMisses\":");
+            number(r.deadlineMisses);
+            text(",\"maxLateness\":");
+            number(r.maxLateness);
+        }
+        text("}\n");
+
+        LongValueMap waiting = r.waitingTimes;
+        for (int i = 0; i < waiting.size(); i++) {
+            String process = waiting.keyAt(i);
+            text("{\"type\":\"process\",\"process\":");
+            jsonText(process);
+            text(",\"waiting\":");
+            number(waiting.valueAt(i));
+            text(",\"turnaround\":");
+            number(r.turnaroundTimes.getLong(process, 0));
+            int late = r.lateness.indexOf(process);
+            if (late >= 0) {
+                text(",\"lateness\":");
+                number(r.lateness.valueAt(late));
+            }
+            text("}\n");
+        }
+        List<String> order = r.executionOrder;
+        for (int i = 0; i < order.size(); i++) {
+            text("{\"type\":\"dispatch\",\"seq\":");
+            number(i);
+            text(",\"process\":");
+            jsonText(order.get(i));
+            text("}\n");
+        }
+    }
+
+    private void jsonText(String s) throws IOException {
+        ascii('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                ascii('\\');
+                ascii(c);
+            } else if (c < 0x20) {
+                text(String.format("\\u%04x", (int) c));
+            } else {
+                i += character(s, i) - 1;
+            }
+        }
+        ascii('"');
+    }
+
+    // ---- binary ----
+
+    /**
+     * One block per result, all integers big-endian or unsigned LEB128
+     * varints, times zigzag-encoded varints:
+     * magic "SCHR", version byte, time unit ordinal byte, flags byte (bit 0:
+     * lateness present), run and scheduler as length-prefixed UTF-8, average
+     * waiting and turnaround as doubles, then the process count and per
+     * process its name, waiting, turnaround (and lateness), then the dispatch
+     * count and per dispatch the process's position in the table plus one,
+     * or 0 followed by its name if it has no row.
+     */
+    private void writeBinary(String run, String scheduler, ScheduleResult r) throws IOException {
+        boolean lateness = !r.lateness.isEmpty();
+        ensure(4 + 3);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) r.timeUnit.ordinal());
+        buffer.put((byte) (lateness ? 1 : 0));
+        binaryText(run);
+        binaryText(scheduler);
+        ensure(16);
+        buffer.putDouble(r.averageWaiting);
+        buffer.putDouble(r.averageTurnaround);
+
+        LongValueMap waiting = r.waitingTimes;
+        varint(waiting.size());
+        for (int i = 0; i < waiting.size(); i++) {
+            String process = waiting.keyAt(i);
+            binaryText(process);
+            varint(zigzag(waiting.valueAt(i)));
+            varint(zigzag(r.turnaroundTimes.getLong(process, 0)));
+            if (lateness) varint(zigzag(r.lateness.getLong(process, 0)));
+        }
+        List<String> order = r.executionOrder;
+        varint(order.size());
+        for (String process : order) {
+            int pos = waiting.indexOf(process);
+            varint(pos + 1);
+            if (pos < 0) binaryText(process);
+        }
+    }
+
+    private void binaryText(String s) throws IOException {
+        varint(utf8Length(s));
+        for (int i = 0; i < s.length(); i++) {
+            i += character(s, i) - 1;
+        }
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private void varint(long v) throws IOException {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * Read every result block of a binary export. Run and scheduler names are
+     * skipped; results come back in file order with their time unit set.
+     */
+    public static List<ScheduleResult> readBinary(Path path) throws IOException {
+        List<ScheduleResult> results = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException end) {
+                    return results;
+                }
+                if (magic != MAGIC) throw new IOException("Not a result export: bad magic");
+                byte version = in.readByte();
+                if (version != VERSION) throw new IOException("Unsupported result export version " + version);
+                ScheduleResult r = new ScheduleResult();
+                r.timeUnit = TimeScale.values()[in.readByte()];
+                boolean lateness = (in.readByte() & 1) != 0;
+                readText(in);
+                readText(in);
+                r.averageWaiting = in.readDouble();
+                r.averageTurnaround = in.readDouble();
+                int processes = (int) readVarint(in);
+                String[] names = new String[processes];
+                for (int i = 0; i < processes; i++) {
+                    names[i] = readText(in);
+                    r.waitingTimes.putLong(names[i], unzigzag(readVarint(in)));
+                    r.turnaroundTimes.putLong(names[i], unzigzag(readVarint(in)));
+                    if (lateness) r.lateness.putLong(names[i], unzigzag(readVarint(in)));
+                }
+                long dispatches = readVarint(in);
+                for (long i = 0; i < dispatches; i++) {
+                    int pos = (int) readVarint(in);
+                    r.executionOrder.add(pos > 0 ? names[pos - 1] : readText(in));
+                }
+                results.add(r);
+            }
+        }
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // ---- buffer ----
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ascii(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    // Markup and ASCII-only text, written as is
+    private void text(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            i += character(s, i) - 1;
+        }
+    }
+
+    // UTF-8 encode the character at i, lone surrogates as '?'; returns the chars consumed, 2 for a pair
+    private int character(String s, int i) throws IOException {
+        ensure(4);
+        char c = s.charAt(i);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                buffer.put((byte) (0xF0 | cp >> 18));
+                buffer.put((byte) (0x80 | cp >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | cp >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | cp & 0x3F));
+                return 2;
+            }
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | c >> 12));
+            buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+            buffer.put((byte) (0x80 | c & 0x3F));
+        }
+        return 1;
+    }
+
+    // Byte length of s as written by character()
+    private static int utf8Length(String s) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else {
+                n += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return n;
+    }
+
+    // Decimal digits of v without going through a String
+    private void number(long v) throws IOException {
+        ensure(20);
+        if (v == Long.MIN_VALUE) {
+            text("-9223372036854775808");
+            return;
+        }
+        if (v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        int n = digits.length;
+        do {
+            digits[--n] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        buffer.put(digits, n, digits.length - n);
+    }
+}
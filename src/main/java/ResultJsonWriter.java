@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Streams a {@link ScheduleResult} as a single line of JSON using the same
+ * keys as a test case's "expectedOutput" section, so a result can be pasted
+ * back into a test file. Entries are written one by one rather than built as
+ * a JSON tree, so large results do not need a second in-memory copy.
+ */
+final class ResultJsonWriter {
+    private ResultJsonWriter() {
+    }
+
+    static void write(Writer out, String name, String scheduler, ScheduleResult r) throws IOException {
+        out.write("{\"name\":");
+        out.write(JSONObject.quote(name));
+        out.write(",\"scheduler\":");
+        out.write(JSONObject.quote(scheduler));
+        if (r.timeUnit != TimeScale.TICKS) {
+            out.write(",\"timeUnit\":");
+            out.write(JSONObject.quote(r.timeUnit.symbol()));
+        }
+
+        out.write(",\"executionOrder\":[");
+        List<String> order = r.executionOrder;
+        for (int i = 0; i < order.size(); i++) {
+            if (i > 0) out.write(',');
+            out.write(JSONObject.quote(order.get(i)));
+        }
+        out.write(']');
+
+        out.write(",\"processResults\":[");
+        boolean first = true;
+        for (Map.Entry<String, Long> e : r.waitingTimes.entrySet()) {
+            String process = e.getKey();
+            if (!first) out.write(',');
+            first = false;
+            out.write("{\"name\":");
+            out.write(JSONObject.quote(process));
+            out.write(",\"waitingTime\":");
+            out.write(Long.toString(e.getValue()));
+            out.write(",\"turnaroundTime\":");
+            out.write(Long.toString(r.turnaroundTimes.getLong(process, 0)));
+            List<Integer> history = r.quantumHistory.get(process);
+            if (history != null) {
+                out.write(",\"quantumHistory\":");
+                out.write(history.toString().replace(" ", ""));
+            }
+            if (r.lateness.containsKey(process)) {
+                out.write(",\"lateness\":");
+                out.write(Long.toString(r.lateness.getLong(process, 0)));
+            }
+            if (r.requestedShare.containsKey(process)) {
+                out.write(",\"requestedShare\":");
+                out.write(JSONObject.numberToString(r.requestedShare.getDouble(process, 0)));
+                out.write(",\"achievedShare\":");
+                out.write(JSONObject.numberToString(r.achievedShare.getDouble(process, 0)));
+            }
+            out.write('}');
+        }
+        out.write(']');
+
+        out.write(",\"averageWaitingTime\":");
+        out.write(JSONObject.numberToString(r.averageWaiting));
+        out.write(",\"averageTurnaroundTime\":");
+        out.write(JSONObject.numberToString(r.averageTurnaround));
+        if (!r.lateness.isEmpty() || !r.rejected.isEmpty()) {
+            out.write(",\"deadlineMisses\":");
+            out.write(Integer.toString(r.deadlineMisses));
+            out.write(",\"maxLateness\":");
+            out.write(Long.toString(r.maxLateness));
+            out.write(",\"rejected\":[");
+            for (int i = 0; i < r.rejected.size(); i++) {
+                if (i > 0) out.write(',');
+                out.write(JSONObject.quote(r.rejected.get(i)));
+            }
+            out.write(']');
+        }
+        if (r.maxVruntimeLag > 0) {
+            out.write(",\"maxVruntimeLag\":");
+            out.write(JSONObject.numberToString(r.maxVruntimeLag));
+        }
+        if (r.cpuUtilization > 0) {
+            out.write(",\"cpuUtilization\":");
+            out.write(JSONObject.numberToString(r.cpuUtilization));
+            out.write(",\"ioOverlap\":");
+            out.write(JSONObject.numberToString(r.ioOverlap));
+        }
+        if (r.switchOverhead > 0) {
+            out.write(",\"switchOverhead\":");
+            out.write(Long.toString(r.switchOverhead));
+        }
+        if (!r.quantumTrajectory.isEmpty()) {
+            out.write(",\"quantumTrajectory\":[");
+            for (int i = 0; i < r.quantumTrajectory.size(); i++) {
+                ScheduleResult.QuantumChange c = r.quantumTrajectory.get(i);
+                if (i > 0) out.write(',');
+                out.write("{\"time\":");
+                out.write(Long.toString(c.time));
+                out.write(",\"quantum\":");
+                out.write(Long.toString(c.quantum));
+                out.write('}');
+            }
+            out.write(']');
+        }
+        if (r.predictedBursts > 0) {
+            out.write(",\"predictedBursts\":");
+            out.write(Long.toString(r.predictedBursts));
+            out.write(",\"predictionError\":");
+            out.write(JSONObject.numberToString(r.predictionError));
+            out.write(",\"predictionBias\":");
+            out.write(JSONObject.numberToString(r.predictionBias));
+        }
+        if (!r.groups.isEmpty()) {
+            out.write(",\"groups\":{");
+            boolean firstGroup = true;
+            for (Map.Entry<String, ScheduleResult.Group> e : r.groups.entrySet()) {
+                ScheduleResult.Group g = e.getValue();
+                if (!firstGroup) out.write(',');
+                firstGroup = false;
+                out.write(JSONObject.quote(e.getKey()));
+                out.write(":{\"weight\":");
+                out.write(Integer.toString(g.weight));
+                out.write(",\"processes\":");
+                out.write(Integer.toString(g.processes));
+                out.write(",\"cpuTime\":");
+                out.write(Long.toString(g.cpuTime));
+                out.write(",\"entitledShare\":");
+                out.write(JSONObject.numberToString(g.entitledShare));
+                out.write(",\"achievedShare\":");
+                out.write(JSONObject.numberToString(g.achievedShare));
+                out.write(",\"averageWaiting\":");
+                out.write(JSONObject.numberToString(g.averageWaiting));
+                out.write(",\"averageTurnaround\":");
+                out.write(JSONObject.numberToString(g.averageTurnaround));
+                out.write('}');
+            }
+            out.write('}');
+        }
+        out.write('}');
+    }
+}
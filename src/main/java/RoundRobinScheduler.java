@@ -1,76 +1,225 @@
 import java.util.*;
+import java.util.function.Consumer;
 
-public class RoundRobinScheduler implements Scheduler {
-    private final int timeQuantum;
+public class RoundRobinScheduler implements Scheduler, WhatIf.Engine {
+    private final long timeQuantum;
 
-    public RoundRobinScheduler(int timeQuantum) {
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final ArrayDeque<Process> readyQueue = new ArrayDeque<>();
+    private final Consumer<Process> enqueue = readyQueue::add;
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("RoundRobin");
+
+    public RoundRobinScheduler(long timeQuantum) {
         this.timeQuantum = timeQuantum;
     }
 
     @Override
     public ScheduleResult schedule(Process[] inputProcesses, int contextSwitch) {
-        // Defensive copy and sort by arrival time
-        List<Process> processes = new ArrayList<>();
-        for (Process p : inputProcesses) {
-            Process copy = new Process(p.getProcessName(), p.getArrivalTime(), p.getBurstTime(), p.getPriority(), p.getQuantum());
-            processes.add(copy);
-        }
-        processes.sort(Comparator.comparingInt(Process::getArrivalTime));
+        return schedule(inputProcesses, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] inputProcesses, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(inputProcesses), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] inputProcesses, int contextSwitch, ScheduleResult result) {
+        return schedule(inputProcesses, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] inputProcesses, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(inputProcesses.length, result,
+                () -> simulate(inputProcesses, switchCost.start(inputProcesses), result, null));
+    }
 
-        Queue<Process> readyQueue = new ArrayDeque<>();
+    @Override
+    public ScheduleResult record(ProcessSpec[] workload, int contextSwitch, WhatIf.Log log) {
         ScheduleResult result = new ScheduleResult();
+        Trace trace = new Trace(log, null, -1, -1);
+        ContextSwitchCost.Run switchCost = ContextSwitchCost.fixed(contextSwitch).start(workload);
+        return recorder.run(workload.length, result, () -> simulate(workload, switchCost, result, trace));
+    }
 
-        int time = 0;
-        int idx = 0; // index into sorted processes for arrivals
+    @Override
+    public void resume(ProcessSpec[] workload, int contextSwitch, WhatIf.Log log, int from, int changed,
+                       WhatIf.Segment segment) {
+        ScheduleResult result = new ScheduleResult();
+        Trace trace = new Trace(log, segment, from, changed);
+        ContextSwitchCost.Run switchCost = ContextSwitchCost.fixed(contextSwitch).start(workload);
+        recorder.run(workload.length, result, () -> simulate(workload, switchCost, result, trace));
+    }
 
-        // Bring in any processes that arrive at time 0
-        while (idx < processes.size() && processes.get(idx).getArrivalTime() <= time) {
-            readyQueue.add(processes.get(idx++));
+    // Round robin only looks at names, arrivals and bursts
+    @Override
+    public boolean irrelevant(ProcessSpec before, ProcessSpec after) {
+        return before.getProcessName().equals(after.getProcessName())
+                && before.getArrivalTime() == after.getArrivalTime()
+                && before.getBurstTime() == after.getBurstTime()
+                && Arrays.equals(before.cpuBursts(), after.cpuBursts())
+                && Arrays.equals(before.ioBursts(), after.ioBursts())
+                && Arrays.equals(before.ioDevices(), after.ioDevices());
+    }
+
+    // What-if bookkeeping for one run (see WhatIf): a base run records checkpoints into
+    // the log; a resumed run (segment set) starts from checkpoint 'from' and stops once
+    // its state equals a later checkpoint's with the changed process done in both runs.
+    // Processes are identified by their workload positions.
+    private static final class Trace {
+        final WhatIf.Log log;
+        final WhatIf.Segment segment;
+        final int from;
+        final int changed;
+        Process[] byIndex;
+        long nextCheckpoint; // recording: time of the next checkpoint
+        int next;            // resuming: next base checkpoint to compare against
+        long steps;
+
+        Trace(WhatIf.Log log, WhatIf.Segment segment, int from, int changed) {
+            this.log = log;
+            this.segment = segment;
+            this.from = from;
+            this.changed = changed;
         }
 
+        void completed(Process p, long time) {
+            if (segment == null) {
+                log.completed(p.getPosition(), time, p.getWaitingTime(), p.getTurnaroundTime());
+            } else {
+                segment.completed(p.getPosition(), p.getWaitingTime(), p.getTurnaroundTime());
+            }
+        }
+    }
+
+    // Engine state at the top of a step; per-process fields are for the active processes
+    // (ready, running or held by a device), sorted by position
+    private static final class Checkpoint extends WhatIf.Checkpoint {
+        int admitted;
+        int current;
+        long sliceRemaining;
+        int last;
+        int[] ready;
+        int[] active;
+        long[] remaining;
+        int[] burstIndex;
+        long[] blocked;
+        long[] ioStart;
+        long[] start;
+        IODevices.Snapshot devices;
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] inputProcesses, ContextSwitchCost.Run switchCost,
+                                    ScheduleResult result, Trace trace) {
+        result.reset();
+        result.startPhases();
+        // Runtime state lives in pooled processes; sort them by arrival time
+        List<Process> processes = pool.copyOf(inputProcesses);
+        if (trace != null) {
+            Process[] byIndex = new Process[processes.size()];
+            for (Process p : processes) byIndex[p.getPosition()] = p;
+            trace.byIndex = byIndex;
+        }
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        pool.sortByArrival(processes);
+        result.endPhase(ScheduleResult.Phase.SORT);
+
+        readyQueue.clear();
+        devices.reset();
+
+        long time = 0;
+        int idx = 0; // index into sorted processes for arrivals
         Process current = null;
-        int sliceRemaining = 0;
+        long sliceRemaining = 0;
+        Process last = null; // last dispatched; a context switch precedes every dispatch but the first
 
-        while (!readyQueue.isEmpty() || idx < processes.size() || (current != null && !current.isCompleted())) {
+        if (trace != null && trace.from >= 0) {
+            Checkpoint c = (Checkpoint) trace.log.checkpoints.get(trace.from);
+            Process[] byIndex = trace.byIndex;
+            time = c.time;
+            idx = c.admitted;
+            current = c.current >= 0 ? byIndex[c.current] : null;
+            sliceRemaining = c.sliceRemaining;
+            last = c.last >= 0 ? byIndex[c.last] : null;
+            result.switchOverhead = c.switchOverhead;
+            for (int k = 0; k < c.active.length; k++) {
+                Process p = byIndex[c.active[k]];
+                p.setRemainingTime(c.remaining[k]);
+                p.setBurstIndex(c.burstIndex[k]);
+                p.addBlockedTime(c.blocked[k]);
+                p.setIoStartTime(c.ioStart[k]);
+                p.setStartTime(c.start[k]);
+            }
+            for (int p : c.ready) readyQueue.add(byIndex[p]);
+            devices.restore(c.devices, byIndex);
+            trace.next = trace.from + 1;
+        } else {
+            // Bring in any processes that arrive at time 0
+            while (idx < processes.size() && processes.get(idx).getArrivalTime() <= time) {
+                readyQueue.add(processes.get(idx++));
+            }
+        }
+
+        while (!readyQueue.isEmpty() || idx < processes.size() || devices.isBusy()
+                || (current != null && !current.isCompleted())) {
+            if (trace != null) {
+                trace.steps++;
+                if (trace.segment == null) {
+                    if (time >= trace.nextCheckpoint) {
+                        trace.log.checkpoints.add(checkpoint(time, idx, current, sliceRemaining, last,
+                                result, trace.byIndex));
+                        trace.nextCheckpoint = trace.log.next(time);
+                    }
+                } else if (rejoined(trace, time, idx, current, sliceRemaining, last)) {
+                    break;
+                }
+            }
             // If no current, fetch next from ready
             if (current == null || sliceRemaining == 0 || current.isCompleted()) {
                 // If we were running a process and need to switch, apply context switch (except first dispatch)
                 if (current != null && !current.isCompleted()) {
                     readyQueue.add(current); // put it back at end
+                    recorder.record(time, current.getProcessName(), FlightRecorder.Event.PREEMPT, readyQueue.size(),
+                            FlightRecorder.Cause.QUANTUM_EXPIRED);
                 }
                 // peek next process
                 Process next = readyQueue.peek();
                 if (next != null) {
                     // apply context switch if this isn't the first ever dispatch or if switching between processes
-                    if (result.executionOrder.size() > 0) {
-                        // Simulate context switch per tick:
-                        // - advance time one by one
-                        // - increment waiting for all ready processes (including the next to run)
-                        // - bring in arrivals that occur during the switch so they can accrue waiting for remaining CS ticks
-                        for (int cs = 0; cs < contextSwitch; cs++) {
-                            time += 1;
-                            for (Process rp : readyQueue) {
-                                rp.incrementWaiting(1);
-                            }
+                    if (last != null) {
+                        // Simulate the context switch from event to event, bringing in arrivals and
+                        // I/O returns as they happen (ready processes, the next one included, wait)
+                        long cost = switchCost.cost(last.getPosition(), next.getPosition(), time);
+                        result.switchOverhead += cost;
+                        long switchEnd = time + cost;
+                        while (time < switchEnd) {
+                            time = Math.min(switchEnd, nextEvent(processes, idx));
                             while (idx < processes.size() && processes.get(idx).getArrivalTime() <= time) {
                                 readyQueue.add(processes.get(idx++));
                             }
+                            devices.advance(time, enqueue);
                         }
                     }
                     current = readyQueue.poll();
                     sliceRemaining = timeQuantum;
+                    last = current;
                     if (current.getStartTime() == -1) current.setStartTime(time);
                     // record dispatch into execution order timeline (names only for tests)
                     result.executionOrder.add(current.getProcessName());
+                    recorder.record(time, current.getProcessName(), FlightRecorder.Event.DISPATCH, readyQueue.size(),
+                            FlightRecorder.Cause.FIFO);
                 } else {
-                    // No ready process; jump time to next arrival to avoid idle loops
-                    if (idx < processes.size()) {
-                        int jump = processes.get(idx).getArrivalTime() - time;
-                        time += jump;
-                        // bring arrivals
+                    // No ready process; jump time to next arrival or I/O completion to avoid idle loops
+                    if (idx < processes.size() || devices.isBusy()) {
+                        recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                        time = nextEvent(processes, idx);
+                        // bring arrivals, then processes returning from I/O
                         while (idx < processes.size() && processes.get(idx).getArrivalTime() <= time) {
                             readyQueue.add(processes.get(idx++));
                         }
+                        devices.advance(time, enqueue);
                         continue;
                     } else {
                         break;
@@ -78,28 +227,45 @@ public class RoundRobinScheduler implements Scheduler {
                 }
             }
 
-            // Run the current process for 1 time unit or until completion or quantum expires
-            int runFor = Math.min(1, sliceRemaining);
+            // Run the current process until its slice or burst ends, or the next arrival or I/O
+            // completion changes the ready queue; nothing observable happens in between
+            long runFor = Math.min(sliceRemaining, current.getRemainingTime());
+            runFor = Math.max(1, Math.min(runFor, nextEvent(processes, idx) - time));
             current.consumeCpu(runFor);
             sliceRemaining -= runFor;
+            devices.cpuBusy(time, time + runFor);
             time += runFor;
 
-            // Update waiting time for all processes in ready queue
-            for (Process rp : readyQueue) {
-                rp.incrementWaiting(runFor);
-            }
-
-            // Bring in any processes that arrive at this time
+            // Bring in any processes that arrive at this time, then those finishing I/O
             while (idx < processes.size() && processes.get(idx).getArrivalTime() <= time) {
                 readyQueue.add(processes.get(idx++));
             }
+            devices.advance(time, enqueue);
+
+            // CPU burst done with I/O to follow: block on the device and free the CPU
+            if (current.hasPendingIo()) {
+                devices.submit(current, time);
+                recorder.record(time, current.getProcessName(), FlightRecorder.Event.BLOCK, readyQueue.size(),
+                        FlightRecorder.Cause.IO);
+                // a zero-length I/O burst is over already: rejoin the queue now, not a step late
+                devices.advance(time, enqueue);
+                current = null;
+                sliceRemaining = 0;
+                continue;
+            }
 
             // If completed, set completion and reset current to force picking next
             if (current.isCompleted()) {
                 current.setCompletionTime(time);
-                // push metrics
-                result.waitingTimes.put(current.getProcessName(), current.getWaitingTime());
-                result.turnaroundTimes.put(current.getProcessName(), current.getTurnaroundTime());
+                // Every tick between arrival and completion was spent running, blocked on I/O or
+                // waiting in the ready queue (context switches included), so waiting follows
+                // without charging each queued process at every step
+                current.setWaitingTime(current.getTurnaroundTime() - current.getBurstTime() - current.getBlockedTime());
+                result.waitingTimes.putLong(current.getProcessName(), current.getWaitingTime());
+                result.turnaroundTimes.putLong(current.getProcessName(), current.getTurnaroundTime());
+                recorder.complete(time, current.getProcessName(), readyQueue.size(), current.getWaitingTime(),
+                        current.getTurnaroundTime());
+                if (trace != null) trace.completed(current, time);
                 current = null;
                 sliceRemaining = 0;
             } else if (sliceRemaining == 0) {
@@ -107,24 +273,235 @@ public class RoundRobinScheduler implements Scheduler {
             }
         }
 
-        // compute averages
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        if (trace != null && trace.segment != null) {
+            WhatIf.Segment segment = trace.segment;
+            segment.executionOrder = result.executionOrder;
+            segment.endTime = time;
+            segment.cpuTime = devices.cpuTime();
+            segment.overlapTime = devices.overlapTime();
+            segment.ioUsed = devices.isUsed();
+            segment.switchOverhead = result.switchOverhead;
+            segment.steps = trace.steps;
+            return result;
+        }
+        if (trace != null) {
+            WhatIf.Log log = trace.log;
+            log.executionOrder = result.executionOrder;
+            log.endTime = time;
+            log.cpuTime = devices.cpuTime();
+            log.overlapTime = devices.overlapTime();
+            log.ioUsed = devices.isUsed();
+            log.switchOverhead = result.switchOverhead;
+            log.steps = trace.steps;
+        }
+
+        // compute averages; a process that never completed (shouldn't happen) is estimated from its fields
+        int n = processes.size();
+        long totalWait = Parallel.sum(n, i -> {
+            Process p = processes.get(i);
+            return result.waitingTimes.getLong(p.getProcessName(), p.getWaitingTime());
+        });
+        long totalTurn = Parallel.sum(n, i -> {
+            Process p = processes.get(i);
+            return result.turnaroundTimes.getLong(p.getProcessName(), p.getTurnaroundTime());
+        });
+        result.averageWaiting = n == 0 ? 0 : (double) totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : (double) totalTurn / n;
+        devices.report(result, time);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    private Checkpoint checkpoint(long time, int admitted, Process current, long sliceRemaining, Process last,
+                                  ScheduleResult result, Process[] byIndex) {
+        Checkpoint c = new Checkpoint();
+        c.time = time;
+        c.orderSize = result.executionOrder.size();
+        c.cpuTime = devices.cpuTime();
+        c.overlapTime = devices.overlapTime();
+        c.switchOverhead = result.switchOverhead;
+        c.admitted = admitted;
+        c.current = current == null ? -1 : current.getPosition();
+        c.sliceRemaining = sliceRemaining;
+        c.last = last == null ? -1 : last.getPosition();
+        c.devices = devices.snapshot();
+        c.ready = new int[readyQueue.size()];
+        int[] held = c.devices.processes();
+        int[] active = new int[c.ready.length + (current == null ? 0 : 1) + held.length];
+        int count = 0;
+        for (Process p : readyQueue) {
+            c.ready[count] = p.getPosition();
+            active[count++] = p.getPosition();
+        }
+        if (current != null) active[count++] = current.getPosition();
+        System.arraycopy(held, 0, active, count, held.length);
+        Arrays.sort(active);
+        c.active = active;
+        c.remaining = new long[active.length];
+        c.burstIndex = new int[active.length];
+        c.blocked = new long[active.length];
+        c.ioStart = new long[active.length];
+        c.start = new long[active.length];
+        for (int k = 0; k < active.length; k++) {
+            Process p = byIndex[active[k]];
+            c.remaining[k] = p.getRemainingTime();
+            c.burstIndex[k] = p.getBurstIndex();
+            c.blocked[k] = p.getBlockedTime();
+            c.ioStart[k] = p.getIoStartTime();
+            c.start[k] = p.getStartTime();
+        }
+        return c;
+    }
+
+    // Resuming: true when the state at this step equals the base run's at the same time
+    // and the changed process has finished in both, so the rest of the base run stands
+    private boolean rejoined(Trace trace, long time, int admitted, Process current, long sliceRemaining,
+                             Process last) {
+        List<WhatIf.Checkpoint> checkpoints = trace.log.checkpoints;
+        while (trace.next < checkpoints.size() && checkpoints.get(trace.next).time < time) trace.next++;
+        if (trace.next == checkpoints.size() || checkpoints.get(trace.next).time != time) return false;
+        long baseDone = trace.log.completion[trace.changed];
+        if (!trace.segment.completed[trace.changed] || baseDone < 0 || baseDone > time) return false;
+
+        Checkpoint c = (Checkpoint) checkpoints.get(trace.next);
+        int currentIndex = current == null ? -1 : current.getPosition();
+        int lastIndex = last == null ? -1 : last.getPosition();
+        if (admitted != c.admitted || lastIndex != c.last || currentIndex != c.current
+                || sliceRemaining != c.sliceRemaining || readyQueue.size() != c.ready.length
+                || !devices.matches(c.devices)) {
+            return false;
+        }
+        int k = 0;
+        for (Process p : readyQueue) {
+            if (p.getPosition() != c.ready[k++]) return false;
+        }
+        // same ready queue, CPU and devices, so the same active processes
+        for (k = 0; k < c.active.length; k++) {
+            Process p = trace.byIndex[c.active[k]];
+            if (p.getRemainingTime() != c.remaining[k] || p.getBurstIndex() != c.burstIndex[k]
+                    || p.getBlockedTime() != c.blocked[k] || p.getIoStartTime() != c.ioStart[k]
+                    || p.getStartTime() != c.start[k]) {
+                return false;
+            }
+        }
+        trace.segment.converged = trace.next;
+        return true;
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processes, int idx) {
+        long nextArrival = idx < processes.size() ? processes.get(idx).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(nextArrival, devices.nextCompletion());
+    }
+
+    @Override
+    public boolean supportsOffHeap() {
+        return true;
+    }
+
+    @Override
+    public ScheduleResult schedule(OffHeapWorkload workload, long contextSwitch) {
+        ScheduleResult result = new ScheduleResult();
+        return recorder.run(workload.size(), result, () -> simulate(workload, contextSwitch, result));
+    }
+
+    // The same policy over off-heap records, which are already in arrival order and have no
+    // I/O; the ready queue is a list threaded through the workload's link column
+    private ScheduleResult simulate(OffHeapWorkload w, long contextSwitch, ScheduleResult result) {
+        result.startPhases();
+        w.resetResults();
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        int n = w.size();
+        int head = -1, tail = -1, queued = 0;
+        long time = 0, cpuTime = 0;
         double totalWait = 0, totalTurn = 0;
-        for (Process p : processes) {
-            Integer w = result.waitingTimes.get(p.getProcessName());
-            Integer t = result.turnaroundTimes.get(p.getProcessName());
-            if (w == null) {
-                // if process never completed (shouldn't happen), estimate
-                w = p.getWaitingTime();
+        int idx = 0;
+        int current = -1;
+        long sliceRemaining = 0;
+        boolean dispatched = false;
+
+        while (true) {
+            // Admit arrivals up to now at the back of the queue
+            for (; idx < n && w.getArrivalTime(idx) <= time; idx++, queued++) {
+                if (tail == -1) head = idx; else w.setLink(tail, idx);
+                tail = idx;
             }
-            if (t == null) {
-                t = p.getTurnaroundTime();
+            if (current == -1 || sliceRemaining == 0) {
+                if (current != -1) {
+                    if (tail == -1) head = current; else w.setLink(tail, current);
+                    w.setLink(current, -1);
+                    tail = current;
+                    queued++;
+                    recorder.record(time, current, FlightRecorder.Event.PREEMPT, queued,
+                            FlightRecorder.Cause.QUANTUM_EXPIRED);
+                }
+                if (head == -1) {
+                    if (idx == n) break;
+                    recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                    time = w.getArrivalTime(idx);
+                    continue;
+                }
+                if (dispatched && contextSwitch > 0) {
+                    // everything arriving during the switch queues behind the waiting processes
+                    time += contextSwitch;
+                    result.switchOverhead += contextSwitch;
+                    for (; idx < n && w.getArrivalTime(idx) <= time; idx++, queued++) {
+                        w.setLink(tail, idx);
+                        tail = idx;
+                    }
+                }
+                current = head;
+                head = w.link(current);
+                if (head == -1) tail = -1;
+                w.setLink(current, -1);
+                queued--;
+                sliceRemaining = timeQuantum;
+                dispatched = true;
+                if (w.getStartTime(current) == -1) w.setStartTime(current, time);
+                recorder.record(time, current, FlightRecorder.Event.DISPATCH, queued, FlightRecorder.Cause.FIFO);
+            }
+
+            // Run until the slice or burst ends or the next arrival
+            long remaining = w.remaining(current);
+            long nextArrival = idx < n ? w.getArrivalTime(idx) : Long.MAX_VALUE;
+            long runFor = Math.max(1, Math.min(Math.min(sliceRemaining, remaining), nextArrival - time));
+            remaining = Math.max(0, remaining - runFor);
+            w.setRemaining(current, remaining);
+            sliceRemaining -= runFor;
+            cpuTime += runFor;
+            time += runFor;
+
+            if (remaining == 0) {
+                w.complete(current, time);
+                long waiting = w.getWaitingTime(current);
+                long turnaround = w.getTurnaroundTime(current);
+                totalWait += waiting;
+                totalTurn += turnaround;
+                recorder.complete(time, current, queued, waiting, turnaround);
+                current = -1;
+                sliceRemaining = 0;
             }
-            totalWait += w;
-            totalTurn += t;
         }
-        result.averageWaiting = processes.isEmpty() ? 0 : totalWait / processes.size();
-        result.averageTurnaround = processes.isEmpty() ? 0 : totalTurn / processes.size();
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
 
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        if (time > 0) result.cpuUtilization = (double) cpuTime / time;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
         return result;
     }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        readyQueue.clear();
+    }
 }
@@ -1,37 +1,71 @@
 import java.util.*;
+import java.util.function.Consumer;
 
 public class SJFScheduler implements Scheduler {
+    // Shortest Remaining Time First, then Earliest Arrival
+    private static final Comparator<Process> SHORTEST_REMAINING = (a, b) -> {
+        if (a.getRemainingTime() != b.getRemainingTime()) {
+            return Long.compare(a.getRemainingTime(), b.getRemainingTime());
+        }
+        return Long.compare(a.getArrivalTime(), b.getArrivalTime());
+    };
+
+    // Working state retained between runs (see Scheduler.reset)
+    private final ProcessPool pool = new ProcessPool();
+    private final PriorityQueue<Process> readyQueue = new PriorityQueue<>(SHORTEST_REMAINING);
+    private final Consumer<Process> enqueue = readyQueue::add;
+    private final IODevices devices = new IODevices();
+    private final FlightRecorder recorder = new FlightRecorder("SJF");
 
     @Override
     public ScheduleResult schedule(Process[] processes, int contextSwitch) {
-        // 1. Initialize result and process objects
-        ScheduleResult result = new ScheduleResult();
-        List<Process> processList = new ArrayList<>();
-        for (Process p : processes) {
-            processList.add(new Process(p.getProcessName(), p.getArrivalTime(), p.getBurstTime(), p.getPriority(), p.getQuantum()));
-        }
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        // 1. Initialize result and process objects, in arrival order (stable, so ties keep input order)
+        result.reset();
+        result.startPhases();
+        List<Process> processList = pool.copyOf(processes);
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        pool.sortByArrival(processList);
+        result.endPhase(ScheduleResult.Phase.SORT);
+        devices.reset();
 
         // 2. Setup Queue: Shortest Remaining Time First, then Earliest Arrival
-        PriorityQueue<Process> readyQueue = new PriorityQueue<>((a, b) -> {
-            if (a.getRemainingTime() != b.getRemainingTime()) {
-                return Integer.compare(a.getRemainingTime(), b.getRemainingTime());
-            }
-            return Integer.compare(a.getArrivalTime(), b.getArrivalTime());
-        });
+        readyQueue.clear();
 
-        int currentTime = 0;
+        long currentTime = 0;
         int completedCount = 0;
+        double totalWait = 0, totalTurn = 0;
         int n = processList.size();
+        int nextArrival = 0; // index into processList of the next process to arrive
         Process currentProcess = null;
         String lastProcessName = null; 
+        Process lastProcess = null;
+        boolean recheck = false; // queue changed during a context switch: run one unit, then re-check
 
+        // Time advances from event to event (arrival, I/O completion, burst end);
+        // between events neither the queue nor the choice of process can change
         while (completedCount < n) {
-            //Check for Arrivals 
-            for (Process p : processList) {
-                if (p.getArrivalTime() == currentTime && !readyQueue.contains(p) && p.getRemainingTime() > 0 && p != currentProcess) {
-                    readyQueue.add(p);
-                }
-            }
+            //Check for Arrivals, then processes finishing I/O rejoin with their next CPU burst
+            nextArrival = admit(processList, nextArrival, currentTime);
+            devices.advance(currentTime, enqueue);
 
             //Preemption Check 
             // If we have a current process, check if someone in the queue is shorter
@@ -39,6 +73,8 @@ public class SJFScheduler implements Scheduler {
                 Process bestInQueue = readyQueue.peek();
                 if (bestInQueue.getRemainingTime() < currentProcess.getRemainingTime()) {
                     readyQueue.add(currentProcess);
+                    recorder.record(currentTime, currentProcess.getProcessName(), FlightRecorder.Event.PREEMPT,
+                            readyQueue.size(), FlightRecorder.Cause.SHORTER_JOB);
                     currentProcess = null; 
                 }
             }
@@ -49,14 +85,16 @@ public class SJFScheduler implements Scheduler {
 
                 // Check if this is a context switch (different from last process, and not the first run)
                 if (lastProcessName != null && !selected.getProcessName().equals(lastProcessName)) {
-                    for (int i = 0; i < contextSwitch; i++) {
-                        currentTime++;
-                        for (Process p : processList) {
-                            if (p.getArrivalTime() == currentTime && !readyQueue.contains(p) && p.getRemainingTime() > 0 && p != selected) {
-                                readyQueue.add(p);
-                            }
-                        }
+                    int queued = readyQueue.size();
+                    long cost = switchCost.cost(lastProcess.getPosition(), selected.getPosition(), currentTime);
+                    result.switchOverhead += cost;
+                    long switchEnd = currentTime + cost;
+                    while (currentTime < switchEnd) {
+                        currentTime = Math.min(switchEnd, nextEvent(processList, nextArrival));
+                        nextArrival = admit(processList, nextArrival, currentTime);
+                        devices.advance(currentTime, enqueue);
                     }
+                    recheck = readyQueue.size() > queued;
                 }
 
                 currentProcess = selected;
@@ -70,44 +108,219 @@ public class SJFScheduler implements Scheduler {
                 if (lastProcessName == null || !currentProcess.getProcessName().equals(lastProcessName)) {
                     result.executionOrder.add(currentProcess.getProcessName());
                     lastProcessName = currentProcess.getProcessName();
+                    lastProcess = currentProcess;
+                    recorder.record(currentTime, lastProcessName, FlightRecorder.Event.DISPATCH, readyQueue.size(),
+                            FlightRecorder.Cause.SHORTEST_REMAINING);
                 }
             }
 
             //Execution 
             if (currentProcess != null) {
-                currentProcess.consumeCpu(1);
-                currentTime++;
+                long run = Math.min(currentProcess.getRemainingTime(), nextEvent(processList, nextArrival) - currentTime);
+                run = recheck ? 1 : Math.max(run, 1);
+                recheck = false;
+                currentProcess.consumeCpu(run);
+                devices.cpuBusy(currentTime, currentTime + run);
+                currentTime += run;
 
-                if (currentProcess.isCompleted()) {
+                if (currentProcess.hasPendingIo()) {
+                    // CPU burst done: block on the I/O device, CPU becomes free
+                    devices.submit(currentProcess, currentTime);
+                    recorder.record(currentTime, currentProcess.getProcessName(), FlightRecorder.Event.BLOCK,
+                            readyQueue.size(), FlightRecorder.Cause.IO);
+                    currentProcess = null;
+                } else if (currentProcess.isCompleted()) {
                     currentProcess.setCompletionTime(currentTime);
 
-                    int turnaround = currentProcess.getCompletionTime() - currentProcess.getArrivalTime();
-                    int waiting = turnaround - currentProcess.getBurstTime();
+                    long turnaround = currentProcess.getCompletionTime() - currentProcess.getArrivalTime();
+                    long waiting = turnaround - currentProcess.getBurstTime() - currentProcess.getBlockedTime();
 
-                    result.waitingTimes.put(currentProcess.getProcessName(), waiting);
-                    result.turnaroundTimes.put(currentProcess.getProcessName(), turnaround);
+                    result.waitingTimes.putLong(currentProcess.getProcessName(), waiting);
+                    result.turnaroundTimes.putLong(currentProcess.getProcessName(), turnaround);
+                    totalWait += waiting;
+                    totalTurn += turnaround;
+                    recorder.complete(currentTime, currentProcess.getProcessName(), readyQueue.size(), waiting, turnaround);
 
                     completedCount++;
                     currentProcess = null; // Process done, CPU becomes free
 
                 }
             } else {
-                currentTime++;   // CPU is idle
+                recorder.record(currentTime, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                currentTime = nextEvent(processList, nextArrival);   // CPU is idle
             }
         }
 
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
         // 3. Calculate Averages
-        double totalWait = 0, totalTurn = 0;
-        for (Integer w : result.waitingTimes.values()){    
-        totalWait += w;
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        devices.report(result, currentTime);
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    // Queue every process arriving by currentTime; returns the new arrival index
+    private int admit(List<Process> processList, int next, long currentTime) {
+        while (next < processList.size() && processList.get(next).getArrivalTime() <= currentTime) {
+            readyQueue.add(processList.get(next++));
         }
-        for (Integer t : result.turnaroundTimes.values()) {
-            totalTurn += t;
+        return next;
+    }
+
+    // Earliest pending arrival or I/O completion, Long.MAX_VALUE when there is none
+    private long nextEvent(List<Process> processList, int next) {
+        long arrival = next < processList.size() ? processList.get(next).getArrivalTime() : Long.MAX_VALUE;
+        return Math.min(arrival, devices.nextCompletion());
+    }
+
+    @Override
+    public boolean supportsOffHeap() {
+        return true;
+    }
+
+    @Override
+    public ScheduleResult schedule(OffHeapWorkload workload, long contextSwitch) {
+        ScheduleResult result = new ScheduleResult();
+        return recorder.run(workload.size(), result, () -> simulate(workload, contextSwitch, result));
+    }
+
+    // The same policy over off-heap records, which are already in arrival order and have no
+    // I/O. The ready queue is a binary heap laid out in the workload's link column (slot k
+    // holds a process position) and sifted exactly as PriorityQueue does, so ties resolve
+    // as they do on the heap.
+    private ScheduleResult simulate(OffHeapWorkload w, long contextSwitch, ScheduleResult result) {
+        result.startPhases();
+        w.resetResults();
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        int n = w.size();
+        int queued = 0;
+        int completedCount = 0;
+        long currentTime = 0, cpuTime = 0;
+        double totalWait = 0, totalTurn = 0;
+        int nextArrival = 0;
+        int current = -1;
+        int last = -1;
+        boolean recheck = false;
+
+        while (completedCount < n) {
+            for (; nextArrival < n && w.getArrivalTime(nextArrival) <= currentTime; nextArrival++) {
+                push(w, queued++, nextArrival);
+            }
+
+            if (current != -1 && queued > 0 && w.remaining(w.link(0)) < w.remaining(current)) {
+                push(w, queued++, current);
+                recorder.record(currentTime, current, FlightRecorder.Event.PREEMPT, queued,
+                        FlightRecorder.Cause.SHORTER_JOB);
+                current = -1;
+            }
+
+            if (current == -1 && queued > 0) {
+                int selected = poll(w, queued--);
+                if (last != -1 && selected != last) {
+                    int before = queued;
+                    if (contextSwitch > 0) {
+                        currentTime += contextSwitch;
+                        result.switchOverhead += contextSwitch;
+                        for (; nextArrival < n && w.getArrivalTime(nextArrival) <= currentTime; nextArrival++) {
+                            push(w, queued++, nextArrival);
+                        }
+                    }
+                    recheck = queued > before;
+                }
+                current = selected;
+                if (w.getStartTime(current) == -1) w.setStartTime(current, currentTime);
+                if (current != last) {
+                    last = current;
+                    recorder.record(currentTime, current, FlightRecorder.Event.DISPATCH, queued,
+                            FlightRecorder.Cause.SHORTEST_REMAINING);
+                }
+            }
+
+            long arrival = nextArrival < n ? w.getArrivalTime(nextArrival) : Long.MAX_VALUE;
+            if (current != -1) {
+                long remaining = w.remaining(current);
+                long run = recheck ? 1 : Math.max(Math.min(remaining, arrival - currentTime), 1);
+                recheck = false;
+                remaining = Math.max(0, remaining - run);
+                w.setRemaining(current, remaining);
+                cpuTime += run;
+                currentTime += run;
+                if (remaining == 0) {
+                    w.complete(current, currentTime);
+                    long waiting = w.getWaitingTime(current);
+                    long turnaround = w.getTurnaroundTime(current);
+                    totalWait += waiting;
+                    totalTurn += turnaround;
+                    recorder.complete(currentTime, current, queued, waiting, turnaround);
+                    completedCount++;
+                    current = -1;
+                }
+            } else {
+                recorder.record(currentTime, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                currentTime = arrival;
+            }
         }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
 
         result.averageWaiting = n == 0 ? 0 : totalWait / n;
         result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
-
+        if (currentTime > 0) result.cpuUtilization = (double) cpuTime / currentTime;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
         return result;
     }
-}
\ No newline at end of file
+
+    // SHORTEST_REMAINING over off-heap records
+    private static boolean shorter(OffHeapWorkload w, int a, int b) {
+        long ra = w.remaining(a), rb = w.remaining(b);
+        return ra != rb ? ra < rb : w.getArrivalTime(a) < w.getArrivalTime(b);
+    }
+
+    // Add process p to the heap of 'size' entries
+    private static void push(OffHeapWorkload w, int size, int p) {
+        int k = size;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int e = w.link(parent);
+            if (!shorter(w, p, e)) break;
+            w.setLink(k, e);
+            k = parent;
+        }
+        w.setLink(k, p);
+    }
+
+    // Remove the top of the heap of 'size' entries
+    private static int poll(OffHeapWorkload w, int size) {
+        int top = w.link(0);
+        int n = size - 1;
+        int x = w.link(n);
+        if (n > 0) {
+            int k = 0;
+            int half = n >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int c = w.link(child);
+                int right = child + 1;
+                if (right < n && shorter(w, w.link(right), c)) c = w.link(child = right);
+                if (!shorter(w, c, x)) break;
+                w.setLink(k, c);
+                k = child;
+            }
+            w.setLink(k, x);
+        }
+        return top;
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        pool.release();
+        readyQueue.clear();
+    }
+}
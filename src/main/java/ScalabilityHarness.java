@@ -0,0 +1,413 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Measures how each scheduler's cost grows with workload size.
+ *
+ * Every scheduler runs on generated workloads of doubling size, starting at
+ * {@value #MIN_SIZE} processes, under three arrival regimes (offered load
+ * below, at and above CPU capacity). Doubling stops at the size limit, when
+ * the next size would not fit the memory budget, or when the next run is
+ * predicted to exceed the per-run time limit. Each size records wall time
+ * (best of a few runs for small sizes), peak heap and GC time. A least-squares
+ * fit of log(time) against log(size) gives the empirical growth exponent:
+ * about 1 for linear and n log n engines, 2 for quadratic ones.
+ *
+ * The JSON report doubles as a baseline: comparing a run against an earlier
+ * report flags curves whose exponent grew by more than the tolerance, so a
+ * policy that turns quadratic is caught on any machine.
+ */
+public final class ScalabilityHarness {
+    static final int MIN_SIZE = 1000;
+    private static final int MEAN_BURST = 10;
+    private static final int AG_QUANTUM = 4;
+    // Runs faster than this are too noisy to fit
+    private static final double FIT_FLOOR_MILLIS = 5;
+    // Small sizes are repeated up to this many times, or until this much time is spent
+    private static final int MAX_REPEATS = 5;
+    private static final double REPEAT_MILLIS = 200;
+
+    /** Arrival regimes, as offered load relative to one CPU. */
+    public enum Regime {
+        SPARSE(0.3), SATURATED(1.0), OVERLOADED(2.0);
+
+        final double load;
+
+        Regime(double load) {
+            this.load = load;
+        }
+    }
+
+    /** Measurements at one size. */
+    public static final class Point {
+        public final int size;
+        public final double wallMillis;
+        public final long peakHeapBytes;
+        public final long gcMillis;
+        // Engine phase times of the fastest run, indexed by ScheduleResult.Phase ordinal
+        public final long[] phaseNanos;
+
+        Point(int size, double wallMillis, long peakHeapBytes, long gcMillis, long[] phaseNanos) {
+            this.size = size;
+            this.wallMillis = wallMillis;
+            this.peakHeapBytes = peakHeapBytes;
+            this.gcMillis = gcMillis;
+            this.phaseNanos = phaseNanos;
+        }
+    }
+
+    /** One scheduler under one regime across sizes. */
+    public static final class Curve {
+        public final String scheduler;
+        public final Regime regime;
+        public final List<Point> points = new ArrayList<>();
+        public String stopReason;
+        public String error;
+
+        Curve(String scheduler, Regime regime) {
+            this.scheduler = scheduler;
+            this.regime = regime;
+        }
+
+        /** Fitted growth exponent, or NaN with fewer than two usable points. */
+        public double exponent() {
+            return fitExponent(points);
+        }
+
+        String key() {
+            return scheduler + "/" + regime.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final List<String> schedulers;
+    private final List<Regime> regimes;
+    private final TestCaseLoader.TestCase parameters;
+    private int maxSize = 1 << 24;
+    private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+    private long maxRunMillis = 10_000;
+    private long seed = 42;
+
+    /**
+     * @param parameters scheduler parameters as for {@link TestRunner#createScheduler}
+     */
+    public ScalabilityHarness(List<String> schedulers, List<Regime> regimes, TestCaseLoader.TestCase parameters) {
+        this.schedulers = new ArrayList<>(schedulers);
+        this.regimes = new ArrayList<>(regimes);
+        this.parameters = parameters;
+    }
+
+    public ScalabilityHarness maxSize(int processes) {
+        this.maxSize = processes;
+        return this;
+    }
+
+    /** Heap the largest run may need, including its workload; default half the maximum heap. */
+    public ScalabilityHarness memoryBudget(long bytes) {
+        this.memoryBudget = bytes;
+        return this;
+    }
+
+    /** Do not start a size whose predicted run time exceeds this. */
+    public ScalabilityHarness maxRunMillis(long millis) {
+        this.maxRunMillis = millis;
+        return this;
+    }
+
+    public ScalabilityHarness seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * A reproducible workload of {@code n} processes: bursts uniform in
+     * 1..{@code 2*MEAN_BURST-1}, exponential inter-arrival gaps sized for the
+     * regime's load, priorities 1..10, an AG quantum of {@value #AG_QUANTUM},
+     * deadlines of four bursts and 50..200 tickets.
+     */
+    public static ProcessSpec[] workload(int n, Regime regime, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double meanGap = MEAN_BURST / regime.load;
+        ProcessSpec[] workload = new ProcessSpec[n];
+        double arrival = 0;
+        for (int i = 0; i < n; i++) {
+            long burst = 1 + random.nextInt(2 * MEAN_BURST - 1);
+            workload[i] = new ProcessSpec("P" + i, (long) arrival, burst, 1 + random.nextInt(10), AG_QUANTUM,
+                    4 * burst, 0, 50 + random.nextInt(151));
+            arrival += -Math.log(1 - random.nextDouble()) * meanGap;
+        }
+        return workload;
+    }
+
+    public List<Curve> run() {
+        List<Curve> curves = new ArrayList<>();
+        for (String scheduler : schedulers) {
+            for (Regime regime : regimes) {
+                Curve curve = measure(scheduler, regime);
+                curves.add(curve);
+                System.err.printf("%-20s exponent %.2f (%s)%n", curve.key(), curve.exponent(),
+                        curve.error != null ? curve.error : curve.stopReason);
+            }
+        }
+        return curves;
+    }
+
+    public Curve measure(String type, Regime regime) {
+        Curve curve = new Curve(type, regime);
+        Scheduler scheduler = TestRunner.createScheduler(type, parameters);
+        if (scheduler == null) {
+            curve.error = "Unknown scheduler: " + type;
+            return curve;
+        }
+        try {
+            // warm up the JIT on the smallest size so the first point is not interpreted code
+            scheduler.schedule(workload(MIN_SIZE, regime, seed), parameters.contextSwitch, new ScheduleResult());
+            for (int n = MIN_SIZE; ; n *= 2) {
+                Point p = measure(scheduler, n, regime);
+                curve.points.add(p);
+                if (n > maxSize / 2) {
+                    curve.stopReason = "size limit";
+                    break;
+                }
+                // memory grows at least linearly; time at the rate of the last doubling
+                if (p.peakHeapBytes * 2 > memoryBudget) {
+                    curve.stopReason = "memory budget";
+                    break;
+                }
+                double growth = Math.max(1, localExponent(curve.points));
+                if (p.wallMillis * Math.pow(2, growth) > maxRunMillis) {
+                    curve.stopReason = "time limit";
+                    break;
+                }
+            }
+        } catch (OutOfMemoryError e) {
+            curve.stopReason = "out of memory";
+        } catch (RuntimeException e) {
+            curve.error = e.toString();
+        }
+        return curve;
+    }
+
+    private Point measure(Scheduler scheduler, int n, Regime regime) {
+        ProcessSpec[] workload = workload(n, regime, seed);
+        ScheduleResult result = new ScheduleResult();
+        double best = Double.MAX_VALUE;
+        long peak = 0;
+        long gc = 0;
+        long[] phases = new long[ScheduleResult.Phase.values().length];
+        double spent = 0;
+        for (int i = 0; i < MAX_REPEATS && (i == 0 || spent < REPEAT_MILLIS); i++) {
+            scheduler.reset();
+            result.reset();
+            System.gc();
+            resetPeakHeap();
+            long gcBefore = gcMillis();
+            long start = System.nanoTime();
+            ScheduleResult r = scheduler.schedule(workload, parameters.contextSwitch, result);
+            double millis = (System.nanoTime() - start) / 1e6;
+            spent += millis;
+            if (millis < best) {
+                best = millis;
+                gc = gcMillis() - gcBefore;
+                System.arraycopy(r.phaseNanos, 0, phases, 0, phases.length);
+            }
+            peak = Math.max(peak, peakHeap());
+        }
+        scheduler.reset();
+        return new Point(n, best, peak, gc, phases);
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    // Sum of per-pool peaks: an upper bound, as pools peak at different moments
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /** Slope of log(time) over log(size) for points above the timing noise floor. */
+    static double fitExponent(List<Point> points) {
+        int n = 0;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (Point p : points) {
+            if (p.wallMillis < FIT_FLOOR_MILLIS) continue;
+            double x = Math.log(p.size);
+            double y = Math.log(p.wallMillis);
+            n++;
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        if (n < 2) return Double.NaN;
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    // Growth over the last doubling, for predicting the next run
+    private static double localExponent(List<Point> points) {
+        if (points.size() < 2) return 1;
+        Point a = points.get(points.size() - 2);
+        Point b = points.get(points.size() - 1);
+        if (a.wallMillis < FIT_FLOOR_MILLIS) return 1;
+        return Math.log(b.wallMillis / a.wallMillis) / Math.log((double) b.size / a.size);
+    }
+
+    public static JSONObject toJson(List<Curve> curves) {
+        JSONObject json = new JSONObject();
+        json.put("javaVersion", System.getProperty("java.version"));
+        json.put("processors", Runtime.getRuntime().availableProcessors());
+        json.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        JSONArray array = new JSONArray();
+        for (Curve c : curves) {
+            JSONObject curve = new JSONObject();
+            curve.put("scheduler", c.scheduler);
+            curve.put("regime", c.regime.name().toLowerCase(Locale.ROOT));
+            double exponent = c.exponent();
+            if (!Double.isNaN(exponent)) curve.put("exponent", Math.round(exponent * 1000) / 1000.0);
+            if (c.stopReason != null) curve.put("stopReason", c.stopReason);
+            if (c.error != null) curve.put("error", c.error);
+            JSONArray points = new JSONArray();
+            for (Point p : c.points) {
+                JSONObject phases = new JSONObject();
+                for (ScheduleResult.Phase phase : ScheduleResult.Phase.values()) {
+                    phases.put(phase.name().toLowerCase(Locale.ROOT), Math.round(p.phaseNanos[phase.ordinal()] / 1e3) / 1e3);
+                }
+                points.put(new JSONObject()
+                        .put("size", p.size)
+                        .put("wallMillis", Math.round(p.wallMillis * 1000) / 1000.0)
+                        .put("peakHeapBytes", p.peakHeapBytes)
+                        .put("gcMillis", p.gcMillis)
+                        .put("phaseMillis", phases));
+            }
+            curve.put("points", points);
+            array.put(curve);
+        }
+        json.put("curves", array);
+        return json;
+    }
+
+    /**
+     * Regressions of {@code curves} against an earlier report: a growth
+     * exponent more than {@code tolerance} above the baseline's, or a curve
+     * that now fails. Curves missing from either side are ignored.
+     */
+    public static List<String> compare(List<Curve> curves, JSONObject baseline, double tolerance) {
+        Map<String, JSONObject> before = new HashMap<>();
+        for (Object o : baseline.getJSONArray("curves")) {
+            JSONObject c = (JSONObject) o;
+            before.put(c.getString("scheduler") + "/" + c.getString("regime"), c);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Curve c : curves) {
+            JSONObject old = before.get(c.key());
+            if (old == null) continue;
+            if (c.error != null && !old.has("error")) {
+                regressions.add(c.key() + ": now fails with " + c.error);
+                continue;
+            }
+            double exponent = c.exponent();
+            if (old.has("exponent") && !Double.isNaN(exponent)
+                    && exponent > old.getDouble("exponent") + tolerance) {
+                regressions.add(String.format("%s: growth exponent %.2f, baseline %.2f",
+                        c.key(), exponent, old.getDouble("exponent")));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * {@code [option=value ...]}: schedulers (comma-separated, default
+     * RR,SJF,Priority,AG), regimes (sparse,saturated,overloaded), maxSize,
+     * memoryBudgetMb, maxRunMillis, seed, report (output file, default
+     * stdout), baseline (earlier report to compare with), tolerance (default
+     * 0.3); anything else is a scheduler parameter. Exits with status 1 when a
+     * regression against the baseline is found.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> schedulers = Arrays.asList("RR", "SJF", "Priority", "AG");
+        List<Regime> regimes = Arrays.asList(Regime.values());
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> parameters = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Expected option=value: " + arg);
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "schedulers":
+                    schedulers = Arrays.asList(value.split(","));
+                    break;
+                case "regimes":
+                    regimes = new ArrayList<>();
+                    for (String r : value.split(",")) {
+                        regimes.add(Regime.valueOf(r.trim().toUpperCase(Locale.ROOT)));
+                    }
+                    break;
+                case "maxSize":
+                case "memoryBudgetMb":
+                case "maxRunMillis":
+                case "seed":
+                case "report":
+                case "baseline":
+                case "tolerance":
+                    options.put(key, value);
+                    break;
+                default:
+                    parameters.put(key, value);
+            }
+        }
+
+        ScalabilityHarness harness = new ScalabilityHarness(schedulers, regimes,
+                TestCaseLoader.parseParameters(parameters));
+        if (options.containsKey("maxSize")) harness.maxSize(Integer.parseInt(options.get("maxSize")));
+        if (options.containsKey("memoryBudgetMb")) {
+            harness.memoryBudget(Long.parseLong(options.get("memoryBudgetMb")) << 20);
+        }
+        if (options.containsKey("maxRunMillis")) harness.maxRunMillis(Long.parseLong(options.get("maxRunMillis")));
+        if (options.containsKey("seed")) harness.seed(Long.parseLong(options.get("seed")));
+
+        List<Curve> curves = harness.run();
+        String report = toJson(curves).toString(2);
+        if (options.containsKey("report")) {
+            Files.write(Paths.get(options.get("report")), report.getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.println(report);
+        }
+
+        if (options.containsKey("baseline")) {
+            Path baseline = Paths.get(options.get("baseline"));
+            JSONObject old = new JSONObject(new String(Files.readAllBytes(baseline), StandardCharsets.UTF_8));
+            double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.3"));
+            List<String> regressions = compare(curves, old, tolerance);
+            for (String r : regressions) {
+                System.err.println("REGRESSION " + r);
+            }
+            if (!regressions.isEmpty()) System.exit(1);
+            System.err.println("No regressions against " + baseline);
+        }
+    }
+}
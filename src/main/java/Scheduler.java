@@ -6,21 +6,230 @@ public interface Scheduler {
      *
      * @param processes array of processes to schedule
      * @param contextSwitch the fixed context switch delay applied when switching between processes
+     *                      (see {@link ContextSwitchCost} for other models)
      * @return a ScheduleResult containing per-process metrics and execution order
      */
     ScheduleResult schedule(Process[] processes, int contextSwitch);
+
+    /**
+     * Execute scheduling into a caller-owned result, which is reset first.
+     * Schedulers that retain their working buffers between runs override this
+     * so repeated runs reuse both; the default allocates a fresh result.
+     *
+     * @return the result holding this run's metrics (not necessarily {@code into})
+     */
+    default ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult into) {
+        return schedule(processes, contextSwitch);
+    }
+
+    /**
+     * Execute scheduling on an immutable workload. The built-in schedulers read
+     * the specs directly and keep all runtime state in their own buffers, so the
+     * same array can be shared by concurrent runs on separate instances. The
+     * default builds {@link Process} views and delegates.
+     *
+     * @return the result holding this run's metrics (not necessarily {@code into})
+     */
+    default ScheduleResult schedule(ProcessSpec[] workload, int contextSwitch, ScheduleResult into) {
+        return schedule(Process.fromSpecs(workload), contextSwitch, into);
+    }
+
+    default ScheduleResult schedule(ProcessSpec[] workload, int contextSwitch) {
+        return schedule(workload, contextSwitch, new ScheduleResult());
+    }
+
+    /**
+     * Execute scheduling with a fixed delay that may exceed the int range, as
+     * long nanosecond or microsecond traces need. The default runs the int
+     * overload when the delay fits and {@link ContextSwitchCost#fixed}
+     * otherwise, so both give the same result for the same delay.
+     *
+     * @return the result holding this run's metrics (not necessarily {@code into})
+     */
+    default ScheduleResult schedule(ProcessSpec[] workload, long contextSwitch, ScheduleResult into) {
+        if (contextSwitch == (int) contextSwitch) return schedule(workload, (int) contextSwitch, into);
+        return schedule(workload, ContextSwitchCost.fixed(contextSwitch), into);
+    }
+
+    /**
+     * Execute scheduling with every context switch priced by {@code switchCost}
+     * instead of a fixed delay; the total is reported in
+     * {@link ScheduleResult#switchOverhead}. The built-in schedulers treat
+     * {@code contextSwitch} as {@link ContextSwitchCost#fixed}.
+     *
+     * @throws UnsupportedOperationException if the scheduler has no cost models
+     */
+    default ScheduleResult schedule(ProcessSpec[] workload, ContextSwitchCost switchCost, ScheduleResult into) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " has no context switch cost models");
+    }
+
+    /**
+     * Execute scheduling on a workload stored off-heap. Per-process results are
+     * written into the workload's result columns rather than the result's maps,
+     * so the returned result carries only the averages and CPU utilization (and
+     * no execution order), keeping the heap independent of the workload size.
+     *
+     * @throws UnsupportedOperationException if the scheduler has no off-heap engine
+     * @see #supportsOffHeap()
+     */
+    default ScheduleResult schedule(OffHeapWorkload workload, long contextSwitch) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot run off-heap workloads");
+    }
+
+    /**
+     * Whether {@link #schedule(OffHeapWorkload, long)} is implemented. Check it
+     * before loading a workload off-heap rather than failing after the import.
+     */
+    default boolean supportsOffHeap() {
+        return false;
+    }
+
+    /**
+     * Release buffers retained from previous runs. Instances that keep buffers
+     * are not thread-safe; use one instance per thread.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Recent scheduling decisions of the current or last run. Every built-in
+     * scheduler keeps one; the default has none.
+     */
+    default FlightRecorder getFlightRecorder() {
+        return null;
+    }
 }
 
 /**
  * Simple DTO for returning scheduling results.
  */
 class ScheduleResult {
+    /** Stages of one run, timed separately: everything but DISPATCH can use several cores. */
+    public enum Phase {
+        PREPARE,   // copying the workload into working buffers
+        SORT,      // ordering it by arrival
+        DISPATCH,  // the event loop itself, inherently sequential
+        AGGREGATE  // end-of-run metrics
+    }
+
+    /** Totals of one process group. */
+    public static final class Group {
+        public int weight;
+        public int processes;
+        public long cpuTime;
+        // Weight over the total weight of the groups in the run: the share while all are backlogged
+        public double entitledShare;
+        // Fraction of the CPU time won while every group was backlogged (the whole run if never)
+        public double achievedShare;
+        public double averageWaiting;
+        public double averageTurnaround;
+    }
+
+    /** Quantum in force from {@code time} on, set by AdaptiveRoundRobinScheduler. */
+    public static final class QuantumChange {
+        public final long time;
+        public final long quantum;
+
+        public QuantumChange(long time, long quantum) {
+            this.time = time;
+            this.quantum = quantum;
+        }
+
+        @Override
+        public String toString() {
+            return time + ":" + quantum;
+        }
+    }
+
     public java.util.List<String> executionOrder = new java.util.ArrayList<>();
-    public java.util.Map<String, Integer> waitingTimes = new java.util.HashMap<>();
-    public java.util.Map<String, Integer> turnaroundTimes = new java.util.HashMap<>();
+    public LongValueMap waitingTimes = new LongValueMap();
+    public LongValueMap turnaroundTimes = new LongValueMap();
+    // AG: read-only compact copy per process (QuantumHistory.snapshot), none when history is OFF
     public java.util.Map<String, List<Integer>> quantumHistory = new java.util.HashMap<>();
     public double averageWaiting;
     public double averageTurnaround;
+    // Fairness: largest vruntime spread (in nice-0 ticks) across the runnable set, set by FairShareScheduler
+    public double maxVruntimeLag;
+    // Real-time: completion minus absolute deadline per job (negative = early), set by EDFScheduler
+    public LongValueMap lateness = new LongValueMap();
+    public int deadlineMisses;
+    public long maxLateness;
+    public java.util.List<String> rejected = new java.util.ArrayList<>();
+    // Proportional share: entitled vs received fraction of the CPU over each process's lifetime
+    public DoubleValueMap requestedShare = new DoubleValueMap();
+    public DoubleValueMap achievedShare = new DoubleValueMap();
+    // CPU/I-O bursts: fraction of the run the CPU was busy, and busy while some device was too
+    public double cpuUtilization;
+    public double ioOverlap;
+    // Ticks spent switching context, the fixed delay or a ContextSwitchCost model
+    public long switchOverhead;
+    // Non-clairvoyant SJF: CPU bursts scored, mean |predicted - actual| and mean (predicted - actual)
+    public long predictedBursts;
+    public double predictionError;
+    public double predictionBias;
+    // Per process group (tenant), set by GroupScheduler, in order of first appearance
+    public java.util.Map<String, Group> groups = new java.util.LinkedHashMap<>();
+    // Adaptive round robin: each change of the quantum, in time order
+    public java.util.List<QuantumChange> quantumTrajectory = new java.util.ArrayList<>();
+    // Unit of every time above; engines are unit-agnostic, so callers label the result
+    public TimeScale timeUnit = TimeScale.TICKS;
+    // Wall time spent in each phase, indexed by Phase ordinal
+    public final long[] phaseNanos = new long[Phase.values().length];
+    private long phaseStart;
+
+    /** Clear all metrics, keeping collection capacity for reuse. */
+    public void reset() {
+        executionOrder.clear();
+        waitingTimes.clear();
+        turnaroundTimes.clear();
+        quantumHistory.clear();
+        averageWaiting = 0;
+        averageTurnaround = 0;
+        maxVruntimeLag = 0;
+        lateness.clear();
+        deadlineMisses = 0;
+        maxLateness = 0;
+        rejected.clear();
+        requestedShare.clear();
+        achievedShare.clear();
+        cpuUtilization = 0;
+        ioOverlap = 0;
+        switchOverhead = 0;
+        predictedBursts = 0;
+        predictionError = 0;
+        predictionBias = 0;
+        groups.clear();
+        quantumTrajectory.clear();
+        timeUnit = TimeScale.TICKS;
+        Arrays.fill(phaseNanos, 0);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /** Start timing the first phase of a run. */
+    void startPhases() {
+        phaseStart = System.nanoTime();
+    }
+
+    /** Charge the time since the previous phase ended (or {@link #startPhases}) to {@code phase}. */
+    void endPhase(Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - phaseStart;
+        phaseStart = now;
+    }
+
+    /**
+     * Rough heap held by the per-process collections, for monitoring. May be
+     * called while a run is filling them; the figure is then slightly stale.
+     */
+    long estimateBytes() {
+        // list slots plus the per-name maps; names are shared with the workload
+        return 16 + executionOrder.size() * 4L + waitingTimes.footprint() + turnaroundTimes.footprint()
+                + lateness.footprint() + rejected.size() * 4L + quantumTrajectory.size() * 36L
+                + requestedShare.footprint() + achievedShare.footprint() + quantumHistory.size() * 48L;
+    }
 
     @Override
     public String toString() {
@@ -29,6 +238,31 @@ class ScheduleResult {
         sb.append("Waiting Times: ").append(waitingTimes).append('\n');
         sb.append("Turnaround Times: ").append(turnaroundTimes).append('\n');
         sb.append(String.format("Averages -> Waiting: %.2f, Turnaround: %.2f", averageWaiting, averageTurnaround));
+        if (timeUnit != TimeScale.TICKS) {
+            sb.append(" (").append(timeUnit.symbol()).append(')');
+        }
+        if (ioOverlap > 0) {
+            sb.append(String.format("%nCPU Utilization: %.2f, I/O Overlap: %.2f", cpuUtilization, ioOverlap));
+        }
+        if (!lateness.isEmpty() || !rejected.isEmpty()) {
+            sb.append(String.format("%nDeadline Misses: %d, Max Lateness: %d", deadlineMisses, maxLateness));
+            sb.append("\nLateness: ").append(lateness);
+            sb.append("\nRejected: ").append(rejected);
+        }
+        if (!requestedShare.isEmpty()) {
+            sb.append("\nRequested Share: ").append(requestedShare);
+            sb.append("\nAchieved Share: ").append(achievedShare);
+        }
+        if (maxVruntimeLag > 0) {
+            sb.append(String.format("%nMax vruntime lag: %.2f", maxVruntimeLag));
+        }
+        if (!quantumTrajectory.isEmpty()) {
+            sb.append("\nQuantum Trajectory (time:quantum): ").append(quantumTrajectory);
+        }
+        if (predictedBursts > 0) {
+            sb.append(String.format("%nBurst Prediction Error: %.2f (bias %.2f over %d bursts)",
+                    predictionError, predictionBias, predictedBursts));
+        }
         return sb.toString();
     }
 }
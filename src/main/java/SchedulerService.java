@@ -0,0 +1,448 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Embedded HTTP front end for the simulator, built on the JDK's HttpServer so
+ * other tools can run schedules without starting a JVM per request.
+ *
+ * Endpoints:
+ * <ul>
+ *   <li>{@code POST /schedule?scheduler=RR,SJF} - one workload, either a test
+ *       case / test-case "input" object as JSON, or a {@link WorkloadCodec}
+ *       stream with {@code Content-Type: application/octet-stream}. Other
+ *       query parameters (rrQuantum, contextSwitch, ...) override the input's.
+ *       Responds with one NDJSON line per scheduler, flushed as each run ends.</li>
+ *   <li>{@code POST /batch?scheduler=...} - a JSON array of workloads, run
+ *       concurrently; one NDJSON line per workload and scheduler, tagged with
+ *       the workload's index, in completion order. An item's own
+ *       "scheduler" field overrides the query. The batch is admitted as one
+ *       request and runs its items on the slots free at that moment.</li>
+ *   <li>{@code GET /metrics} - per-endpoint latency percentiles and counters.</li>
+ *   <li>{@code GET /health}</li>
+ * </ul>
+ *
+ * At most {@code maxConcurrent} workloads are scheduled at once. Up to
+ * {@code maxQueued} more wait up to {@code queueTimeoutMillis} for a slot;
+ * beyond that, requests are refused with 503 and Retry-After so callers back
+ * off instead of piling up. Handlers run on virtual threads when the runtime
+ * provides them (JDK 21+), otherwise on bounded platform thread pools.
+ */
+public class SchedulerService {
+    private static final int MAX_BODY_BYTES = 64 << 20;
+    private static final int MAX_BATCH = 10_000;
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ExecutorService workers;
+    private final boolean virtualThreads;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Map<String, LatencyMetrics> metrics = new LinkedHashMap<>();
+
+    /** Thrown by handlers to answer with an HTTP error status. */
+    private static class ServiceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        /** Handle the exchange and return the response status. */
+        int handle(HttpExchange exchange) throws Exception;
+    }
+
+    /**
+     * @param address where to listen; port 0 picks a free port (see {@link #getPort()})
+     * @param maxConcurrent workloads scheduled at the same time
+     * @param maxQueued workloads allowed to wait for a slot before requests are refused
+     * @param queueTimeoutMillis how long a queued workload waits before it is refused
+     */
+    public SchedulerService(InetSocketAddress address, int maxConcurrent, int maxQueued, long queueTimeoutMillis)
+            throws IOException {
+        if (maxConcurrent <= 0 || maxQueued < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive and queue settings non-negative");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.permits = new Semaphore(maxConcurrent);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtualThreads) {
+            this.handlers = virtual;
+            this.workers = newVirtualThreadExecutor();
+        } else {
+            // Enough handler threads for every running and queued request, plus a few for /metrics
+            this.handlers = Executors.newFixedThreadPool(maxConcurrent + maxQueued + 4, daemonThreads("scheduler-http"));
+            this.workers = Executors.newFixedThreadPool(maxConcurrent, daemonThreads("scheduler-batch"));
+        }
+
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(handlers);
+        endpoint("/schedule", "POST", this::handleSchedule);
+        endpoint("/batch", "POST", this::handleBatch);
+        endpoint("/metrics", "GET", this::handleMetrics);
+        endpoint("/health", "GET", exchange -> sendText(exchange, 200, "text/plain", "ok\n"));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stop accepting requests, waiting up to {@code delaySeconds} for exchanges in progress. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        handlers.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when running on JDK 21+; the build targets Java 11
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private void endpoint(String path, String method, Handler handler) {
+        LatencyMetrics latency = new LatencyMetrics();
+        metrics.put(path, latency);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            int status = 500;
+            try {
+                if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    status = sendError(exchange, 405, "Use " + method);
+                } else {
+                    status = handler.handle(exchange);
+                }
+            } catch (ServiceException e) {
+                status = sendError(exchange, e.status, e.getMessage());
+            } catch (JSONException | IllegalArgumentException e) {
+                status = sendError(exchange, 400, "Malformed workload: " + e.getMessage());
+            } catch (Exception e) {
+                status = sendError(exchange, 500, e.toString());
+            } finally {
+                exchange.close();
+                latency.record(System.nanoTime() - start, status);
+            }
+        });
+    }
+
+
+    private int handleSchedule(HttpExchange exchange) throws Exception {
+        Map<String, String> query = parseQuery(exchange);
+        if (!acquire()) {
+            throw overloaded();
+        }
+        try {
+            byte[] body = readBody(exchange);
+            TestCaseLoader.TestCase testCase;
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            if (contentType != null && contentType.startsWith("application/octet-stream")) {
+                testCase = toTestCase(new JSONObject(), query, "request");
+                try {
+                    testCase.workload = WorkloadCodec.read(new DataInputStream(new ByteArrayInputStream(body)));
+                } catch (IOException e) {
+                    throw new ServiceException(400, "Malformed binary workload: " + e.getMessage());
+                }
+            } else {
+                JSONObject json = new JSONObject(new String(body, StandardCharsets.UTF_8));
+                testCase = toTestCase(json, query, "request");
+            }
+            // Resolve every scheduler before the 200 goes out, so bad names are still a 400
+            List<String> types = schedulerTypes(query.get("scheduler"), testCase);
+
+            exchange.getResponseHeaders().set("Content-Type", NDJSON);
+            exchange.sendResponseHeaders(200, 0);
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            for (String type : types) {
+                writeRun(out, -1, testCase, type);
+                out.flush();
+            }
+            out.close();
+            return 200;
+        } finally {
+            permits.release();
+        }
+    }
+
+
+    private int handleBatch(HttpExchange exchange) throws Exception {
+        Map<String, String> query = parseQuery(exchange);
+        // Admission happens once for the whole batch, before its body is buffered or parsed. Its
+        // permit runs one lane and any permits free once parsed run more, so items never wait in
+        // (or overflow) the request queue
+        if (!acquire()) {
+            throw overloaded();
+        }
+        int lanes = 1;
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> running = new ArrayList<>();
+        List<TestCaseLoader.TestCase> cases = new ArrayList<>();
+        try {
+            JSONArray items = new JSONArray(new String(readBody(exchange), StandardCharsets.UTF_8));
+            if (items.length() > MAX_BATCH) {
+                throw new ServiceException(413, "Batch holds " + items.length() + " workloads, limit is " + MAX_BATCH);
+            }
+            List<List<String>> types = new ArrayList<>(items.length());
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                TestCaseLoader.TestCase testCase = toTestCase(item, query, "item-" + i);
+                cases.add(testCase);
+                types.add(schedulerTypes(item.optString("scheduler", query.get("scheduler")), testCase));
+            }
+
+            while (lanes < cases.size() && permits.tryAcquire()) lanes++;
+            BlockingQueue<String> done = new LinkedBlockingQueue<>();
+            for (int lane = 0; lane < lanes; lane++) {
+                running.add(workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < cases.size(); i = next.getAndIncrement()) {
+                        done.add(runBatchItem(i, cases.get(i), types.get(i)));
+                    }
+                }));
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", NDJSON);
+            exchange.sendResponseHeaders(200, 0);
+            Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            for (int i = 0; i < cases.size(); i++) {
+                out.write(done.take());
+                out.flush();
+            }
+            out.close();
+            return 200;
+        } finally {
+            // the permits cover the lanes, so they go back only once every lane has stopped
+            next.set(cases.size());
+            for (Future<?> lane : running) {
+                try {
+                    lane.get();
+                } catch (ExecutionException e) {
+                    // runBatchItem reports failures as error lines; nothing else can fail here
+                }
+            }
+            permits.release(lanes);
+        }
+    }
+
+    // Lines for one batch workload; a run that fails gets an error line instead
+    private static String runBatchItem(int index, TestCaseLoader.TestCase testCase, List<String> types) {
+        StringWriter lines = new StringWriter();
+        try {
+            for (String type : types) {
+                writeRun(lines, index, testCase, type);
+            }
+        } catch (IOException | RuntimeException e) {
+            return errorLine(index, testCase.name, e.toString());
+        }
+        return lines.toString();
+    }
+
+
+    private int handleMetrics(HttpExchange exchange) throws IOException {
+        JSONObject json = new JSONObject();
+        JSONObject endpoints = new JSONObject();
+        for (Map.Entry<String, LatencyMetrics> e : metrics.entrySet()) {
+            endpoints.put(e.getKey(), e.getValue().snapshot());
+        }
+        json.put("endpoints", endpoints);
+        json.put("inFlight", maxConcurrent - permits.availablePermits());
+        json.put("queued", queued.get());
+        json.put("maxConcurrent", maxConcurrent);
+        json.put("maxQueued", maxQueued);
+        json.put("virtualThreads", virtualThreads);
+        return sendText(exchange, 200, "application/json", json.toString() + "\n");
+    }
+
+
+    /** Wait for a scheduling slot; false when the queue is full or the wait times out. */
+    private boolean acquire() throws InterruptedException {
+        if (permits.tryAcquire()) return true;
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private static ServiceException overloaded() {
+        return new ServiceException(503, "Overloaded, retry later");
+    }
+
+    private static void writeRun(Writer out, int index, TestCaseLoader.TestCase testCase, String type)
+            throws IOException {
+        ScheduleResult result;
+        try {
+            Scheduler scheduler = TestRunner.createScheduler(type, testCase);
+            result = testCase.schedule(scheduler, testCase.workload);
+            result.timeUnit = testCase.timeUnit;
+        } catch (RuntimeException e) {
+            // headers are already sent: report the failure in-band
+            out.write(errorLine(index, testCase.name, type + ": " + e));
+            return;
+        }
+        if (index >= 0) {
+            out.write("{\"index\":" + index + ",\"result\":");
+            ResultJsonWriter.write(out, testCase.name, type, result);
+            out.write("}\n");
+        } else {
+            ResultJsonWriter.write(out, testCase.name, type, result);
+            out.write('\n');
+        }
+    }
+
+    private static String errorLine(int index, String name, String message) {
+        JSONObject json = new JSONObject();
+        if (index >= 0) json.put("index", index);
+        json.put("name", name);
+        json.put("error", message);
+        return json.toString() + "\n";
+    }
+
+    /**
+     * Accept a full test case or a bare "input" object; query parameters other
+     * than "scheduler" override the input's parameters.
+     */
+    private static TestCaseLoader.TestCase toTestCase(JSONObject json, Map<String, String> query, String defaultName) {
+        if (!json.has("input")) {
+            json = new JSONObject().put("input", json);
+        }
+        JSONObject input = json.getJSONObject("input");
+        for (Map.Entry<String, String> e : query.entrySet()) {
+            if (!e.getKey().equals("scheduler")) input.put(e.getKey(), e.getValue());
+        }
+        if (!input.has("processes")) {
+            input.put("processes", new JSONArray());
+        }
+        return TestCaseLoader.parseTestCase(json, defaultName);
+    }
+
+    // Requested types, or those the test case has expectations for
+    private static List<String> schedulerTypes(String requested, TestCaseLoader.TestCase testCase) {
+        List<String> types = new ArrayList<>();
+        if (requested != null && !requested.isEmpty()) {
+            types.addAll(Arrays.asList(requested.split(",")));
+        } else {
+            types.addAll(testCase.expectedOutputs.keySet());
+        }
+        if (types.isEmpty()) {
+            throw new ServiceException(400, "No scheduler requested (use ?scheduler=RR,SJF,...)");
+        }
+        for (String type : types) {
+            if (TestRunner.createScheduler(type, testCase) == null) {
+                throw new ServiceException(400, "Unknown scheduler: " + type);
+            }
+        }
+        return types;
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> query = new LinkedHashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (body.size() + read > MAX_BODY_BYTES) {
+                throw new ServiceException(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static int sendText(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        return status;
+    }
+
+    private static int sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            // a streamed response is already under way; closing the exchange truncates it
+            return status;
+        }
+        try {
+            if (status == 503) exchange.getResponseHeaders().set("Retry-After", "1");
+            sendText(exchange, status, "application/json", new JSONObject().put("error", String.valueOf(message)) + "\n");
+        } catch (IOException ignored) {
+            // client went away
+        }
+        return status;
+    }
+
+    /**
+     * Run the service until the process is killed.
+     * Arguments: [port] [maxConcurrent] [maxQueued]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int maxConcurrent = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int maxQueued = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        SchedulerService service = new SchedulerService(new InetSocketAddress("127.0.0.1", port),
+                maxConcurrent, maxQueued, 5_000);
+        service.start();
+        System.out.println("Scheduling service listening on http://127.0.0.1:" + service.getPort()
+                + " (" + (service.usesVirtualThreads() ? "virtual threads" : "platform threads") + ")");
+    }
+}
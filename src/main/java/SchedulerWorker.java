@@ -0,0 +1,116 @@
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * Worker JVM for {@link WorkerPool}: connects to the coordinator, then runs the
+ * jobs it is sent one at a time and replies with result summaries.
+ *
+ * Usage: {@code java SchedulerWorker <host> <port> <name>}, with the
+ * coordinator's token in the {@value WorkerProtocol#TOKEN_ENV} environment
+ * variable. Exits when the coordinator shuts it down or disconnects.
+ */
+public final class SchedulerWorker {
+    // Workloads kept for later jobs; older ones are dropped and re-requested if needed
+    private static final int CACHED_WORKLOADS = 4;
+
+    private SchedulerWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SchedulerWorker <host> <port> <name>");
+            System.exit(2);
+        }
+        String token = System.getenv(WorkerProtocol.TOKEN_ENV);
+        if (token == null) {
+            System.err.println("Missing " + WorkerProtocol.TOKEN_ENV);
+            System.exit(2);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            WorkerProtocol.writeHello(out, Long.parseLong(token), args[2]);
+            serve(in, out);
+        }
+    }
+
+    static void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        Map<Integer, ProcessSpec[]> workloads = new LinkedHashMap<Integer, ProcessSpec[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ProcessSpec[]> eldest) {
+                return size() > CACHED_WORKLOADS;
+            }
+        };
+        while (true) {
+            byte type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return;
+            }
+            switch (type) {
+                case WorkerProtocol.SHUTDOWN:
+                    return;
+                case WorkerProtocol.WORKLOAD:
+                    int id = in.readInt();
+                    workloads.put(id, WorkloadCodec.read(in));
+                    break;
+                case WorkerProtocol.JOB:
+                    runJob(in, out, workloads);
+                    break;
+                default:
+                    throw new IOException("Unknown frame type " + type);
+            }
+        }
+    }
+
+    private static void runJob(DataInputStream in, DataOutputStream out, Map<Integer, ProcessSpec[]> workloads)
+            throws IOException {
+        long jobId = in.readLong();
+        int workloadId = in.readInt();
+        String type = in.readUTF();
+        long contextSwitch = in.readLong();
+        int count = in.readInt();
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            parameters.put(in.readUTF(), in.readUTF());
+        }
+
+        ProcessSpec[] workload = workloads.get(workloadId);
+        if (workload == null) {
+            out.writeByte(WorkerProtocol.MISSING);
+            out.writeLong(jobId);
+            out.writeInt(workloadId);
+            out.flush();
+            return;
+        }
+
+        JobResult summary;
+        try {
+            TestCaseLoader.TestCase testCase = TestCaseLoader.parseParameters(parameters);
+            testCase.contextSwitch = contextSwitch;
+            Scheduler scheduler = TestRunner.createScheduler(type, testCase);
+            if (scheduler == null) {
+                throw new IllegalArgumentException("Unknown scheduler: " + type);
+            }
+            long start = System.nanoTime();
+            // the job's switchCost model, when it has one, overrides the fixed delay
+            ScheduleResult result = testCase.schedule(scheduler, workload);
+            summary = JobResult.summarize(result, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            // a deterministic failure: report it rather than dying, so the job is not retried
+            out.writeByte(WorkerProtocol.FAILED);
+            out.writeLong(jobId);
+            String message = String.valueOf(e);
+            out.writeUTF(message.length() > 1000 ? message.substring(0, 1000) : message);
+            out.flush();
+            return;
+        }
+        out.writeByte(WorkerProtocol.RESULT);
+        out.writeLong(jobId);
+        summary.writeSummary(out);
+        out.flush();
+    }
+}
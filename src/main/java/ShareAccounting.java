@@ -0,0 +1,54 @@
+/**
+ * Tracks requested versus achieved CPU share for proportional-share schedulers.
+ *
+ * The requested share of a process is the time-average of
+ * tickets / (tickets of all processes present) over its lifetime. Instead of
+ * touching every process whenever the active ticket total changes, a global
+ * integral of 1 / activeTickets is advanced at each event, so joining and
+ * leaving cost O(1).
+ */
+final class ShareAccounting {
+    private double[] entryIntegral = new double[0];
+    private double integral;
+    private long activeTickets;
+    private long lastTime;
+
+    /** Start a new run for up to {@code capacity} processes, reusing the buffer when large enough. */
+    void reset(int capacity) {
+        if (entryIntegral.length < capacity) {
+            entryIntegral = new double[capacity];
+        }
+        integral = 0;
+        activeTickets = 0;
+        lastTime = 0;
+    }
+
+    void release() {
+        entryIntegral = new double[0];
+    }
+
+    private void advance(long time) {
+        if (activeTickets > 0 && time > lastTime) {
+            integral += (double) (time - lastTime) / activeTickets;
+        }
+        lastTime = Math.max(lastTime, time);
+    }
+
+    void join(int p, int tickets, long time) {
+        advance(time);
+        entryIntegral[p] = integral;
+        activeTickets += tickets;
+    }
+
+    /** Record the shares of a completed process into the result. */
+    void leave(int p, ProcessSpec process, int tickets, long time, ScheduleResult result) {
+        advance(time);
+        activeTickets -= tickets;
+        long lifetime = time - process.getArrivalTime();
+        if (lifetime <= 0) return;
+        double requested = tickets * (integral - entryIntegral[p]) / lifetime;
+        double achieved = (double) process.getBurstTime() / lifetime;
+        result.requestedShare.putDouble(process.getProcessName(), requested);
+        result.achievedShare.putDouble(process.getProcessName(), achieved);
+    }
+}
@@ -0,0 +1,173 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * JMX view of one running simulation, registered with the platform MBean
+ * server for the duration of the run as
+ * {@code cpu-scheduler:type=Simulation,scheduler=<name>,id=<n>}, so
+ * concurrent runs (a sweep, a comparison) show up side by side in JConsole.
+ *
+ * The engine thread never touches this object per event: its
+ * {@link FlightRecorder} keeps the running counters in plain fields and
+ * publishes them here every {@link #PUBLISH_INTERVAL} events, which is also
+ * when a pending {@link #cancel()} takes effect.
+ *
+ * Only runs of at least {@link #getMinProcesses()} processes are registered,
+ * since smaller ones finish before anyone could look. The default comes from
+ * the {@code scheduler.monitor.minProcesses} system property (10000); a
+ * negative value turns monitoring off.
+ */
+public final class SimulationMonitor implements SimulationMonitorMBean {
+    static final int PUBLISH_INTERVAL = 1024;
+
+    private static final AtomicLong IDS = new AtomicLong();
+    private static volatile int minProcesses = Integer.getInteger("scheduler.monitor.minProcesses", 10_000);
+
+    private final String scheduler;
+    private final ScheduleResult result;
+    private final ObjectName name;
+    private final long startNanos = System.nanoTime();
+    private volatile int processes;
+
+    // Published by the engine thread
+    private volatile long simulatedTime;
+    private volatile long events;
+    private volatile int completed;
+    private volatile double totalWaiting;
+    private volatile double totalTurnaround;
+    private volatile boolean cancelRequested;
+
+    private SimulationMonitor(String scheduler, int processes, ScheduleResult result, ObjectName name) {
+        this.scheduler = scheduler;
+        this.processes = processes;
+        this.result = result;
+        this.name = name;
+    }
+
+    public static int getMinProcesses() {
+        return minProcesses;
+    }
+
+    public static void setMinProcesses(int min) {
+        minProcesses = min;
+    }
+
+    /**
+     * Register a monitor for a run, or return null when the run is too small,
+     * monitoring is off, or JMX is unavailable (the run goes ahead unmonitored).
+     */
+    static SimulationMonitor register(String scheduler, int processes, ScheduleResult result) {
+        int min = minProcesses;
+        if (min < 0 || processes < min) return null;
+        try {
+            ObjectName name = new ObjectName("cpu-scheduler:type=Simulation,scheduler=" + scheduler
+                    + ",id=" + IDS.incrementAndGet());
+            SimulationMonitor monitor = new SimulationMonitor(scheduler, processes, result, name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, name);
+            return monitor;
+        } catch (JMException | SecurityException e) {
+            return null;
+        }
+    }
+
+    void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+    }
+
+    /** Jobs to complete, when the engine expands the workload (e.g. periodic releases). */
+    void expect(int jobs) {
+        processes = jobs;
+    }
+
+    void publish(long time, long eventCount, int completedCount, double waiting, double turnaround) {
+        simulatedTime = time;
+        completed = completedCount;
+        totalWaiting = waiting;
+        totalTurnaround = turnaround;
+        events = eventCount;
+    }
+
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    @Override
+    public String getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public long getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    @Override
+    public int getProcesses() {
+        return processes;
+    }
+
+    @Override
+    public int getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public int getRemaining() {
+        return Math.max(0, processes - completed);
+    }
+
+    @Override
+    public long getEvents() {
+        return events;
+    }
+
+    @Override
+    public double getEventsPerSecond() {
+        long nanos = System.nanoTime() - startNanos;
+        return nanos == 0 ? 0 : events * 1e9 / nanos;
+    }
+
+    @Override
+    public double getAverageWaiting() {
+        int n = completed;
+        return n == 0 ? 0 : totalWaiting / n;
+    }
+
+    @Override
+    public double getAverageTurnaround() {
+        int n = completed;
+        return n == 0 ? 0 : totalTurnaround / n;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public long getResultBytes() {
+        try {
+            return result.estimateBytes();
+        } catch (RuntimeException e) {
+            return -1; // a collection was resized mid-read
+        }
+    }
+
+    @Override
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    @Override
+    public void cancel() {
+        cancelRequested = true;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Live view of one running simulation, see {@link SimulationMonitor}.
+ * Times are simulated ticks in the workload's unit.
+ */
+public interface SimulationMonitorMBean {
+    String getScheduler();
+
+    long getSimulatedTime();
+
+    int getProcesses();
+
+    int getCompleted();
+
+    int getRemaining();
+
+    /** Scheduling events (dispatches, preemptions, completions, ...) so far. */
+    long getEvents();
+
+    double getEventsPerSecond();
+
+    double getAverageWaiting();
+
+    double getAverageTurnaround();
+
+    long getElapsedMillis();
+
+    /** Approximate heap held by the result's collections. */
+    long getResultBytes();
+
+    boolean isCancelRequested();
+
+    /** Stop the run at its next progress check; {@code schedule} then throws CancellationException. */
+    void cancel();
+}
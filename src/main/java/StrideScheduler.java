@@ -0,0 +1,195 @@
+import java.util.*;
+
+/**
+ * Stride scheduling: deterministic proportional share.
+ *
+ * Each process advances its pass by {@code STRIDE1 / tickets} for every
+ * quantum it runs, carrying the remainder of the division so any ticket count
+ * up to Integer.MAX_VALUE keeps its exact ratio; the process with the smallest
+ * pass (kept in a heap) runs next. Arrivals join at the current minimum pass
+ * so they are not owed the time before they existed. Processes with nothing to
+ * run complete on arrival without being dispatched.
+ */
+public class StrideScheduler implements Scheduler {
+    // Above any ticket count, so every stride is at least 2; a 1-ticket process
+    // overflows its pass only after 2^31 quanta
+    private static final long STRIDE1 = 1L << 32;
+
+    private final long timeQuantum;
+
+    // Working state retained between runs, grown to the largest input (see Scheduler.reset)
+    private long[] remaining = new long[0];
+    private int[] tickets = new int[0];
+    private long[] pass = new long[0];
+    private long[] carry = new long[0]; // STRIDE1 % tickets accumulated, below tickets
+    private long[] arrival = new long[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private final IntHeap ready = new IntHeap((a, b) -> {
+        int c = Long.compare(pass[a], pass[b]);
+        return c != 0 ? c : Integer.compare(a, b);
+    });
+    private final ShareAccounting shares = new ShareAccounting();
+    private final FlightRecorder recorder = new FlightRecorder("Stride");
+    // Totals of the current run, kept by complete()
+    private double totalWait, totalTurn;
+
+    public StrideScheduler(long timeQuantum) {
+        if (timeQuantum <= 0) throw new IllegalArgumentException("Time quantum must be positive");
+        this.timeQuantum = timeQuantum;
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch) {
+        return schedule(processes, contextSwitch, new ScheduleResult());
+    }
+
+    @Override
+    public ScheduleResult schedule(Process[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(ProcessSpec.of(processes), contextSwitch, result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, int contextSwitch, ScheduleResult result) {
+        return schedule(processes, ContextSwitchCost.fixed(contextSwitch), result);
+    }
+
+    @Override
+    public ScheduleResult schedule(ProcessSpec[] processes, ContextSwitchCost switchCost, ScheduleResult result) {
+        return recorder.run(processes.length, result, () -> simulate(processes, switchCost.start(processes), result));
+    }
+
+    private ScheduleResult simulate(ProcessSpec[] processes, ContextSwitchCost.Run switchCost, ScheduleResult result) {
+        result.reset();
+        result.startPhases();
+        int n = processes.length;
+
+        if (remaining.length < n) {
+            remaining = new long[n];
+            tickets = new int[n];
+            pass = new long[n];
+            carry = new long[n];
+            arrival = new long[n];
+            order = new int[n];
+            scratch = new int[n];
+        }
+        long[] remaining = this.remaining;
+        int[] tickets = this.tickets;
+        long[] pass = this.pass;
+        long[] carry = this.carry;
+        long[] arrival = this.arrival;
+        int[] order = this.order;
+        Parallel.forRange(n, i -> {
+            remaining[i] = processes[i].getBurstTime();
+            tickets[i] = Math.max(1, processes[i].getTickets());
+            arrival[i] = processes[i].getArrivalTime();
+        });
+        result.endPhase(ScheduleResult.Phase.PREPARE);
+        IndexSort.sortByKey(order, n, arrival, scratch);
+        result.endPhase(ScheduleResult.Phase.SORT);
+        ready.clear();
+        shares.reset(n);
+
+        long time = 0;
+        int idx = 0;
+        int completed = 0;
+        int last = -1;
+        long minPass = 0;
+        totalWait = 0;
+        totalTurn = 0;
+
+        while (completed < n) {
+            while (idx < n && arrival[order[idx]] <= time) {
+                int p = order[idx++];
+                shares.join(p, tickets[p], time);
+                if (remaining[p] == 0) {
+                    // nothing to run: complete on arrival rather than dispatching it
+                    complete(processes, p, time, result);
+                    completed++;
+                    continue;
+                }
+                pass[p] = minPass;
+                carry[p] = 0;
+                ready.add(p);
+            }
+
+            if (ready.isEmpty()) {
+                recorder.record(time, null, FlightRecorder.Event.IDLE, 0, FlightRecorder.Cause.NONE);
+                time = Math.max(time, arrival[order[idx]]);
+                continue;
+            }
+
+            int p = ready.poll();
+            minPass = pass[p];
+            if (last != p) {
+                if (last != -1) {
+                    long cost = switchCost.cost(last, p, time);
+                    result.switchOverhead += cost;
+                    time += cost;
+                }
+                result.executionOrder.add(processes[p].getProcessName());
+                recorder.record(time, processes[p].getProcessName(), FlightRecorder.Event.DISPATCH, ready.size(),
+                        FlightRecorder.Cause.LOWEST_PASS);
+            }
+            last = p;
+
+            long run = Math.min(timeQuantum, remaining[p]);
+            time += run;
+            remaining[p] -= run;
+
+            if (remaining[p] == 0) {
+                complete(processes, p, time, result);
+                completed++;
+            } else {
+                // a run shorter than the quantum ends the process, so only whole quanta reach here
+                pass[p] += STRIDE1 / tickets[p];
+                carry[p] += STRIDE1 % tickets[p];
+                if (carry[p] >= tickets[p]) {
+                    pass[p]++;
+                    carry[p] -= tickets[p];
+                }
+                ready.add(p);
+                recorder.record(time, processes[p].getProcessName(), FlightRecorder.Event.PREEMPT, ready.size(),
+                        FlightRecorder.Cause.QUANTUM_EXPIRED);
+            }
+        }
+        result.endPhase(ScheduleResult.Phase.DISPATCH);
+
+        result.averageWaiting = n == 0 ? 0 : totalWait / n;
+        result.averageTurnaround = n == 0 ? 0 : totalTurn / n;
+        result.endPhase(ScheduleResult.Phase.AGGREGATE);
+
+        return result;
+    }
+
+    // Record the completion of process p at time into the result and the run's totals
+    private void complete(ProcessSpec[] processes, int p, long time, ScheduleResult result) {
+        ProcessSpec proc = processes[p];
+        long turnaround = time - proc.getArrivalTime();
+        long waiting = turnaround - proc.getBurstTime();
+        result.waitingTimes.putLong(proc.getProcessName(), waiting);
+        result.turnaroundTimes.putLong(proc.getProcessName(), turnaround);
+        totalWait += waiting;
+        totalTurn += turnaround;
+        shares.leave(p, proc, tickets[p], time, result);
+        recorder.complete(time, proc.getProcessName(), ready.size(), waiting, turnaround);
+    }
+
+    @Override
+    public FlightRecorder getFlightRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public void reset() {
+        remaining = new long[0];
+        tickets = new int[0];
+        pass = new long[0];
+        carry = new long[0];
+        arrival = new long[0];
+        order = new int[0];
+        scratch = new int[0];
+        ready.release();
+        shares.release();
+    }
+}
@@ -0,0 +1,31 @@
+import java.util.*;
+
+/**
+ * One unit of a parameter sweep: run {@code scheduler} with {@code parameters}
+ * (test-case "input" names such as rrQuantum or agingInterval) over a
+ * workload. Jobs that share the same workload array are shipped to each
+ * worker once.
+ */
+public final class SweepJob {
+    private final ProcessSpec[] workload;
+    private final String scheduler;
+    private final Map<String, String> parameters;
+    private final long contextSwitch;
+
+    public SweepJob(ProcessSpec[] workload, String scheduler, Map<String, String> parameters, long contextSwitch) {
+        this.workload = Objects.requireNonNull(workload, "workload");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+        this.contextSwitch = contextSwitch;
+    }
+
+    public ProcessSpec[] getWorkload() { return workload; }
+    public String getScheduler() { return scheduler; }
+    public Map<String, String> getParameters() { return parameters; }
+    public long getContextSwitch() { return contextSwitch; }
+
+    @Override
+    public String toString() {
+        return scheduler + parameters + " over " + workload.length + " processes";
+    }
+}
@@ -1,4 +1,5 @@
 import java.io.*;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
@@ -9,21 +10,57 @@ import org.json.JSONObject;
  * Loads and parses test case JSON files.
  */
 public class TestCaseLoader {
+    // Keys of a multi-scheduler "expectedOutput", as accepted by TestRunner.createScheduler
+    private static final String[] SCHEDULER_TYPES = {
+        "SJF", "RR", "Priority", "AG", "MLFQ", "CFS", "EDF", "Stride", "Lottery", "Group", "PredictiveSJF", "AdaptiveRR"
+    };
 
     /**
      * Represents a single test case.
      */
     public static class TestCase {
         public String name;
-        public int contextSwitch;
-        public int rrQuantum;
-        public int agingInterval; // for AG scheduler
+        public long contextSwitch;
+        public ContextSwitchCost switchCost; // overrides contextSwitch when set
+        public long rrQuantum;
+        public long agingInterval; // for AG scheduler
+        public QuantumHistory.Mode historyMode = QuantumHistory.Mode.FULL; // AG: quantum history reported per process
+        public int historyLimit; // AG: values kept in LAST_N mode
+        public int mlfqLevels;
+        public long mlfqQuantum; // level 0 quantum, doubled per lower level
+        public long boostInterval; // MLFQ priority boost period
+        public long targetLatency; // CFS scheduling period
+        public long minGranularity; // CFS minimum slice
+        public boolean admissionControl; // EDF
+        public long horizon; // EDF periodic release horizon
+        public long shareQuantum; // Stride / Lottery quantum
+        public long seed; // Lottery
+        public String groupPolicy; // Group: RR, SJF, Priority or AG inside each group
+        public long groupQuantum; // Group: longest slice per group decision
+        public Map<String, Integer> groupWeights = new HashMap<>(); // Group: CPU weight per group, default 1
+        public double predictionAlpha; // PredictiveSJF: weight of the latest burst in the estimate
+        public long initialEstimate; // PredictiveSJF: first burst estimate, 0 = run's mean burst so far
+        public boolean predictivePreemptive; // PredictiveSJF: SRTF when true
+        public double quantumPercentile; // AdaptiveRR: percentile of remaining bursts, 0.5 = median
+        public long minQuantum; // AdaptiveRR
+        public long maxQuantum; // AdaptiveRR
+        public double maxSwitchShare; // AdaptiveRR: cap on switch cost next to its slice, 1 = none
+        public TimeScale timeUnit = TimeScale.TICKS; // unit of every time in the case
+        public int recorderCapacity = FlightRecorder.DEFAULT_CAPACITY; // events kept by each scheduler's flight recorder
         public Process[] processes;
-        public Map<String, ExpectedOutput> expectedOutputs; // keyed by scheduler type (SJF, RR, Priority, AG)
+        public ProcessSpec[] workload; // immutable view of processes, shared by every scheduler run
+        public Map<String, ExpectedOutput> expectedOutputs; // keyed by scheduler type (SJF, RR, Priority, AG, MLFQ, CFS, EDF, Stride, Lottery, Group, PredictiveSJF, AdaptiveRR)
 
         public TestCase() {
             this.expectedOutputs = new HashMap<>();
         }
+
+        /** Run {@code scheduler} on {@code workload} with this case's context switch cost. */
+        public ScheduleResult schedule(Scheduler scheduler, ProcessSpec[] workload) {
+            return switchCost != null
+                    ? scheduler.schedule(workload, switchCost, new ScheduleResult())
+                    : scheduler.schedule(workload, contextSwitch, new ScheduleResult());
+        }
     }
 
     /**
@@ -34,6 +71,18 @@ public class TestCaseLoader {
         public Map<String, ProcessResult> processResults;
         public double averageWaitingTime;
         public double averageTurnaroundTime;
+        public Integer deadlineMisses; // EDF only, null when not specified
+        public Long maxLateness;       // EDF only, null when not specified
+        public List<String> rejected;  // EDF admission control, null when not specified
+        public Map<String, Double> groupShares; // Group: achieved share per group, null when not specified
+        public Double predictionError; // PredictiveSJF: mean |predicted - actual| burst, null when not specified
+        public Double predictionBias;  // PredictiveSJF: mean (predicted - actual) burst, null when not specified
+        public List<String> quantumTrajectory; // AdaptiveRR: "time:quantum" changes, null when not specified
+        public Long switchOverhead;    // total time spent switching, null when not specified
+        public Double ioOverlap;       // fraction of the run the CPU and some device were both busy, null when not specified
+        public String sameAs;          // scheduler type whose output on the same input must match exactly, null when not specified
+        public List<WhatIfChange> whatIf; // questions whose WhatIf answers must match a full re-run, null when not specified
+        public long whatIfInterval;    // checkpoint interval of the WhatIf base run
 
         public ExpectedOutput() {
             this.executionOrder = new ArrayList<>();
@@ -41,14 +90,62 @@ public class TestCaseLoader {
         }
     }
 
+    /**
+     * One what-if question: a process of the workload with some input fields
+     * replaced; null fields keep the workload's value.
+     */
+    public static class WhatIfChange {
+        public String process;
+        public Long arrival;
+        public Long burst;     // single-burst processes only
+        public Integer priority;
+
+        /** {@code base} with this change's fields replaced. */
+        public ProcessSpec apply(ProcessSpec base) {
+            if (burst != null && base.hasIo()) {
+                throw new IllegalArgumentException("What-if burst change on " + process + ", which has I/O bursts");
+            }
+            long[] cpuBursts = null, ioBursts = null;
+            int[] ioDevices = null;
+            if (base.hasIo()) {
+                int count = base.getCpuBurstCount();
+                cpuBursts = new long[count];
+                ioBursts = new long[count - 1];
+                ioDevices = new int[count - 1];
+                for (int i = 0; i < count; i++) {
+                    cpuBursts[i] = base.getCpuBurst(i);
+                    if (i < count - 1) {
+                        ioBursts[i] = base.getIoBurst(i);
+                        ioDevices[i] = base.getIoDevice(i);
+                    }
+                }
+            }
+            return new ProcessSpec(base.getProcessName(),
+                    arrival != null ? arrival : base.getArrivalTime(),
+                    burst != null ? burst : base.getBurstTime(),
+                    priority != null ? priority : base.getPriority(),
+                    base.getQuantum(), base.getDeadline(), base.getPeriod(), base.getTickets(),
+                    cpuBursts, ioBursts, ioDevices, base.getGroup());
+        }
+
+        @Override
+        public String toString() {
+            return process + (arrival != null ? " arrival " + arrival : "") + (burst != null ? " burst " + burst : "")
+                    + (priority != null ? " priority " + priority : "");
+        }
+    }
+
     /**
      * Represents a single process's expected result.
      */
     public static class ProcessResult {
         public String name;
-        public int waitingTime;
-        public int turnaroundTime;
+        public long waitingTime;
+        public long turnaroundTime;
         public List<Integer> quantumHistory; // for AG scheduler
+        public Double requestedShare; // Stride / Lottery: time-averaged ticket share, null when not specified
+        public Double achievedShare;  // Stride / Lottery: CPU share over the lifetime, null when not specified
+        public Long lateness;         // EDF: completion minus absolute deadline, null when not specified
 
         public ProcessResult() {
             this.quantumHistory = new ArrayList<>();
@@ -60,8 +157,59 @@ public class TestCaseLoader {
      */
     public static TestCase loadTestCase(String filePath) throws Exception {
         String content = new String(Files.readAllBytes(Paths.get(filePath)), StandardCharsets.UTF_8);
-        JSONObject json = new JSONObject(content);
+        return parseTestCase(new JSONObject(content), new File(filePath).getName());
+    }
+
+    /**
+     * Scheduler parameters from name/value pairs, using the same names and
+     * defaults as a test case's "input" (rrQuantum, agingInterval, ...). The
+     * returned case has no processes.
+     */
+    public static TestCase parseParameters(Map<String, String> parameters) {
+        JSONObject input = new JSONObject();
+        for (Map.Entry<String, String> e : parameters.entrySet()) {
+            input.put(e.getKey(), e.getValue());
+        }
+        input.put("processes", new JSONArray());
+        return parseTestCase(new JSONObject().put("input", input), "parameters");
+    }
+
+    // Time parameters are longs so nanosecond and microsecond cases can span long periods; anything
+    // that is not a whole number in the long range is refused instead of being truncated
+    private static long timeParameter(JSONObject input, String key, long defaultValue) {
+        if (!input.has(key)) return defaultValue;
+        Object value = input.get(key);
+        try {
+            return new BigDecimal(value.toString().trim()).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("'" + key + "' must be a whole number of time units up to "
+                    + Long.MAX_VALUE + ", got " + value);
+        }
+    }
+
+    // {"team": weight, ...}, or "team:weight,..." when given as a parameter string
+    private static Map<String, Integer> parseGroupWeights(Object value) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        if (value instanceof JSONObject) {
+            JSONObject obj = (JSONObject) value;
+            for (String group : obj.keySet()) {
+                weights.put(group, obj.getInt(group));
+            }
+            return weights;
+        }
+        for (String entry : value.toString().split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) throw new IllegalArgumentException("Expected group:weight, got '" + entry + "'");
+            weights.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+        }
+        return weights;
+    }
 
+    /**
+     * Parse a test case already read as JSON; {@code defaultName} is used when
+     * the case has no "name".
+     */
+    public static TestCase parseTestCase(JSONObject json, String defaultName) {
         TestCase tc = new TestCase();
 
         // Try to parse as array (AG tests) or single object (Other tests)
@@ -82,14 +230,46 @@ public class TestCaseLoader {
         if (testObj.has("name")) {
             tc.name = testObj.getString("name");
         } else {
-            tc.name = new File(filePath).getName();
+            tc.name = defaultName;
         }
 
         // Parse input
         JSONObject inputObj = testObj.getJSONObject("input");
-        tc.contextSwitch = inputObj.optInt("contextSwitch", 1);
-        tc.rrQuantum = inputObj.optInt("rrQuantum", 2);
-        tc.agingInterval = inputObj.optInt("agingInterval", 5);
+        tc.contextSwitch = timeParameter(inputObj, "contextSwitch", 1);
+        if (inputObj.has("switchCost")) {
+            tc.switchCost = ContextSwitchCost.parse(inputObj.getString("switchCost"));
+        }
+        tc.rrQuantum = timeParameter(inputObj, "rrQuantum", 2);
+        tc.agingInterval = timeParameter(inputObj, "agingInterval", 5);
+        if (inputObj.has("historyMode")) {
+            tc.historyMode = QuantumHistory.Mode.parse(inputObj.getString("historyMode"));
+        }
+        tc.historyLimit = inputObj.optInt("historyLimit", 0);
+        tc.mlfqLevels = inputObj.optInt("mlfqLevels", 3);
+        tc.mlfqQuantum = timeParameter(inputObj, "mlfqQuantum", 2);
+        tc.boostInterval = timeParameter(inputObj, "boostInterval", 0);
+        tc.targetLatency = timeParameter(inputObj, "targetLatency", 6);
+        tc.minGranularity = timeParameter(inputObj, "minGranularity", 1);
+        tc.admissionControl = inputObj.optBoolean("admissionControl", false);
+        tc.horizon = timeParameter(inputObj, "horizon", 0);
+        tc.shareQuantum = timeParameter(inputObj, "shareQuantum", 1);
+        tc.seed = inputObj.optLong("seed", 42L);
+        tc.groupPolicy = inputObj.optString("groupPolicy", "RR");
+        tc.groupQuantum = timeParameter(inputObj, "groupQuantum", 2);
+        if (inputObj.has("groupWeights")) {
+            tc.groupWeights = parseGroupWeights(inputObj.get("groupWeights"));
+        }
+        tc.predictionAlpha = inputObj.optDouble("predictionAlpha", 0.5);
+        tc.initialEstimate = timeParameter(inputObj, "initialEstimate", 0);
+        tc.predictivePreemptive = inputObj.optBoolean("predictivePreemptive", true);
+        tc.quantumPercentile = inputObj.optDouble("quantumPercentile", 0.5);
+        tc.minQuantum = timeParameter(inputObj, "minQuantum", 1);
+        tc.maxQuantum = timeParameter(inputObj, "maxQuantum", 100);
+        tc.maxSwitchShare = inputObj.optDouble("maxSwitchShare", 1.0);
+        tc.recorderCapacity = inputObj.optInt("recorderCapacity", FlightRecorder.DEFAULT_CAPACITY);
+        if (inputObj.has("timeUnit")) {
+            tc.timeUnit = TimeScale.parse(inputObj.getString("timeUnit"));
+        }
 
         // Parse processes
         JSONArray processesArray = inputObj.getJSONArray("processes");
@@ -97,31 +277,52 @@ public class TestCaseLoader {
         for (int i = 0; i < processesArray.length(); i++) {
             JSONObject pObj = processesArray.getJSONObject(i);
             String name = pObj.getString("name");
-            int arrival = pObj.getInt("arrival");
-            int burst = pObj.getInt("burst");
-            int priority = pObj.getInt("priority");
+            long arrival = pObj.getLong("arrival");
+            long burst = pObj.has("bursts") ? 0 : pObj.getLong("burst");
+            int priority = pObj.optInt("priority", 0);
             int quantum = pObj.optInt("quantum", 0);
-            tc.processes[i] = new Process(name, arrival, burst, priority, quantum);
+            long deadline = pObj.optLong("deadline", 0);
+            long period = pObj.optLong("period", 0);
+            tc.processes[i] = new Process(name, arrival, burst, priority, quantum, deadline, period);
+            tc.processes[i].setTickets(pObj.optInt("tickets", Process.DEFAULT_TICKETS));
+            tc.processes[i].setGroup(pObj.optString("group", Process.DEFAULT_GROUP));
+
+            // Alternating CPU / I-O bursts: [cpu, io, cpu, ..., cpu], optional device per I/O burst
+            if (pObj.has("bursts")) {
+                JSONArray burstArray = pObj.getJSONArray("bursts");
+                long[] cpu = new long[(burstArray.length() + 1) / 2];
+                long[] io = new long[burstArray.length() / 2];
+                for (int j = 0; j < burstArray.length(); j++) {
+                    if (j % 2 == 0) cpu[j / 2] = burstArray.getLong(j); else io[j / 2] = burstArray.getLong(j);
+                }
+                int[] devices = null;
+                if (pObj.has("devices")) {
+                    JSONArray deviceArray = pObj.getJSONArray("devices");
+                    devices = new int[deviceArray.length()];
+                    for (int j = 0; j < devices.length; j++) {
+                        devices[j] = deviceArray.getInt(j);
+                    }
+                }
+                tc.processes[i].setBursts(cpu, io, devices);
+            }
         }
+        tc.workload = ProcessSpec.of(tc.processes);
 
         // Parse expected outputs
         if (testObj.has("expectedOutput")) {
             JSONObject expectedObj = testObj.getJSONObject("expectedOutput");
 
             // Check if it's a multi-scheduler test (like test_1.json) or single-scheduler test (like AG_test1.json)
-            if (expectedObj.has("SJF") || expectedObj.has("RR") || expectedObj.has("Priority")) {
+            boolean multi = false;
+            for (String type : SCHEDULER_TYPES) {
+                multi |= !type.equals("AG") && expectedObj.has(type);
+            }
+            if (multi) {
                 // Multi-scheduler format
-                if (expectedObj.has("SJF")) {
-                    tc.expectedOutputs.put("SJF", parseExpectedOutput(expectedObj.getJSONObject("SJF")));
-                }
-                if (expectedObj.has("RR")) {
-                    tc.expectedOutputs.put("RR", parseExpectedOutput(expectedObj.getJSONObject("RR")));
-                }
-                if (expectedObj.has("Priority")) {
-                    tc.expectedOutputs.put("Priority", parseExpectedOutput(expectedObj.getJSONObject("Priority")));
-                }
-                if (expectedObj.has("AG")) {
-                    tc.expectedOutputs.put("AG", parseExpectedOutput(expectedObj.getJSONObject("AG")));
+                for (String type : SCHEDULER_TYPES) {
+                    if (expectedObj.has(type)) {
+                        tc.expectedOutputs.put(type, parseExpectedOutput(expectedObj.getJSONObject(type)));
+                    }
                 }
             } else {
                 // Single-scheduler format (AG tests)
@@ -153,8 +354,8 @@ public class TestCaseLoader {
                 JSONObject pResult = resultsArray.getJSONObject(i);
                 ProcessResult pr = new ProcessResult();
                 pr.name = pResult.getString("name");
-                pr.waitingTime = pResult.getInt("waitingTime");
-                pr.turnaroundTime = pResult.getInt("turnaroundTime");
+                pr.waitingTime = pResult.getLong("waitingTime");
+                pr.turnaroundTime = pResult.getLong("turnaroundTime");
 
                 // Parse quantum history if present
                 if (pResult.has("quantumHistory")) {
@@ -163,15 +364,88 @@ public class TestCaseLoader {
                         pr.quantumHistory.add(qHistArray.getInt(j));
                     }
                 }
+                if (pResult.has("requestedShare")) {
+                    pr.requestedShare = pResult.getDouble("requestedShare");
+                }
+                if (pResult.has("achievedShare")) {
+                    pr.achievedShare = pResult.getDouble("achievedShare");
+                }
+                if (pResult.has("lateness")) {
+                    pr.lateness = pResult.getLong("lateness");
+                }
 
                 output.processResults.put(pr.name, pr);
             }
         }
 
+        // An equivalence check replaces the literal expectations
+        if (obj.has("sameAs")) {
+            output.sameAs = obj.getString("sameAs");
+        }
+
+        // What-if questions, answered incrementally and checked against a full re-run
+        if (obj.has("whatIf")) {
+            JSONObject whatIf = obj.getJSONObject("whatIf");
+            output.whatIfInterval = whatIf.optLong("checkpointInterval", 4);
+            output.whatIf = new ArrayList<>();
+            JSONArray changes = whatIf.getJSONArray("changes");
+            for (int i = 0; i < changes.length(); i++) {
+                JSONObject c = changes.getJSONObject(i);
+                WhatIfChange change = new WhatIfChange();
+                change.process = c.getString("process");
+                if (c.has("arrival")) change.arrival = c.getLong("arrival");
+                if (c.has("burst")) change.burst = c.getLong("burst");
+                if (c.has("priority")) change.priority = c.getInt("priority");
+                output.whatIf.add(change);
+            }
+        }
+
         // Parse averages
         output.averageWaitingTime = obj.optDouble("averageWaitingTime", 0.0);
         output.averageTurnaroundTime = obj.optDouble("averageTurnaroundTime", 0.0);
 
+        // Parse real-time expectations if present
+        if (obj.has("deadlineMisses")) {
+            output.deadlineMisses = obj.getInt("deadlineMisses");
+        }
+        if (obj.has("maxLateness")) {
+            output.maxLateness = obj.getLong("maxLateness");
+        }
+        if (obj.has("rejected")) {
+            output.rejected = new ArrayList<>();
+            JSONArray rejArray = obj.getJSONArray("rejected");
+            for (int i = 0; i < rejArray.length(); i++) {
+                output.rejected.add(rejArray.getString(i));
+            }
+        }
+        if (obj.has("quantumTrajectory")) {
+            output.quantumTrajectory = new ArrayList<>();
+            JSONArray trajectory = obj.getJSONArray("quantumTrajectory");
+            for (int i = 0; i < trajectory.length(); i++) {
+                JSONObject change = trajectory.getJSONObject(i);
+                output.quantumTrajectory.add(change.getLong("time") + ":" + change.getLong("quantum"));
+            }
+        }
+        if (obj.has("ioOverlap")) {
+            output.ioOverlap = obj.getDouble("ioOverlap");
+        }
+        if (obj.has("switchOverhead")) {
+            output.switchOverhead = obj.getLong("switchOverhead");
+        }
+        if (obj.has("predictionError")) {
+            output.predictionError = obj.getDouble("predictionError");
+        }
+        if (obj.has("predictionBias")) {
+            output.predictionBias = obj.getDouble("predictionBias");
+        }
+        if (obj.has("groupShares")) {
+            output.groupShares = new LinkedHashMap<>();
+            JSONObject shares = obj.getJSONObject("groupShares");
+            for (String group : shares.keySet()) {
+                output.groupShares.put(group, shares.getDouble(group));
+            }
+        }
+
         return output;
     }
 
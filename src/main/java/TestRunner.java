@@ -31,21 +31,9 @@ public class TestRunner {
         TestResult result = new TestResult(testCase.name, schedulerType);
 
         try {
-            // Make a defensive copy of processes
-            Process[] processCopy = new Process[testCase.processes.length];
-            for (int i = 0; i < testCase.processes.length; i++) {
-                Process p = testCase.processes[i];
-                processCopy[i] = new Process(
-                    p.getProcessName(),
-                    p.getArrivalTime(),
-                    p.getBurstTime(),
-                    p.getPriority(),
-                    p.getQuantum()
-                );
-            }
-
-            // Execute scheduler
-            ScheduleResult actual = scheduler.schedule(processCopy, testCase.contextSwitch);
+            // Execute scheduler on the shared read-only workload
+            ScheduleResult actual = testCase.schedule(scheduler, testCase.workload);
+            actual.timeUnit = testCase.timeUnit;
             result.actualResult = actual;
 
             // Get expected output
@@ -57,6 +45,21 @@ public class TestRunner {
             }
             result.expectedOutput = expected;
 
+            if (expected.whatIf != null) {
+                checkWhatIf(result, schedulerType, testCase, expected);
+            }
+
+            if (expected.sameAs != null) {
+                Scheduler reference = createScheduler(expected.sameAs, testCase);
+                if (reference == null) {
+                    result.passed = false;
+                    result.failureReasons.add("Unknown scheduler type in sameAs: " + expected.sameAs);
+                } else {
+                    checkSame(result, expected.sameAs, testCase.schedule(reference, testCase.workload), actual);
+                }
+                return result;
+            }
+
             // Validate execution order
             if (!actual.executionOrder.equals(expected.executionOrder)) {
                 result.passed = false;
@@ -70,7 +73,7 @@ public class TestRunner {
             // Validate waiting times
             for (String processName : expected.processResults.keySet()) {
                 TestCaseLoader.ProcessResult expectedProc = expected.processResults.get(processName);
-                Integer actualWaiting = actual.waitingTimes.get(processName);
+                Long actualWaiting = actual.waitingTimes.get(processName);
 
                 if (actualWaiting == null) {
                     result.passed = false;
@@ -88,7 +91,7 @@ public class TestRunner {
             // Validate turnaround times
             for (String processName : expected.processResults.keySet()) {
                 TestCaseLoader.ProcessResult expectedProc = expected.processResults.get(processName);
-                Integer actualTurnaround = actual.turnaroundTimes.get(processName);
+                Long actualTurnaround = actual.turnaroundTimes.get(processName);
 
                 if (actualTurnaround == null) {
                     result.passed = false;
@@ -103,6 +106,134 @@ public class TestRunner {
                 }
             }
 
+            // Validate AG quantum history when the test specifies it
+            for (String processName : expected.processResults.keySet()) {
+                List<Integer> expectedHistory = expected.processResults.get(processName).quantumHistory;
+                if (expectedHistory.isEmpty()) continue;
+                List<Integer> actualHistory = actual.quantumHistory.get(processName);
+                if (!expectedHistory.equals(actualHistory)) {
+                    result.passed = false;
+                    result.failureReasons.add(
+                        "Quantum history mismatch for " + processName + ".\n" +
+                        "  Expected: " + expectedHistory + "\n" +
+                        "  Got:      " + actualHistory
+                    );
+                }
+            }
+
+            // Validate proportional shares when the test specifies them
+            for (TestCaseLoader.ProcessResult expectedProc : expected.processResults.values()) {
+                checkShare(result, "Requested", expectedProc.name, expectedProc.requestedShare,
+                        actual.requestedShare.get(expectedProc.name));
+                checkShare(result, "Achieved", expectedProc.name, expectedProc.achievedShare,
+                        actual.achievedShare.get(expectedProc.name));
+            }
+
+            // Validate real-time outcomes when the test specifies them
+            if (expected.deadlineMisses != null && actual.deadlineMisses != expected.deadlineMisses) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Deadline miss count mismatch.\n" +
+                    "  Expected: " + expected.deadlineMisses + "\n" +
+                    "  Got:      " + actual.deadlineMisses
+                );
+            }
+            if (expected.maxLateness != null && actual.maxLateness != expected.maxLateness) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Max lateness mismatch.\n" +
+                    "  Expected: " + expected.maxLateness + "\n" +
+                    "  Got:      " + actual.maxLateness
+                );
+            }
+            for (TestCaseLoader.ProcessResult expectedProc : expected.processResults.values()) {
+                if (expectedProc.lateness == null) continue;
+                Long actualLateness = actual.lateness.get(expectedProc.name);
+                if (!expectedProc.lateness.equals(actualLateness)) {
+                    result.passed = false;
+                    result.failureReasons.add(
+                        "Lateness mismatch for " + expectedProc.name + ".\n" +
+                        "  Expected: " + expectedProc.lateness + "\n" +
+                        "  Got:      " + actualLateness
+                    );
+                }
+            }
+            if (expected.rejected != null && !actual.rejected.equals(expected.rejected)) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Rejected jobs mismatch.\n" +
+                    "  Expected: " + expected.rejected + "\n" +
+                    "  Got:      " + actual.rejected
+                );
+            }
+
+            // Validate the time spent switching when the test specifies it
+            if (expected.switchOverhead != null && actual.switchOverhead != expected.switchOverhead) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Switch overhead mismatch.\n" +
+                    "  Expected: " + expected.switchOverhead + "\n" +
+                    "  Got:      " + actual.switchOverhead
+                );
+            }
+
+            // Validate CPU and I/O overlap when the test specifies it
+            if (expected.ioOverlap != null && Math.abs(actual.ioOverlap - expected.ioOverlap) > 0.001) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "I/O overlap mismatch.\n" +
+                    "  Expected: " + expected.ioOverlap + "\n" +
+                    "  Got:      " + actual.ioOverlap
+                );
+            }
+
+            // Validate the adaptive quantum's changes when the test specifies them
+            if (expected.quantumTrajectory != null) {
+                List<String> trajectory = new ArrayList<>();
+                for (ScheduleResult.QuantumChange c : actual.quantumTrajectory) trajectory.add(c.toString());
+                if (!trajectory.equals(expected.quantumTrajectory)) {
+                    result.passed = false;
+                    result.failureReasons.add(
+                        "Quantum trajectory mismatch.\n" +
+                        "  Expected: " + expected.quantumTrajectory + "\n" +
+                        "  Got:      " + trajectory
+                    );
+                }
+            }
+
+            // Validate burst prediction accuracy when the test specifies it
+            if (expected.predictionError != null && Math.abs(actual.predictionError - expected.predictionError) > 0.001) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Prediction error mismatch.\n" +
+                    "  Expected: " + expected.predictionError + "\n" +
+                    "  Got:      " + actual.predictionError
+                );
+            }
+            if (expected.predictionBias != null && Math.abs(actual.predictionBias - expected.predictionBias) > 0.001) {
+                result.passed = false;
+                result.failureReasons.add(
+                    "Prediction bias mismatch.\n" +
+                    "  Expected: " + expected.predictionBias + "\n" +
+                    "  Got:      " + actual.predictionBias
+                );
+            }
+
+            // Validate achieved group shares when the test specifies them
+            if (expected.groupShares != null) {
+                for (Map.Entry<String, Double> e : expected.groupShares.entrySet()) {
+                    ScheduleResult.Group group = actual.groups.get(e.getKey());
+                    if (group == null || Math.abs(group.achievedShare - e.getValue()) > 0.001) {
+                        result.passed = false;
+                        result.failureReasons.add(
+                            "Achieved share mismatch for group " + e.getKey() + ".\n" +
+                            "  Expected: " + e.getValue() + "\n" +
+                            "  Got:      " + (group == null ? null : group.achievedShare)
+                        );
+                    }
+                }
+            }
+
             // Validate averages with small tolerance for floating point
             double tolerance = 0.1;
             if (Math.abs(actual.averageWaiting - expected.averageWaitingTime) > tolerance) {
@@ -132,6 +263,115 @@ public class TestRunner {
         return result;
     }
 
+    // Every output the two schedulers share must be identical, floating-point ones included
+    private static void checkSame(TestResult result, String referenceType, ScheduleResult expected,
+                                  ScheduleResult actual) {
+        Object[][] outputs = {
+            {"Execution order", expected.executionOrder, actual.executionOrder},
+            {"Waiting times", expected.waitingTimes, actual.waitingTimes},
+            {"Turnaround times", expected.turnaroundTimes, actual.turnaroundTimes},
+            {"Average waiting time", expected.averageWaiting, actual.averageWaiting},
+            {"Average turnaround time", expected.averageTurnaround, actual.averageTurnaround},
+            {"CPU utilization", expected.cpuUtilization, actual.cpuUtilization},
+            {"I/O overlap", expected.ioOverlap, actual.ioOverlap},
+            {"Switch overhead", expected.switchOverhead, actual.switchOverhead},
+        };
+        for (Object[] output : outputs) {
+            if (!output[1].equals(output[2])) {
+                result.passed = false;
+                result.failureReasons.add(
+                    output[0] + " differs from " + referenceType + ".\n" +
+                    "  " + referenceType + ": " + output[1] + "\n" +
+                    "  Got: " + output[2]
+                );
+            }
+        }
+    }
+
+    // Every what-if answer must match a fresh scheduler's full run of the changed workload
+    private static void checkWhatIf(TestResult result, String schedulerType, TestCaseLoader.TestCase testCase,
+                                    TestCaseLoader.ExpectedOutput expected) {
+        ProcessSpec[] workload = testCase.workload;
+        int contextSwitch = Math.toIntExact(testCase.contextSwitch);
+        WhatIf whatIf = WhatIf.record(createScheduler(schedulerType, testCase), workload, contextSwitch,
+                expected.whatIfInterval);
+        for (TestCaseLoader.WhatIfChange change : expected.whatIf) {
+            int index = 0;
+            while (index < workload.length && !workload[index].getProcessName().equals(change.process)) index++;
+            if (index == workload.length) {
+                result.passed = false;
+                result.failureReasons.add("Unknown process in whatIf: " + change.process);
+                continue;
+            }
+            ProcessSpec[] changed = workload.clone();
+            changed[index] = change.apply(workload[index]);
+            ScheduleResult full = createScheduler(schedulerType, testCase).schedule(changed, contextSwitch,
+                    new ScheduleResult());
+            checkSame(result, "full run (" + change + ")", full, whatIf.ask(index, changed[index]).result);
+        }
+    }
+
+    // Compare one process's share within the same tolerance as group shares; skipped when not expected
+    private static void checkShare(TestResult result, String kind, String process, Double expected, Double actual) {
+        if (expected == null) return;
+        if (actual == null || Math.abs(actual - expected) > 0.001) {
+            result.passed = false;
+            result.failureReasons.add(
+                kind + " share mismatch for " + process + ".\n" +
+                "  Expected: " + expected + "\n" +
+                "  Got:      " + actual
+            );
+        }
+    }
+
+    /**
+     * Create the scheduler for a type name (RR, SJF, Priority, AG, MLFQ, CFS,
+     * EDF, Stride, Lottery, Group, PredictiveSJF, AdaptiveRR) configured from the test case's input parameters.
+     *
+     * @return the scheduler, or null for an unknown type
+     */
+    public static Scheduler createScheduler(String schedulerType, TestCaseLoader.TestCase testCase) {
+        Scheduler scheduler = newScheduler(schedulerType, testCase);
+        if (scheduler != null && scheduler.getFlightRecorder() != null) {
+            scheduler.getFlightRecorder().setCapacity(testCase.recorderCapacity);
+        }
+        return scheduler;
+    }
+
+    private static Scheduler newScheduler(String schedulerType, TestCaseLoader.TestCase testCase) {
+        switch (schedulerType) {
+            case "RR":
+                return new RoundRobinScheduler(testCase.rrQuantum);
+            case "SJF":
+                return new SJFScheduler();
+            case "Priority":
+                return new PriorityScheduler(testCase.agingInterval);
+            case "AG":
+                return new AGScheduler(testCase.historyMode, testCase.historyLimit);
+            case "MLFQ":
+                return new MLFQScheduler(testCase.mlfqLevels, testCase.mlfqQuantum, testCase.boostInterval);
+            case "CFS":
+                return new FairShareScheduler(testCase.targetLatency, testCase.minGranularity);
+            case "EDF":
+                return new EDFScheduler(testCase.admissionControl, testCase.horizon);
+            case "Stride":
+                return new StrideScheduler(testCase.shareQuantum);
+            case "Lottery":
+                return new LotteryScheduler(testCase.shareQuantum, testCase.seed);
+            case "Group":
+                return new GroupScheduler(GroupScheduler.Policy.parse(testCase.groupPolicy), testCase.groupQuantum,
+                        testCase.groupWeights);
+            case "PredictiveSJF":
+                return new PredictiveSJFScheduler(testCase.predictionAlpha, testCase.initialEstimate,
+                        testCase.predictivePreemptive);
+            case "AdaptiveRR":
+                return new AdaptiveRoundRobinScheduler(testCase.quantumPercentile, testCase.minQuantum,
+                        testCase.maxQuantum, testCase.maxSwitchShare);
+            default:
+                return null;
+        }
+    }
+
     /**
      * Run all tests in a test case file for all applicable schedulers.
      */
@@ -140,30 +380,14 @@ public class TestRunner {
 
         // Try to run each scheduler type that has expected output
         for (String schedulerType : testCase.expectedOutputs.keySet()) {
-            Scheduler scheduler = null;
-
             try {
-                switch (schedulerType) {
-                    case "RR":
-                        scheduler = new RoundRobinScheduler(testCase.rrQuantum);
-                        break;
-                    case "SJF":
-                        scheduler = new SJFScheduler();
-                        break;
-                    case "Priority":
-                        scheduler = new PriorityScheduler(testCase.agingInterval);
-                        break;
-                    case "AG":
-                        scheduler = new AGScheduler();
-                        break;
-                    default:
-                        continue;
+                Scheduler scheduler = createScheduler(schedulerType, testCase);
+                if (scheduler == null) {
+                    continue;
                 }
 
-                if (scheduler != null) {
-                    TestResult result = runTest(testCase, schedulerType, scheduler);
-                    results.add(result);
-                }
+                TestResult result = runTest(testCase, schedulerType, scheduler);
+                results.add(result);
             } catch (Exception e) {
                 TestResult result = new TestResult(testCase.name, schedulerType);
                 result.passed = false;
@@ -236,7 +460,9 @@ public class TestRunner {
                 result.actualResult.averageWaiting, result.actualResult.averageTurnaround);
         }
 
-        if (result.expectedOutput != null) {
+        if (result.expectedOutput != null && result.expectedOutput.sameAs != null) {
+            System.out.println("\nExpected Output: same as " + result.expectedOutput.sameAs);
+        } else if (result.expectedOutput != null) {
             System.out.println("\nExpected Output:");
             System.out.println("  Execution Order: " + result.expectedOutput.executionOrder);
             System.out.printf("  Average Waiting: %.2f, Average Turnaround: %.2f%n",
@@ -0,0 +1,50 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit of the simulated clock. Engines are unit-agnostic and work in whole
+ * units of {@code long}; the unit only labels inputs and results and converts
+ * between traces recorded at different resolutions.
+ */
+public enum TimeScale {
+    TICKS("ticks", null),
+    NANOSECONDS("ns", TimeUnit.NANOSECONDS),
+    MICROSECONDS("us", TimeUnit.MICROSECONDS),
+    MILLISECONDS("ms", TimeUnit.MILLISECONDS);
+
+    private final String symbol;
+    private final TimeUnit unit;
+
+    TimeScale(String symbol, TimeUnit unit) {
+        this.symbol = symbol;
+        this.unit = unit;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    /**
+     * Parse a unit name as written in test cases: "ticks", "ns", "us" (or
+     * "µs"), "ms", or the enum name.
+     */
+    public static TimeScale parse(String name) {
+        String s = name.trim();
+        if (s.equals("µs")) return MICROSECONDS;
+        for (TimeScale t : values()) {
+            if (t.symbol.equalsIgnoreCase(s) || t.name().equalsIgnoreCase(s)) return t;
+        }
+        throw new IllegalArgumentException("Unknown time unit: " + name);
+    }
+
+    /**
+     * Convert a duration in {@code from} units to this unit, truncating like
+     * {@link TimeUnit#convert}. Ticks only convert to ticks.
+     */
+    public long convert(long duration, TimeScale from) {
+        if (from == this) return duration;
+        if (unit == null || from.unit == null) {
+            throw new IllegalArgumentException("Cannot convert between " + from.symbol + " and " + symbol);
+        }
+        return unit.convert(duration, from.unit);
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+/**
+ * Hierarchical timing wheel of int timer ids (process or device indices),
+ * each due at a simulated time.
+ *
+ * Level k has 64 slots of 64^k ticks each. A timer is placed at the level of
+ * the highest base-64 digit in which its deadline differs from the wheel's
+ * current time, so insert and cancel are O(1) list operations on intrusive
+ * arrays. {@link #advance} moves the current time forward and re-places only
+ * the timers in slots it has overtaken; a timer only ever moves to a lower
+ * level or to the due list, so advancing costs amortized O(1) per timer
+ * whatever the distance jumped. Occupied slots are tracked in one bit mask
+ * per level, which makes finding the earliest deadline a few
+ * numberOfTrailingZeros calls.
+ *
+ * Timers at or before the current time sit in the due list and are handed out
+ * by {@link #pollDue()} in no particular order. Like {@link IntHeap}, the
+ * arrays are kept across {@link #reset} so reused schedulers do not allocate.
+ */
+final class TimingWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    // 11 levels of 6 bits cover every non-negative long
+    private static final int LEVELS = 11;
+    private static final int DUE = LEVELS * SLOTS;
+    private static final int NONE = -1;
+
+    private long now;
+    private int size;
+    // bit s of occupied[k] is set when slot s of level k holds a timer
+    private final long[] occupied = new long[LEVELS];
+    // per list (level * SLOTS + slot, or DUE): first timer, and the earliest deadline
+    // with how many timers share it; minCount == 0 means the minimum must be recomputed
+    private final int[] head = new int[DUE + 1];
+    private final long[] min = new long[DUE + 1];
+    private final int[] minCount = new int[DUE + 1];
+    private final long[] overtaken = new long[LEVELS]; // advance() scratch
+    // per timer id
+    private long[] deadline = new long[0];
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+    private int[] list = new int[0]; // NONE when not scheduled
+
+    TimingWheel() {
+        Arrays.fill(head, NONE);
+    }
+
+    /** Cancel every timer and set the current time. */
+    void reset(long time) {
+        if (size > 0) {
+            for (int l = 0; l <= DUE; l++) {
+                for (int id = head[l]; id != NONE; id = next[id]) {
+                    list[id] = NONE;
+                }
+                head[l] = NONE;
+            }
+            Arrays.fill(occupied, 0);
+            size = 0;
+        }
+        now = time;
+    }
+
+    /** Accept ids below {@code capacity}, keeping scheduled timers. */
+    void ensureCapacity(int capacity) {
+        int old = list.length;
+        if (old >= capacity) return;
+        capacity = Math.max(capacity, old * 2);
+        deadline = Arrays.copyOf(deadline, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        list = Arrays.copyOf(list, capacity);
+        Arrays.fill(list, old, capacity, NONE);
+    }
+
+    /** Forget the per-id arrays, e.g. after an unusually large run. */
+    void release() {
+        reset(0);
+        deadline = new long[0];
+        next = new int[0];
+        prev = new int[0];
+        list = new int[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Schedule (or move) timer {@code id}; a deadline not after the current time is due at once. */
+    void schedule(int id, long at) {
+        if (list[id] != NONE) unlink(id);
+        deadline[id] = at;
+        place(id);
+        size++;
+    }
+
+    /** Cancel timer {@code id}; returns false when it was not scheduled. */
+    boolean cancel(int id) {
+        if (list[id] == NONE) return false;
+        unlink(id);
+        return true;
+    }
+
+    /** Earliest deadline of any scheduled timer, or Long.MAX_VALUE when there is none. */
+    long peekDeadline() {
+        if (size == 0) return Long.MAX_VALUE;
+        if (head[DUE] != NONE) return listMin(DUE);
+        for (int k = 0; k < LEVELS; k++) {
+            long bits = occupied[k];
+            if (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                // a level-0 slot holds a single deadline
+                return k == 0 ? (now & ~(long) (SLOTS - 1)) | slot : listMin(k * SLOTS + slot);
+            }
+        }
+        throw new IllegalStateException("Timers missing from the wheel");
+    }
+
+    /**
+     * Move the current time forward to {@code time}, making every timer with a
+     * deadline at or before it due. Going backwards is a no-op.
+     */
+    void advance(long time) {
+        if (time <= now) return;
+        // Slots overtaken on each level, worked out against the old time: every slot
+        // of a level whose higher digits changed, otherwise those up to the new digit
+        int levels = 0;
+        for (int k = 0; k < LEVELS; k++) {
+            long bits = occupied[k];
+            if (bits == 0) continue;
+            long mask;
+            if (prefix(time, k) != prefix(now, k)) {
+                mask = -1L;
+            } else {
+                int digit = (int) (time >>> (k * BITS)) & (SLOTS - 1);
+                mask = digit == SLOTS - 1 ? -1L : (1L << (digit + 1)) - 1;
+            }
+            if ((bits & mask) != 0) {
+                overtaken[k] = bits & mask;
+                levels |= 1 << k;
+            }
+        }
+        now = time;
+        // Lowest level first: re-placed timers only go down, so no list is visited twice
+        for (int k = 0; k < LEVELS; k++) {
+            if ((levels & (1 << k)) == 0) continue;
+            long bits = overtaken[k];
+            overtaken[k] = 0;
+            while (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int l = k * SLOTS + slot;
+                int id = head[l];
+                head[l] = NONE;
+                occupied[k] &= ~(1L << slot);
+                while (id != NONE) {
+                    int following = next[id];
+                    place(id);
+                    id = following;
+                }
+            }
+        }
+    }
+
+    /** Remove and return a due timer, or -1 when none is due. */
+    int pollDue() {
+        int id = head[DUE];
+        if (id == NONE) return NONE;
+        unlink(id);
+        return id;
+    }
+
+    // Digits above level k; shifts of 64 or more would wrap in Java
+    private static long prefix(long t, int k) {
+        int shift = (k + 1) * BITS;
+        return shift >= Long.SIZE ? 0 : t >>> shift;
+    }
+
+    private void place(int id) {
+        long at = deadline[id];
+        int l;
+        if (at <= now) {
+            l = DUE;
+        } else {
+            int k = (Long.SIZE - 1 - Long.numberOfLeadingZeros(at ^ now)) / BITS;
+            int slot = (int) (at >>> (k * BITS)) & (SLOTS - 1);
+            l = k * SLOTS + slot;
+            occupied[k] |= 1L << slot;
+        }
+        int first = head[l];
+        if (first == NONE) {
+            min[l] = at;
+            minCount[l] = 1;
+        } else {
+            prev[first] = id;
+            if (minCount[l] > 0) {
+                if (at < min[l]) {
+                    min[l] = at;
+                    minCount[l] = 1;
+                } else if (at == min[l]) {
+                    minCount[l]++;
+                }
+            }
+        }
+        next[id] = first;
+        prev[id] = NONE;
+        head[l] = id;
+        list[id] = l;
+    }
+
+    private void unlink(int id) {
+        int l = list[id];
+        int p = prev[id], n = next[id];
+        if (p == NONE) head[l] = n; else next[p] = n;
+        if (n != NONE) prev[n] = p;
+        if (head[l] == NONE) {
+            if (l != DUE) occupied[l / SLOTS] &= ~(1L << (l % SLOTS));
+        } else if (minCount[l] > 0 && deadline[id] == min[l]) {
+            minCount[l]--;
+        }
+        list[id] = NONE;
+        size--;
+    }
+
+    // Earliest deadline in list l, recomputed only after its last holder left
+    private long listMin(int l) {
+        if (minCount[l] == 0) {
+            long m = Long.MAX_VALUE;
+            int count = 0;
+            for (int id = head[l]; id != NONE; id = next[id]) {
+                if (deadline[id] < m) {
+                    m = deadline[id];
+                    count = 1;
+                } else if (deadline[id] == m) {
+                    count++;
+                }
+            }
+            min[l] = m;
+            minCount[l] = count;
+        }
+        return min[l];
+    }
+}
@@ -0,0 +1,175 @@
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * How {@link TraceReader} reads a workload trace: CSV or JSON Lines, and which
+ * column (or key) feeds each process field.
+ *
+ * By default every field is read from the column or key of the same name
+ * (name, arrival, burst, priority, quantum, deadline, period, tickets). Only
+ * arrival and burst are required; a record without a name is called "P"
+ * followed by its line number. CSV columns can also be mapped by zero-based
+ * index, which is the only way to map them when the file has no header row.
+ */
+public final class TraceFormat {
+    public enum Kind { CSV, JSONL }
+
+    /** Process fields a trace column can feed. */
+    public enum Field {
+        NAME, ARRIVAL, BURST, PRIORITY, QUANTUM, DEADLINE, PERIOD, TICKETS;
+
+        /** Default column / key name, also the option name accepted by {@link #set}. */
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    static final int FIELDS = Field.values().length;
+
+    private Kind kind;
+    private char delimiter = ',';
+    private boolean header = true;
+    private final String[] columnNames = new String[FIELDS];
+    private final int[] columnIndexes = new int[FIELDS];
+    private TimeScale traceUnit = TimeScale.TICKS;
+    private TimeScale simulationUnit = TimeScale.TICKS;
+    private int reorderWindow = 4096;
+
+    public TraceFormat(Kind kind) {
+        this.kind = kind;
+        for (Field f : Field.values()) {
+            columnNames[f.ordinal()] = f.key();
+        }
+        Arrays.fill(columnIndexes, -1);
+    }
+
+    public static TraceFormat csv() {
+        return new TraceFormat(Kind.CSV);
+    }
+
+    public static TraceFormat jsonl() {
+        return new TraceFormat(Kind.JSONL);
+    }
+
+    /** CSV or JSON Lines by file extension (.jsonl, .ndjson or .json, optionally .gz); CSV otherwise. */
+    public static TraceFormat forPath(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) name = name.substring(0, name.length() - 3);
+        boolean json = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+        return new TraceFormat(json ? Kind.JSONL : Kind.CSV);
+    }
+
+    /** Read {@code field} from the named CSV column or JSON key. */
+    public TraceFormat map(Field field, String column) {
+        columnNames[field.ordinal()] = column;
+        columnIndexes[field.ordinal()] = -1;
+        return this;
+    }
+
+    /** Read {@code field} from the CSV column at {@code index} (zero-based). */
+    public TraceFormat map(Field field, int index) {
+        if (index < 0) throw new IllegalArgumentException("Column index must not be negative");
+        columnIndexes[field.ordinal()] = index;
+        return this;
+    }
+
+    /** Do not read {@code field}; it takes its default value. */
+    public TraceFormat ignore(Field field) {
+        columnNames[field.ordinal()] = null;
+        columnIndexes[field.ordinal()] = -1;
+        return this;
+    }
+
+    public TraceFormat delimiter(char delimiter) {
+        if (delimiter == '"' || delimiter == '\n' || delimiter == '\r' || delimiter > 0x7f) {
+            throw new IllegalArgumentException("Unsupported delimiter '" + delimiter + "'");
+        }
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /** Whether the first CSV line names the columns (default true). */
+    public TraceFormat header(boolean header) {
+        this.header = header;
+        return this;
+    }
+
+    /** Times in the trace are in {@code trace} units and are converted to {@code simulation} units. */
+    public TraceFormat units(TimeScale trace, TimeScale simulation) {
+        simulation.convert(0, trace); // fails early for ticks <-> physical units
+        this.traceUnit = trace;
+        this.simulationUnit = simulation;
+        return this;
+    }
+
+    /**
+     * Number of records held back to restore arrival order. A record arriving
+     * earlier than one already handed out is reported as malformed.
+     */
+    public TraceFormat reorderWindow(int records) {
+        if (records < 1) throw new IllegalArgumentException("Reorder window must hold at least one record");
+        this.reorderWindow = records;
+        return this;
+    }
+
+    /**
+     * Apply a textual option, as given on the command line: format (csv or
+     * jsonl), delimiter (a character or "tab"), header, traceUnit, unit
+     * (simulation unit), reorderWindow, or a field name mapped to a column
+     * name or CSV index.
+     *
+     * @return false when {@code option} is not a trace option
+     */
+    public boolean set(String option, String value) {
+        switch (option) {
+            case "format":
+                kind = Kind.valueOf(value.trim().toUpperCase(Locale.ROOT));
+                return true;
+            case "delimiter":
+                if (value.equalsIgnoreCase("tab")) {
+                    delimiter('\t');
+                } else if (value.length() == 1) {
+                    delimiter(value.charAt(0));
+                } else {
+                    throw new IllegalArgumentException("Delimiter must be a single character: " + value);
+                }
+                return true;
+            case "header":
+                header = Boolean.parseBoolean(value.trim());
+                return true;
+            case "traceUnit":
+                units(TimeScale.parse(value), simulationUnit == TimeScale.TICKS ? TimeScale.parse(value) : simulationUnit);
+                return true;
+            case "unit":
+                units(traceUnit, TimeScale.parse(value));
+                return true;
+            case "reorderWindow":
+                reorderWindow(Integer.parseInt(value.trim()));
+                return true;
+            default:
+                for (Field f : Field.values()) {
+                    if (f.key().equals(option)) {
+                        if (value.isEmpty()) {
+                            ignore(f);
+                        } else if (kind == Kind.CSV && value.chars().allMatch(Character::isDigit)) {
+                            map(f, Integer.parseInt(value));
+                        } else {
+                            map(f, value);
+                        }
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    Kind getKind() { return kind; }
+    char getDelimiter() { return delimiter; }
+    boolean hasHeader() { return header; }
+    String getColumnName(Field f) { return columnNames[f.ordinal()]; }
+    int getColumnIndex(Field f) { return columnIndexes[f.ordinal()]; }
+    TimeScale getTraceUnit() { return traceUnit; }
+    public TimeScale getSimulationUnit() { return simulationUnit; }
+    int getReorderWindow() { return reorderWindow; }
+}
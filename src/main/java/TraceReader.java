@@ -0,0 +1,736 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming importer for workload traces in CSV or JSON Lines, plain or
+ * gzip-compressed (detected from the content, not the file name).
+ *
+ * The trace is read through a channel in {@value #CHUNK}-byte chunks and each
+ * line is parsed straight from the byte buffer: numbers are decoded in place
+ * and only the process name becomes a String. Records are handed out by
+ * {@link #next} in arrival order using a bounded reorder window (see
+ * {@link TraceFormat#reorderWindow}), so memory stays constant however long
+ * the trace is.
+ *
+ * A malformed line (bad number, missing arrival or burst, broken quoting, a
+ * record too far out of order) is counted and reported, and the import goes
+ * on with the next line. The first {@value #MAX_REPORTED} messages are kept
+ * for {@link #getErrors}; an error handler sees all of them.
+ */
+public final class TraceReader implements AutoCloseable {
+    private static final int CHUNK = 1 << 16;
+    // Lines longer than this are reported and skipped rather than buffered
+    private static final int MAX_LINE = 1 << 24;
+    private static final int MAX_REPORTED = 100;
+
+    private static final int NAME = TraceFormat.Field.NAME.ordinal();
+    private static final int ARRIVAL = TraceFormat.Field.ARRIVAL.ordinal();
+    private static final int BURST = TraceFormat.Field.BURST.ordinal();
+    private static final int PRIORITY = TraceFormat.Field.PRIORITY.ordinal();
+    private static final int QUANTUM = TraceFormat.Field.QUANTUM.ordinal();
+    private static final int DEADLINE = TraceFormat.Field.DEADLINE.ordinal();
+    private static final int PERIOD = TraceFormat.Field.PERIOD.ordinal();
+    private static final int TICKETS = TraceFormat.Field.TICKETS.ordinal();
+
+    private final ReadableByteChannel channel;
+    private final TraceFormat format;
+    private final boolean csv;
+    private final byte delimiter;
+    private final String source;
+
+    // Unread bytes are buffer.array()[pos, buffer.position())
+    private ByteBuffer buffer = ByteBuffer.allocate(CHUNK);
+    private int pos;
+    private boolean eof;
+    private int lineStart;
+    private int lineEnd;
+    private long lineNumber;
+
+    // CSV: field ordinal fed by each column, or -1
+    private int[] columnField = new int[0];
+    // JSONL: UTF-8 key of each field, or null when unmapped
+    private final byte[][] keys = new byte[TraceFormat.FIELDS][];
+
+    // Record being parsed
+    private final long[] values = new long[TraceFormat.FIELDS];
+    private final boolean[] present = new boolean[TraceFormat.FIELDS];
+    private String name;
+    private String problem;
+
+    // Reorder window: records not yet handed out, ordered by arrival then line
+    private final ProcessSpec[] window;
+    private final long[] windowSeq;
+    private final int[] freeSlots;
+    private int free;
+    private final IntHeap pending;
+    private long sequence;
+    private long lastArrival = Long.MIN_VALUE;
+
+    private long records;
+    private long malformed;
+    private final List<String> errors = new ArrayList<>();
+    private Consumer<String> errorHandler;
+
+    private TraceReader(ReadableByteChannel channel, TraceFormat format, String source) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        this.csv = format.getKind() == TraceFormat.Kind.CSV;
+        this.delimiter = (byte) format.getDelimiter();
+        this.source = source;
+
+        int size = format.getReorderWindow();
+        window = new ProcessSpec[size];
+        windowSeq = new long[size];
+        freeSlots = new int[size];
+        for (int i = 0; i < size; i++) {
+            freeSlots[i] = size - 1 - i;
+        }
+        free = size;
+        pending = new IntHeap((a, b) -> {
+            int c = Long.compare(window[a].getArrivalTime(), window[b].getArrivalTime());
+            return c != 0 ? c : Long.compare(windowSeq[a], windowSeq[b]);
+        });
+
+        if (csv) {
+            resolveColumns();
+        } else {
+            for (TraceFormat.Field f : TraceFormat.Field.values()) {
+                String key = format.getColumnName(f);
+                if (key != null) keys[f.ordinal()] = key.getBytes(StandardCharsets.UTF_8);
+            }
+            requireMapped(keys[ARRIVAL] != null, TraceFormat.Field.ARRIVAL);
+            requireMapped(keys[BURST] != null, TraceFormat.Field.BURST);
+        }
+    }
+
+    /** Open a trace file, decompressing it if it is gzip. */
+    public static TraceReader open(Path path, TraceFormat format) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ReadableByteChannel channel = file;
+            if (isGzip(file)) {
+                channel = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(file), CHUNK));
+            }
+            return new TraceReader(channel, format, path.toString());
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /** Read a trace from a stream (e.g. standard input), decompressing it if it is gzip. */
+    public static TraceReader open(InputStream in, TraceFormat format, String source) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, CHUNK);
+        buffered.mark(2);
+        int b0 = buffered.read();
+        int b1 = buffered.read();
+        buffered.reset();
+        InputStream stream = b0 == 0x1f && b1 == 0x8b ? new GZIPInputStream(buffered, CHUNK) : buffered;
+        return new TraceReader(Channels.newChannel(stream), format, source);
+    }
+
+    private static boolean isGzip(FileChannel file) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        // positional reads leave the channel position at the start
+        while (magic.hasRemaining() && file.read(magic, magic.position()) > 0) {
+            // keep reading until both bytes are in or the file ends
+        }
+        return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /** Read the whole trace into a workload in arrival order; malformed lines are skipped. */
+    public static ProcessSpec[] readAll(Path path, TraceFormat format) throws IOException {
+        try (TraceReader reader = open(path, format)) {
+            return reader.readAll();
+        }
+    }
+
+    /** Receive every error message as it happens, beyond the first {@value #MAX_REPORTED} kept. */
+    public void setErrorHandler(Consumer<String> handler) {
+        this.errorHandler = handler;
+    }
+
+    /** The remaining records in arrival order. */
+    public ProcessSpec[] readAll() throws IOException {
+        List<ProcessSpec> all = new ArrayList<>();
+        ProcessSpec p;
+        while ((p = next()) != null) {
+            all.add(p);
+        }
+        return all.toArray(new ProcessSpec[0]);
+    }
+
+    /** The next record in arrival order, or null at the end of the trace. */
+    public ProcessSpec next() throws IOException {
+        while (free > 0) {
+            ProcessSpec p = readRecord();
+            if (p == null) break;
+            if (p.getArrivalTime() < lastArrival) {
+                report("arrival " + p.getArrivalTime() + " is earlier than records already replayed ("
+                        + lastArrival + "); increase reorderWindow");
+                continue;
+            }
+            int slot = freeSlots[--free];
+            window[slot] = p;
+            windowSeq[slot] = sequence++;
+            pending.add(slot);
+        }
+        if (pending.isEmpty()) return null;
+        int slot = pending.poll();
+        ProcessSpec p = window[slot];
+        window[slot] = null;
+        freeSlots[free++] = slot;
+        lastArrival = p.getArrivalTime();
+        return p;
+    }
+
+    public long getLineNumber() { return lineNumber; }
+    /** Records parsed successfully so far (including ones still in the reorder window). */
+    public long getRecordCount() { return records; }
+    public long getMalformedCount() { return malformed; }
+    /** The first {@value #MAX_REPORTED} error messages. */
+    public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Replay a trace through one or more schedulers, run side by side, and
+     * print the {@link PolicyComparison} report:
+     * {@code <trace> <scheduler[,scheduler...]> [option=value ...]}. Options
+     * known to {@link TraceFormat#set} configure the import; the rest are
+     * scheduler parameters named as in test cases (contextSwitch, switchCost, rrQuantum, ...),
+     * except export=&lt;file&gt;, which writes every full result through
+     * {@link ResultExporter} (format by extension), and
+     * offHeap=direct|&lt;scratch file&gt;, which streams the trace into an
+     * {@link OffHeapWorkload} and runs the schedulers one after another on it,
+     * printing their averages, so the heap stays small however long the trace;
+     * only schedulers with an off-heap engine (RR, SJF) are accepted there.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: --replay <trace[.gz]> <scheduler[,scheduler...]> [export=<file>] [offHeap=direct|<file>] [option=value ...]");
+            return;
+        }
+        Path path = java.nio.file.Paths.get(args[0]);
+        TraceFormat format = TraceFormat.forPath(path);
+        Map<String, String> parameters = new LinkedHashMap<>();
+        Path export = null;
+        String offHeap = null;
+        for (int i = 2; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Expected option=value: " + args[i]);
+            String key = args[i].substring(0, eq);
+            String value = args[i].substring(eq + 1);
+            if (key.equals("export")) {
+                export = java.nio.file.Paths.get(value);
+            } else if (key.equals("offHeap")) {
+                offHeap = value;
+            } else if (!format.set(key, value)) {
+                parameters.put(key, value);
+            }
+        }
+
+        if (offHeap != null) {
+            if (export != null) throw new IllegalArgumentException("export is not supported with offHeap");
+            if (parameters.containsKey("switchCost")) {
+                throw new IllegalArgumentException("switchCost is not supported with offHeap");
+            }
+            replayOffHeap(path, format, offHeap, args[1], TestCaseLoader.parseParameters(parameters));
+            return;
+        }
+
+        ProcessSpec[] workload;
+        long bad;
+        try (TraceReader reader = open(path, format)) {
+            reader.setErrorHandler(System.err::println);
+            workload = reader.readAll();
+            bad = reader.getMalformedCount();
+        }
+        System.out.println("Imported " + workload.length + " processes from " + path
+                + (bad > 0 ? " (" + bad + " malformed lines skipped)" : ""));
+
+        TestCaseLoader.TestCase testCase = TestCaseLoader.parseParameters(parameters);
+        testCase.timeUnit = format.getSimulationUnit();
+        List<String> schedulers = new ArrayList<>();
+        for (String type : args[1].split(",")) {
+            schedulers.add(type.trim());
+        }
+        if (export == null) {
+            System.out.print(PolicyComparison.run(workload, schedulers, testCase));
+            return;
+        }
+        try (ResultExporter exporter = ResultExporter.open(export)) {
+            String run = path.getFileName().toString();
+            System.out.print(PolicyComparison.run(workload, schedulers, testCase,
+                    Runtime.getRuntime().availableProcessors(), (type, r) -> exporter.write(run, type, r)));
+        }
+        System.out.println("Results written to " + export);
+    }
+
+    private static void replayOffHeap(Path path, TraceFormat format, String storage, String schedulers,
+                                      TestCaseLoader.TestCase testCase) throws IOException {
+        // Create and check every scheduler first: a large import should not end in an unsupported one
+        Map<String, Scheduler> runs = new LinkedHashMap<>();
+        for (String type : schedulers.split(",")) {
+            Scheduler scheduler = TestRunner.createScheduler(type.trim(), testCase);
+            if (scheduler == null) throw new IllegalArgumentException("Unknown scheduler: " + type);
+            if (!scheduler.supportsOffHeap()) {
+                throw new IllegalArgumentException(type.trim() + " cannot run off-heap workloads");
+            }
+            runs.put(type.trim(), scheduler);
+        }
+        Path scratch = storage.equals("direct") ? null : java.nio.file.Paths.get(storage);
+        try (OffHeapWorkload workload = scratch == null ? OffHeapWorkload.allocateDirect() : OffHeapWorkload.map(scratch);
+             TraceReader reader = open(path, format)) {
+            reader.setErrorHandler(System.err::println);
+            workload.addAll(reader);
+            long bad = reader.getMalformedCount();
+            System.out.printf("Imported %d processes from %s into %.1f MB off-heap%s%n", workload.size(), path,
+                    workload.offHeapBytes() / 1048576.0, bad > 0 ? " (" + bad + " malformed lines skipped)" : "");
+            String unit = format.getSimulationUnit() == TimeScale.TICKS ? "" : " " + format.getSimulationUnit().symbol();
+            for (Map.Entry<String, Scheduler> run : runs.entrySet()) {
+                long start = System.nanoTime();
+                ScheduleResult r = run.getValue().schedule(workload, testCase.contextSwitch);
+                System.out.printf("%-8s avg waiting %.2f%s, avg turnaround %.2f%s, CPU utilization %.2f (%d ms)%n",
+                        run.getKey(), r.averageWaiting, unit, r.averageTurnaround, unit, r.cpuUtilization,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        } finally {
+            if (scratch != null) java.nio.file.Files.deleteIfExists(scratch);
+        }
+    }
+
+    // ---- records ----
+
+    // Parse lines until one yields a record; null at end of input
+    private ProcessSpec readRecord() throws IOException {
+        while (nextLine()) {
+            int start = skipBlanks(buffer.array(), lineStart, lineEnd);
+            if (start == lineEnd) continue;
+            Arrays.fill(present, false);
+            name = null;
+            problem = null;
+            boolean ok = csv ? parseCsv(buffer.array(), start, lineEnd) : parseJson(buffer.array(), start, lineEnd);
+            ProcessSpec p = ok ? toSpec() : null;
+            if (p != null) {
+                records++;
+                return p;
+            }
+            report(problem);
+        }
+        return null;
+    }
+
+    private ProcessSpec toSpec() {
+        if (!present[ARRIVAL]) return invalid("missing arrival");
+        if (!present[BURST]) return invalid("missing burst");
+        long arrival;
+        long burst;
+        long deadline;
+        long period;
+        try {
+            arrival = time(ARRIVAL);
+            burst = time(BURST);
+            deadline = time(DEADLINE);
+            period = time(PERIOD);
+        } catch (ArithmeticException e) {
+            return invalid("time does not fit in " + format.getSimulationUnit().symbol());
+        }
+        if (arrival < 0) return invalid("negative arrival");
+        if (burst < 0) return invalid("negative burst");
+        int priority = (int) values[PRIORITY];
+        int quantum = (int) values[QUANTUM];
+        int tickets = present[TICKETS] ? (int) values[TICKETS] : Process.DEFAULT_TICKETS;
+        if ((present[PRIORITY] && priority != values[PRIORITY])
+                || (present[QUANTUM] && quantum != values[QUANTUM])
+                || (present[TICKETS] && tickets != values[TICKETS])) {
+            return invalid("priority, quantum or tickets out of range");
+        }
+        String processName = name != null ? name : "P" + lineNumber;
+        return new ProcessSpec(processName, arrival, burst, present[PRIORITY] ? priority : 0,
+                present[QUANTUM] ? quantum : 0, deadline, period, tickets);
+    }
+
+    // Field value converted to simulation units; absent times are 0
+    private long time(int field) {
+        if (!present[field]) return 0;
+        long v = values[field];
+        if (format.getTraceUnit() == format.getSimulationUnit()) return v;
+        long converted = format.getSimulationUnit().convert(v, format.getTraceUnit());
+        // TimeUnit saturates instead of overflowing
+        if (converted == Long.MAX_VALUE || converted == Long.MIN_VALUE) throw new ArithmeticException();
+        return converted;
+    }
+
+    private ProcessSpec invalid(String message) {
+        problem = message;
+        return null;
+    }
+
+    private boolean reject(String message) {
+        problem = message;
+        return false;
+    }
+
+    private void report(String message) {
+        malformed++;
+        String full = source + ":" + lineNumber + ": " + message;
+        if (errors.size() < MAX_REPORTED) errors.add(full);
+        if (errorHandler != null) errorHandler.accept(full);
+    }
+
+    // Store the value of one field from b[from, to); false on a malformed value
+    private boolean setField(int field, byte[] b, int from, int to, boolean quoted) {
+        if (field == NAME) {
+            name = quoted ? decodeString(b, from, to) : new String(b, from, to - from, StandardCharsets.UTF_8).trim();
+            if (name.isEmpty()) name = null;
+            return true;
+        }
+        from = skipBlanks(b, from, to);
+        while (to > from && isBlank(b[to - 1])) to--;
+        if (from == to) return true; // empty: field keeps its default
+        if (!quoted && to - from == 4 && b[from] == 'n' && b[from + 1] == 'u' && b[from + 2] == 'l' && b[from + 3] == 'l') {
+            return true; // JSON null
+        }
+        boolean negative = b[from] == '-';
+        int i = negative || b[from] == '+' ? from + 1 : from;
+        if (i == to) return failed(field, "is not a number");
+        long v = 0;
+        for (; i < to; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                return failed(field, b[i] == '.' || b[i] == 'e' || b[i] == 'E' ? "must be a whole number" : "is not a number");
+            }
+            if (v > (Long.MAX_VALUE - d) / 10) return failed(field, "is too large");
+            v = v * 10 + d;
+        }
+        values[field] = negative ? -v : v;
+        present[field] = true;
+        return true;
+    }
+
+    private boolean failed(int field, String what) {
+        return reject(TraceFormat.Field.values()[field].key() + " " + what);
+    }
+
+    // ---- CSV ----
+
+    private void resolveColumns() throws IOException {
+        TraceFormat.Field[] fields = TraceFormat.Field.values();
+        List<String> header = Collections.emptyList();
+        if (format.hasHeader()) {
+            while (nextLine()) {
+                if (skipBlanks(buffer.array(), lineStart, lineEnd) < lineEnd) {
+                    header = splitHeader(buffer.array(), lineStart, lineEnd);
+                    break;
+                }
+            }
+        }
+        int[] column = new int[fields.length];
+        int width = header.size();
+        for (TraceFormat.Field f : fields) {
+            int c = format.getColumnIndex(f);
+            String wanted = format.getColumnName(f);
+            if (c < 0 && wanted != null) {
+                for (int i = 0; i < header.size(); i++) {
+                    if (header.get(i).equalsIgnoreCase(wanted.trim())) {
+                        c = i;
+                        break;
+                    }
+                }
+            }
+            column[f.ordinal()] = c;
+            width = Math.max(width, c + 1);
+        }
+        requireMapped(column[ARRIVAL] >= 0, TraceFormat.Field.ARRIVAL);
+        requireMapped(column[BURST] >= 0, TraceFormat.Field.BURST);
+        columnField = new int[width];
+        Arrays.fill(columnField, -1);
+        for (TraceFormat.Field f : fields) {
+            if (column[f.ordinal()] >= 0) columnField[column[f.ordinal()]] = f.ordinal();
+        }
+    }
+
+    private void requireMapped(boolean mapped, TraceFormat.Field field) {
+        if (!mapped) {
+            throw new IllegalArgumentException(source + ": no column for " + field.key()
+                    + (csv && !format.hasHeader() ? "; map it by index when the trace has no header" : ""));
+        }
+    }
+
+    private List<String> splitHeader(byte[] b, int start, int end) {
+        List<String> names = new ArrayList<>();
+        int i = start;
+        // tolerate a UTF-8 byte order mark
+        if (end - i >= 3 && (b[i] & 0xff) == 0xef && (b[i + 1] & 0xff) == 0xbb && (b[i + 2] & 0xff) == 0xbf) i += 3;
+        while (true) {
+            int from = i;
+            boolean quoted = i < end && b[i] == '"';
+            if (quoted) {
+                i = closingQuote(b, i + 1, end);
+                if (i < 0) throw new IllegalArgumentException(source + ": unterminated quote in header");
+                names.add(decodeString(b, from + 1, i).trim());
+                while (i < end && b[i] != delimiter) i++;
+            } else {
+                while (i < end && b[i] != delimiter) i++;
+                names.add(new String(b, from, i - from, StandardCharsets.UTF_8).trim());
+            }
+            if (i >= end) return names;
+            i++;
+        }
+    }
+
+    private boolean parseCsv(byte[] b, int start, int end) {
+        int column = 0;
+        int i = start;
+        while (true) {
+            int from;
+            int to;
+            int lead = skipBlanks(b, i, end);
+            boolean quoted = lead < end && b[lead] == '"';
+            if (quoted) {
+                from = lead + 1;
+                to = closingQuote(b, from, end);
+                if (to < 0) return reject("unterminated quote in column " + (column + 1));
+                i = skipBlanks(b, to + 1, end);
+                if (i < end && b[i] != delimiter) return reject("text after closing quote in column " + (column + 1));
+            } else {
+                from = i;
+                while (i < end && b[i] != delimiter) i++;
+                to = i;
+            }
+            int field = column < columnField.length ? columnField[column] : -1;
+            if (field >= 0 && !setField(field, b, from, to, quoted && field == NAME)) return false;
+            column++;
+            if (i >= end) return true;
+            i++; // delimiter
+        }
+    }
+
+    // Index of the quote ending a quoted CSV field starting at from, skipping doubled quotes; -1 if none
+    private static int closingQuote(byte[] b, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (b[i] == '"') {
+                if (i + 1 < end && b[i + 1] == '"') {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // ---- JSON Lines ----
+
+    // Flat objects only: nested values are skipped, and must not feed a field
+    private boolean parseJson(byte[] b, int start, int end) {
+        int i = start;
+        if (b[i] != '{') return reject("expected a JSON object");
+        i = skipBlanks(b, i + 1, end);
+        if (i < end && b[i] == '}') return true;
+        while (true) {
+            if (i >= end || b[i] != '"') return reject("expected a key");
+            int keyEnd = stringEnd(b, i + 1, end);
+            if (keyEnd < 0) return reject("unterminated string");
+            int field = fieldForKey(b, i + 1, keyEnd);
+            i = skipBlanks(b, keyEnd + 1, end);
+            if (i >= end || b[i] != ':') return reject("expected ':'");
+            i = skipBlanks(b, i + 1, end);
+            if (i >= end) return reject("missing value");
+            if (b[i] == '"') {
+                int valueEnd = stringEnd(b, i + 1, end);
+                if (valueEnd < 0) return reject("unterminated string");
+                if (field >= 0 && !setField(field, b, i + 1, valueEnd, true)) return false;
+                i = valueEnd + 1;
+            } else if (b[i] == '{' || b[i] == '[') {
+                if (field >= 0) return failed(field, "must be a number");
+                i = skipNested(b, i, end);
+                if (i < 0) return reject("unbalanced brackets");
+            } else {
+                int from = i;
+                while (i < end && b[i] != ',' && b[i] != '}' && !isBlank(b[i])) i++;
+                if (field >= 0 && !setField(field, b, from, i, false)) return false;
+            }
+            i = skipBlanks(b, i, end);
+            if (i >= end) return reject("unterminated object");
+            if (b[i] == '}') return true;
+            if (b[i] != ',') return reject("expected ',' or '}'");
+            i = skipBlanks(b, i + 1, end);
+        }
+    }
+
+    private int fieldForKey(byte[] b, int from, int to) {
+        for (int f = 0; f < keys.length; f++) {
+            byte[] key = keys[f];
+            if (key != null && Arrays.equals(b, from, to, key, 0, key.length)) return f;
+        }
+        return -1;
+    }
+
+    // Index of the quote closing a JSON string whose content starts at from; -1 if none
+    private static int stringEnd(byte[] b, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (b[i] == '\\') {
+                i++;
+            } else if (b[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Index just past the object or array starting at from; -1 if unbalanced
+    private static int skipNested(byte[] b, int from, int end) {
+        int depth = 0;
+        for (int i = from; i < end; i++) {
+            byte c = b[i];
+            if (c == '"') {
+                i = stringEnd(b, i + 1, end);
+                if (i < 0) return -1;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Decode a quoted CSV field ("" escapes) or JSON string (backslash escapes)
+    private String decodeString(byte[] b, int from, int to) {
+        boolean escaped = false;
+        for (int i = from; i < to && !escaped; i++) {
+            escaped = b[i] == '\\' || b[i] == '"';
+        }
+        String raw = new String(b, from, to - from, StandardCharsets.UTF_8);
+        if (!escaped) return raw;
+        if (csv) return raw.replace("\"\"", "\"");
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\' || i + 1 == raw.length()) {
+                sb.append(c);
+                continue;
+            }
+            char e = raw.charAt(++i);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (i + 4 < raw.length()) {
+                        try {
+                            sb.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                            i += 4;
+                            break;
+                        } catch (NumberFormatException ignored) {
+                            // keep the escape as written
+                        }
+                    }
+                    sb.append("\\u");
+                    break;
+                default: sb.append(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ---- lines ----
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static int skipBlanks(byte[] b, int from, int to) {
+        while (from < to && isBlank(b[from])) from++;
+        return from;
+    }
+
+    // Advance to the next line, reading more input as needed; false at end of input
+    private boolean nextLine() throws IOException {
+        int scan = pos;
+        boolean skipping = false;
+        while (true) {
+            byte[] b = buffer.array();
+            int end = buffer.position();
+            for (int i = scan; i < end; i++) {
+                if (b[i] != '\n') continue;
+                lineNumber++;
+                if (skipping) {
+                    // tail of an overlong line
+                    skipping = false;
+                    pos = i + 1;
+                    report("line longer than " + MAX_LINE + " bytes skipped");
+                    continue;
+                }
+                setLine(pos, i);
+                pos = i + 1;
+                return true;
+            }
+            if (eof) {
+                if (skipping) {
+                    lineNumber++;
+                    report("line longer than " + MAX_LINE + " bytes skipped");
+                } else if (pos < end) {
+                    lineNumber++;
+                    setLine(pos, end);
+                    pos = end;
+                    return true;
+                }
+                pos = end;
+                return false;
+            }
+            if (pos == 0 && end == buffer.capacity() && buffer.capacity() >= MAX_LINE) {
+                skipping = true;
+            }
+            if (skipping) {
+                // drop what we have of the overlong line
+                pos = end;
+            }
+            scan = end - pos;
+            fill();
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer.array()[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    // Move unread bytes to the front, grow the buffer if a line fills it, then read more
+    private void fill() throws IOException {
+        byte[] b = buffer.array();
+        int unread = buffer.position() - pos;
+        if (pos > 0) {
+            System.arraycopy(b, pos, b, 0, unread);
+            buffer.position(unread);
+            pos = 0;
+        }
+        if (!buffer.hasRemaining()) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        int n;
+        do {
+            n = channel.read(buffer);
+        } while (n == 0);
+        if (n < 0) eof = true;
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.*;
+
+/**
+ * Incremental what-if analysis on one workload: "what if process X arrived
+ * later, or ran longer?", asked many times against the same base run.
+ *
+ * {@link #record} runs the workload once and, for schedulers that support it
+ * (currently {@link RoundRobinScheduler}), keeps a checkpoint of the engine
+ * state at the first step at or after every multiple of the checkpoint
+ * interval. {@link #ask} then re-simulates the modified workload from the last
+ * checkpoint before the changed process's first event (its earlier arrival),
+ * and stops as soon as the state at a later checkpoint time is identical to
+ * the base run's with the changed process finished in both, since from there
+ * on the two runs cannot differ. The answer splices the re-simulated stretch
+ * into the base results and lists every process whose waiting or turnaround
+ * time changed. Changes to fields the policy ignores (priority for round
+ * robin) are answered without simulating at all.
+ *
+ * Other schedulers are answered by a full re-run, with the same diff. Per-
+ * process maps in answers are in workload order. Like the schedulers, a
+ * WhatIf is not thread-safe.
+ */
+public final class WhatIf {
+    /** Scheduler side of checkpointing. */
+    interface Engine {
+        /** Run {@code workload} from time zero, filling {@code log}; returns the ordinary result. */
+        ScheduleResult record(ProcessSpec[] workload, int contextSwitch, Log log);
+
+        /**
+         * Re-run {@code workload} from checkpoint {@code from} of {@code log} (-1 = from the
+         * start) until it rejoins a later checkpoint with process {@code changed} finished,
+         * or to the end, filling {@code segment}.
+         */
+        void resume(ProcessSpec[] workload, int contextSwitch, Log log, int from, int changed, Segment segment);
+
+        /** True when the policy's schedule cannot depend on how {@code before} and {@code after} differ. */
+        boolean irrelevant(ProcessSpec before, ProcessSpec after);
+    }
+
+    /** Engine state at the top of one step of the base run; engines add their own state. */
+    abstract static class Checkpoint {
+        long time;
+        int orderSize;    // dispatches recorded so far
+        long cpuTime;     // CPU busy time so far
+        long overlapTime; // of which some device was busy too
+        long switchOverhead;
+    }
+
+    /** The base run: checkpoints, and per-process results by workload position. */
+    static final class Log {
+        final long interval;
+        final List<Checkpoint> checkpoints = new ArrayList<>();
+        final long[] waiting;
+        final long[] turnaround;
+        final long[] completion; // -1 until the process completes
+        List<String> executionOrder;
+        long endTime;
+        long cpuTime;
+        long overlapTime;
+        long switchOverhead;
+        boolean ioUsed;
+        long steps;
+
+        Log(long interval, int processes) {
+            this.interval = interval;
+            waiting = new long[processes];
+            turnaround = new long[processes];
+            completion = new long[processes];
+            Arrays.fill(completion, -1);
+        }
+
+        /** Time of the next checkpoint after one taken at {@code time}. */
+        long next(long time) {
+            long next = (time / interval + 1) * interval;
+            return next < 0 ? Long.MAX_VALUE : next;
+        }
+
+        void completed(int p, long time, long waitingTime, long turnaroundTime) {
+            completion[p] = time;
+            waiting[p] = waitingTime;
+            turnaround[p] = turnaroundTime;
+        }
+    }
+
+    /** The re-simulated stretch of one what-if run. */
+    static final class Segment {
+        final long[] waiting;
+        final long[] turnaround;
+        final boolean[] completed;
+        List<String> executionOrder = new ArrayList<>();
+        int converged = -1; // base checkpoint the run rejoined at, or -1 when it ran to the end
+        long endTime;
+        long cpuTime;
+        long overlapTime;
+        long switchOverhead;
+        boolean ioUsed;
+        long steps;
+
+        Segment(int processes) {
+            waiting = new long[processes];
+            turnaround = new long[processes];
+            completed = new boolean[processes];
+        }
+
+        void completed(int p, long waitingTime, long turnaroundTime) {
+            completed[p] = true;
+            waiting[p] = waitingTime;
+            turnaround[p] = turnaroundTime;
+        }
+    }
+
+    /** A process whose metrics differ from the base run. */
+    public static final class Change {
+        public final String process;
+        public final long baseWaiting;
+        public final long waiting;
+        public final long baseTurnaround;
+        public final long turnaround;
+
+        Change(String process, long baseWaiting, long waiting, long baseTurnaround, long turnaround) {
+            this.process = process;
+            this.baseWaiting = baseWaiting;
+            this.waiting = waiting;
+            this.baseTurnaround = baseTurnaround;
+            this.turnaround = turnaround;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: waiting %d -> %d, turnaround %d -> %d", process, baseWaiting, waiting,
+                    baseTurnaround, turnaround);
+        }
+    }
+
+    /** The outcome of one question. */
+    public static final class Answer {
+        /** Full result of the modified workload. */
+        public final ScheduleResult result;
+        /** Processes whose waiting or turnaround time changed, in workload order. */
+        public final List<Change> changes;
+        public final double averageWaitingDelta;
+        public final double averageTurnaroundDelta;
+        /** Simulated time the re-run started from (0 for a full re-run). */
+        public final long restartTime;
+        /** Simulated time the re-run rejoined the base run, or -1 when it ran to the end. */
+        public final long convergedAt;
+        /** Engine steps simulated for this answer, and for the whole base run (-1 when unknown). */
+        public final long steps;
+        public final long baseSteps;
+
+        Answer(ScheduleResult result, List<Change> changes, ScheduleResult base, long restartTime, long convergedAt,
+               long steps, long baseSteps) {
+            this.result = result;
+            this.changes = Collections.unmodifiableList(changes);
+            this.averageWaitingDelta = result.averageWaiting - base.averageWaiting;
+            this.averageTurnaroundDelta = result.averageTurnaround - base.averageTurnaround;
+            this.restartTime = restartTime;
+            this.convergedAt = convergedAt;
+            this.steps = steps;
+            this.baseSteps = baseSteps;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Average waiting %+.2f, average turnaround %+.2f; %d processes changed%n",
+                    averageWaitingDelta, averageTurnaroundDelta, changes.size()));
+            if (baseSteps >= 0) {
+                sb.append(String.format("Re-simulated %d of %d steps from time %d%s%n", steps, baseSteps, restartTime,
+                        convergedAt >= 0 ? ", rejoined the base run at " + convergedAt : ""));
+            }
+            for (Change c : changes) {
+                sb.append("  ").append(c).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final ProcessSpec[] workload;
+    private final int contextSwitch;
+    private final ScheduleResult base;
+    private final Log log; // null when the scheduler cannot checkpoint
+
+    private WhatIf(Scheduler scheduler, ProcessSpec[] workload, int contextSwitch, ScheduleResult base, Log log) {
+        this.scheduler = scheduler;
+        this.workload = workload;
+        this.contextSwitch = contextSwitch;
+        this.base = base;
+        this.log = log;
+    }
+
+    /**
+     * Run the base workload, checkpointing every {@code checkpointInterval}
+     * ticks of simulated time. Shorter intervals make answers cheaper and
+     * checkpoints more numerous; each holds the processes active at that time.
+     * The scheduler instance is used for every later question.
+     */
+    public static WhatIf record(Scheduler scheduler, ProcessSpec[] workload, int contextSwitch,
+                                long checkpointInterval) {
+        if (checkpointInterval <= 0) throw new IllegalArgumentException("Checkpoint interval must be positive");
+        ProcessSpec[] copy = workload.clone();
+        if (scheduler instanceof Engine) {
+            Log log = new Log(checkpointInterval, copy.length);
+            ScheduleResult base = ((Engine) scheduler).record(copy, contextSwitch, log);
+            return new WhatIf(scheduler, copy, contextSwitch, base, log);
+        }
+        return new WhatIf(scheduler, copy, contextSwitch, scheduler.schedule(copy, contextSwitch), null);
+    }
+
+    public ScheduleResult getBaseResult() {
+        return base;
+    }
+
+    /** Checkpoints kept from the base run (0 when the scheduler cannot checkpoint). */
+    public int getCheckpointCount() {
+        return log == null ? 0 : log.checkpoints.size();
+    }
+
+    /** The base workload with process {@code index} replaced by {@code modified}. */
+    public Answer ask(int index, ProcessSpec modified) {
+        Objects.checkIndex(index, workload.length);
+        Objects.requireNonNull(modified, "modified");
+        ProcessSpec[] changed = workload.clone();
+        changed[index] = modified;
+        if (log == null) return rerun(changed);
+
+        Engine engine = (Engine) scheduler;
+        int n = workload.length;
+        Segment segment = new Segment(n);
+        int from = -1;
+        if (engine.irrelevant(workload[index], modified)) {
+            // nothing to simulate: the whole base run stands
+            segment.converged = 0;
+            from = 0;
+        } else {
+            long firstEvent = Math.min(workload[index].getArrivalTime(), modified.getArrivalTime());
+            List<Checkpoint> checkpoints = log.checkpoints;
+            while (from + 1 < checkpoints.size() && checkpoints.get(from + 1).time < firstEvent) from++;
+            engine.resume(changed, contextSwitch, log, from, index, segment);
+        }
+        return splice(changed, from, segment);
+    }
+
+    // Base results up to checkpoint 'from', the segment, then the base results after it rejoined
+    private Answer splice(ProcessSpec[] changed, int from, Segment segment) {
+        List<Checkpoint> checkpoints = log.checkpoints;
+        ScheduleResult r = new ScheduleResult();
+        boolean converged = segment.converged >= 0;
+        int n = changed.length;
+        if (converged && segment.converged == from) {
+            r.executionOrder.addAll(log.executionOrder);
+        } else {
+            r.executionOrder.addAll(log.executionOrder.subList(0, from >= 0 ? checkpoints.get(from).orderSize : 0));
+            r.executionOrder.addAll(segment.executionOrder);
+            if (converged) {
+                int rejoin = checkpoints.get(segment.converged).orderSize;
+                r.executionOrder.addAll(log.executionOrder.subList(rejoin, log.executionOrder.size()));
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+        long totalWait = 0, totalTurn = 0;
+        for (int i = 0; i < n; i++) {
+            boolean rerun = segment.completed[i];
+            long waiting = rerun ? segment.waiting[i] : log.waiting[i];
+            long turnaround = rerun ? segment.turnaround[i] : log.turnaround[i];
+            String name = changed[i].getProcessName();
+            r.waitingTimes.putLong(name, waiting);
+            r.turnaroundTimes.putLong(name, turnaround);
+            totalWait += waiting;
+            totalTurn += turnaround;
+            if (waiting != log.waiting[i] || turnaround != log.turnaround[i]) {
+                changes.add(new Change(name, log.waiting[i], waiting, log.turnaround[i], turnaround));
+            }
+        }
+        r.averageWaiting = n == 0 ? 0 : (double) totalWait / n;
+        r.averageTurnaround = n == 0 ? 0 : (double) totalTurn / n;
+
+        long endTime, cpuTime, overlapTime, switchOverhead;
+        boolean ioUsed;
+        long convergedAt = -1;
+        if (converged) {
+            Checkpoint rejoin = checkpoints.get(segment.converged);
+            boolean resimulated = segment.converged != from;
+            convergedAt = rejoin.time;
+            endTime = log.endTime;
+            cpuTime = log.cpuTime - (resimulated ? rejoin.cpuTime - segment.cpuTime : 0);
+            overlapTime = log.overlapTime - (resimulated ? rejoin.overlapTime - segment.overlapTime : 0);
+            switchOverhead = log.switchOverhead - (resimulated ? rejoin.switchOverhead - segment.switchOverhead : 0);
+            ioUsed = log.ioUsed || segment.ioUsed;
+        } else {
+            endTime = segment.endTime;
+            cpuTime = segment.cpuTime;
+            overlapTime = segment.overlapTime;
+            switchOverhead = segment.switchOverhead;
+            ioUsed = segment.ioUsed;
+        }
+        r.switchOverhead = switchOverhead;
+        if (endTime > 0) {
+            r.cpuUtilization = (double) cpuTime / endTime;
+            if (ioUsed) r.ioOverlap = (double) overlapTime / endTime;
+        }
+        long restartTime = from >= 0 ? checkpoints.get(from).time : 0;
+        return new Answer(r, changes, base, restartTime, convergedAt, segment.steps, log.steps);
+    }
+
+    // Schedulers without checkpoints: run the modified workload from the start and diff by name
+    private Answer rerun(ProcessSpec[] changed) {
+        ScheduleResult r = scheduler.schedule(changed, contextSwitch);
+        List<Change> changes = new ArrayList<>();
+        for (int i = 0; i < changed.length; i++) {
+            long baseWaiting = base.waitingTimes.getLong(workload[i].getProcessName(), -1);
+            long baseTurnaround = base.turnaroundTimes.getLong(workload[i].getProcessName(), -1);
+            long waiting = r.waitingTimes.getLong(changed[i].getProcessName(), -1);
+            long turnaround = r.turnaroundTimes.getLong(changed[i].getProcessName(), -1);
+            if (waiting != baseWaiting || turnaround != baseTurnaround) {
+                changes.add(new Change(changed[i].getProcessName(), baseWaiting, waiting, baseTurnaround, turnaround));
+            }
+        }
+        return new Answer(r, changes, base, 0, -1, -1, -1);
+    }
+}
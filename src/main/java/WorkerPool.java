@@ -0,0 +1,365 @@
+import java.io.*;
+import java.net.*;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinator that spreads {@link SweepJob}s over worker JVMs, so a sweep over
+ * huge traces is not limited by one heap.
+ *
+ * The pool listens on a socket and {@link SchedulerWorker}s connect to it,
+ * identifying themselves with the pool's token. {@link #launchLocalWorkers}
+ * starts them as child JVMs on this machine. Because workers dial in, remote
+ * workers can join the same way once the pool is bound to a reachable address
+ * and they are given the token.
+ *
+ * Load is balanced by pulling: each connected worker takes the next job from a
+ * shared queue as soon as it finishes the previous one. If a worker dies
+ * mid-job, the job goes back to the front of the queue, up to
+ * {@value #MAX_ATTEMPTS} attempts. A job that does not answer within the job
+ * timeout counts as a dead worker too, and a local worker that hung is killed.
+ * A dead local worker is replaced while the restart budget lasts. A job that
+ * fails inside the scheduler is reported, not retried.
+ */
+public final class WorkerPool implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_MILLIS = 100;
+    private static final long DEFAULT_JOB_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final ServerSocket server;
+    private final long token = new SecureRandom().nextLong();
+    private final List<String> jvmArgs;
+    private final AtomicInteger launched = new AtomicInteger();
+    // Guards restartsLeft together with the pending/live hand-over of a replacement
+    private final Object restartLock = new Object();
+    private int restartsLeft;
+    private final AtomicLong nextJobId = new AtomicLong();
+    private final AtomicInteger nextWorkloadId = new AtomicInteger();
+    // Local children that have been started but have not connected yet
+    private final Map<String, java.lang.Process> pending = new ConcurrentHashMap<>();
+    private final Map<String, java.lang.Process> children = new ConcurrentHashMap<>();
+    private final Set<String> live = ConcurrentHashMap.newKeySet();
+    private final BlockingDeque<Attempt> queue = new LinkedBlockingDeque<>();
+    private final Thread acceptor;
+    private volatile long jobTimeoutMillis = DEFAULT_JOB_TIMEOUT_MILLIS;
+    private volatile String lastDeath;
+    private volatile boolean closed;
+
+    /** A job of the current run and how often it has been sent. */
+    private static final class Attempt {
+        final Run run;
+        final int index;
+        final SweepJob job;
+        final int workloadId;
+        int attempts;
+
+        Attempt(Run run, int index, SweepJob job, int workloadId) {
+            this.run = run;
+            this.index = index;
+            this.job = job;
+            this.workloadId = workloadId;
+        }
+    }
+
+    private static final class Run {
+        final JobResult[] results;
+        final CountDownLatch remaining;
+
+        Run(int jobs) {
+            results = new JobResult[jobs];
+            remaining = new CountDownLatch(jobs);
+        }
+    }
+
+    /**
+     * @param bind address workers connect to; port 0 picks a free port
+     * @param jvmArgs extra JVM options for locally launched workers, e.g. "-Xmx4g"
+     */
+    public WorkerPool(InetSocketAddress bind, List<String> jvmArgs) throws IOException {
+        this.server = new ServerSocket();
+        server.bind(bind);
+        this.jvmArgs = new ArrayList<>(jvmArgs);
+        this.acceptor = new Thread(this::acceptLoop, "worker-pool-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** Pool on the loopback interface with {@code workers} local worker JVMs. */
+    public static WorkerPool local(int workers, String... jvmArgs) throws IOException {
+        WorkerPool pool = new WorkerPool(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Arrays.asList(jvmArgs));
+        pool.launchLocalWorkers(workers);
+        return pool;
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    /** Token a worker must present when connecting. */
+    public long getToken() {
+        return token;
+    }
+
+    public int liveWorkers() {
+        return live.size();
+    }
+
+    /**
+     * Longest a worker may take to answer one job before it is treated as
+     * dead; 0 waits forever. Defaults to 30 minutes.
+     */
+    public void setJobTimeout(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("Job timeout must be >= 0, got " + millis);
+        this.jobTimeoutMillis = millis;
+    }
+
+    /**
+     * Start {@code count} worker JVMs on this machine with the current class
+     * path. Dead workers are replaced {@code count} times in total, and at
+     * least {@value #MAX_ATTEMPTS} times, so one job that keeps crashing its
+     * worker can use up its attempts without stranding the rest of the queue.
+     */
+    public void launchLocalWorkers(int count) throws IOException {
+        synchronized (restartLock) {
+            restartsLeft = Math.max(restartsLeft + count, MAX_ATTEMPTS);
+        }
+        for (int i = 0; i < count; i++) {
+            launch();
+        }
+    }
+
+    private void launch() throws IOException {
+        String name = "local-" + launched.incrementAndGet();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SchedulerWorker.class.getName());
+        command.add(getAddress().getAddress().getHostAddress());
+        command.add(Integer.toString(getAddress().getPort()));
+        command.add(name);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        builder.environment().put(WorkerProtocol.TOKEN_ENV, Long.toString(token));
+        java.lang.Process child = builder.start();
+        pending.put(name, child);
+        children.put(name, child);
+        child.onExit().thenRun(() -> pending.remove(name));
+    }
+
+    /**
+     * Run all jobs and wait for them. Results are in job order; a job that
+     * could not be completed has {@link JobResult#error} set.
+     */
+    public synchronized List<JobResult> run(List<SweepJob> jobs) throws InterruptedException {
+        if (closed) throw new IllegalStateException("Worker pool is closed");
+        Run run = new Run(jobs.size());
+        Map<ProcessSpec[], Integer> workloadIds = new IdentityHashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            SweepJob job = jobs.get(i);
+            int workloadId = workloadIds.computeIfAbsent(job.getWorkload(), w -> nextWorkloadId.incrementAndGet());
+            queue.add(new Attempt(run, i, job, workloadId));
+        }
+        while (!run.remaining.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            boolean noWorkers;
+            synchronized (restartLock) {
+                // a dying link registers its replacement before it leaves live
+                noWorkers = live.isEmpty() && pending.isEmpty();
+            }
+            if (noWorkers) {
+                // nobody left to take the queued jobs
+                String death = lastDeath;
+                String reason = death == null ? "No workers available" : "No workers available; last worker " + death;
+                Attempt a;
+                while ((a = queue.poll()) != null) {
+                    fail(a, reason);
+                }
+            }
+        }
+        return Arrays.asList(run.results);
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                Thread link = new Thread(() -> serve(socket), "worker-pool-link");
+                link.setDaemon(true);
+                link.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Worker pool accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // One thread per connected worker: feed it jobs until it dies or the pool closes
+    private void serve(Socket socket) {
+        String name;
+        DataInputStream in;
+        DataOutputStream out;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            name = WorkerProtocol.readHello(in, token);
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            return;
+        }
+        live.add(name);
+        pending.remove(name);
+        Set<Integer> shipped = new HashSet<>();
+        try {
+            while (!closed) {
+                Attempt a = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (a == null) continue;
+                try {
+                    runOn(name, a, socket, in, out, shipped);
+                } catch (SocketTimeoutException e) {
+                    lastDeath = name + " timed out on job " + a.index + " after " + jobTimeoutMillis + " ms";
+                    retry(a, lastDeath);
+                    return;
+                } catch (IOException e) {
+                    lastDeath = name + " lost: " + e.getMessage();
+                    retry(a, lastDeath);
+                    return;
+                }
+            }
+            out.writeByte(WorkerProtocol.SHUTDOWN);
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            // worker gone or pool closing
+        } finally {
+            closeQuietly(socket);
+            java.lang.Process child = children.get(name);
+            if (child != null && !closed) {
+                // a hung worker would never exit on its own
+                child.destroyForcibly();
+            }
+            synchronized (restartLock) {
+                if (!closed && child != null && restartsLeft > 0) {
+                    restartsLeft--;
+                    try {
+                        launch();
+                    } catch (IOException e) {
+                        System.err.println("Could not replace worker " + name + ": " + e.getMessage());
+                    }
+                }
+                live.remove(name);
+            }
+        }
+    }
+
+    private void runOn(String name, Attempt a, Socket socket, DataInputStream in, DataOutputStream out,
+                       Set<Integer> shipped) throws IOException {
+        a.attempts++;
+        long jobId = nextJobId.incrementAndGet();
+        if (shipped.add(a.workloadId)) {
+            WorkerProtocol.writeWorkload(out, a.workloadId, a.job.getWorkload());
+        }
+        WorkerProtocol.writeJob(out, jobId, a.workloadId, a.job);
+        long timeout = jobTimeoutMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        try {
+            while (true) {
+                if (timeout > 0) {
+                    long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (left <= 0) throw new SocketTimeoutException("Job timed out");
+                    socket.setSoTimeout((int) Math.min(left, Integer.MAX_VALUE));
+                }
+                if (readReply(name, a, jobId, in, out)) return;
+            }
+        } finally {
+            if (!socket.isClosed()) socket.setSoTimeout(0);
+        }
+    }
+
+    // Handle one frame from the worker; true once the job is complete
+    private static boolean readReply(String name, Attempt a, long jobId, DataInputStream in, DataOutputStream out)
+            throws IOException {
+        byte type = in.readByte();
+        long replyId = in.readLong();
+        if (replyId != jobId) throw new IOException("Reply for job " + replyId + ", expected " + jobId);
+        switch (type) {
+            case WorkerProtocol.RESULT:
+                JobResult result = JobResult.readSummary(in);
+                result.worker = name;
+                complete(a, result);
+                return true;
+            case WorkerProtocol.FAILED:
+                String message = in.readUTF();
+                JobResult failed = new JobResult();
+                failed.worker = name;
+                failed.error = message;
+                complete(a, failed);
+                return true;
+            case WorkerProtocol.MISSING:
+                // the worker evicted it from its cache: ship it again and resend the job
+                in.readInt();
+                WorkerProtocol.writeWorkload(out, a.workloadId, a.job.getWorkload());
+                WorkerProtocol.writeJob(out, jobId, a.workloadId, a.job);
+                return false;
+            default:
+                throw new IOException("Unknown frame type " + type);
+        }
+    }
+
+    private void retry(Attempt a, String reason) {
+        if (a.attempts >= MAX_ATTEMPTS) {
+            fail(a, reason);
+        } else {
+            queue.addFirst(a);
+        }
+    }
+
+    private void fail(Attempt a, String reason) {
+        JobResult failed = new JobResult();
+        failed.error = reason;
+        complete(a, failed);
+    }
+
+    private static void complete(Attempt a, JobResult result) {
+        result.jobIndex = a.index;
+        result.scheduler = a.job.getScheduler();
+        result.attempts = a.attempts;
+        a.run.results[a.index] = result;
+        a.run.remaining.countDown();
+    }
+
+    private static void closeQuietly(Closeable c) {
+        try {
+            c.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    /** Shut down workers and stop accepting connections. */
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(server);
+        for (java.lang.Process child : children.values()) {
+            try {
+                // links send SHUTDOWN on their next poll; give the children a moment to exit
+                if (!child.waitFor(2, TimeUnit.SECONDS)) child.destroyForcibly();
+            } catch (InterruptedException e) {
+                child.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Binary protocol between {@link WorkerPool} and {@link SchedulerWorker}.
+ *
+ * Workers dial the coordinator, so a worker can run anywhere that can reach
+ * the coordinator's address. After the handshake every message is one frame:
+ * a type byte followed by its fields in {@link DataOutput} encoding.
+ * <pre>
+ *   HELLO     worker -> coord  int magic, short version, long token, UTF name
+ *   WORKLOAD  coord -> worker  int workloadId, {@link WorkloadCodec} stream
+ *   JOB       coord -> worker  long jobId, int workloadId, UTF scheduler,
+ *                              long contextSwitch, int n, n x (UTF key, UTF value)
+ *   RESULT    worker -> coord  long jobId, {@link JobResult} summary
+ *   FAILED    worker -> coord  long jobId, UTF message
+ *   MISSING   worker -> coord  long jobId, int workloadId (not cached; resend it)
+ *   SHUTDOWN  coord -> worker
+ * </pre>
+ */
+final class WorkerProtocol {
+    static final int MAGIC = 0x53435750; // "SCWP"
+    static final short VERSION = 4;
+    // Environment variable carrying the shared token to locally launched workers
+    static final String TOKEN_ENV = "SCHEDULER_WORKER_TOKEN";
+
+    static final byte SHUTDOWN = 0;
+    static final byte WORKLOAD = 1;
+    static final byte JOB = 2;
+    static final byte RESULT = 3;
+    static final byte FAILED = 4;
+    static final byte MISSING = 5;
+
+    private WorkerProtocol() {
+    }
+
+    static void writeHello(DataOutputStream out, long token, String name) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(token);
+        out.writeUTF(name);
+        out.flush();
+    }
+
+    /** Validate a worker's handshake and return its name. */
+    static String readHello(DataInputStream in, long token) throws IOException {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Not a compatible scheduler worker");
+        }
+        if (in.readLong() != token) {
+            throw new IOException("Worker presented a wrong token");
+        }
+        return in.readUTF();
+    }
+
+    static void writeWorkload(DataOutputStream out, int workloadId, ProcessSpec[] workload) throws IOException {
+        out.writeByte(WORKLOAD);
+        out.writeInt(workloadId);
+        WorkloadCodec.write(workload, out);
+        out.flush();
+    }
+
+    static void writeJob(DataOutputStream out, long jobId, int workloadId, SweepJob job) throws IOException {
+        out.writeByte(JOB);
+        out.writeLong(jobId);
+        out.writeInt(workloadId);
+        out.writeUTF(job.getScheduler());
+        out.writeLong(job.getContextSwitch());
+        Map<String, String> parameters = job.getParameters();
+        out.writeInt(parameters.size());
+        for (Map.Entry<String, String> e : parameters.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue());
+        }
+        out.flush();
+    }
+}
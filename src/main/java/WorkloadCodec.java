@@ -0,0 +1,101 @@
+import java.io.*;
+
+/**
+ * Compact binary encoding of a workload ({@link ProcessSpec} array), used by
+ * the scheduling service as an alternative to the test-case JSON schema.
+ *
+ * Layout (big-endian, {@link DataOutput} conventions):
+ * <pre>
+ *   int   magic "SCWD"
+ *   short version
+ *   int   process count
+ *   per process:
+ *     UTF name
+ *     long arrival, int priority, int quantum, long deadline, long period, int tickets
+ *     UTF group (version 3)
+ *     int k = number of CPU bursts (1 for a plain process)
+ *     long cpuBurst[k]
+ *     long ioBurst[k - 1], int ioDevice[k - 1]
+ * </pre>
+ * Version 1 streams, which stored every field as an int, and version 2
+ * streams, which had no group, are still read.
+ */
+public final class WorkloadCodec {
+    public static final int MAGIC = 0x53435744; // "SCWD"
+    public static final short VERSION = 3;
+    // Sanity limits so a corrupt or hostile stream cannot request huge allocations
+    private static final int MAX_PROCESSES = 1 << 26;
+    private static final int MAX_BURSTS = 1 << 20;
+
+    private WorkloadCodec() {
+    }
+
+    public static void write(ProcessSpec[] workload, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(workload.length);
+        for (ProcessSpec p : workload) {
+            out.writeUTF(p.getProcessName());
+            out.writeLong(p.getArrivalTime());
+            out.writeInt(p.getPriority());
+            out.writeInt(p.getQuantum());
+            out.writeLong(p.getDeadline());
+            out.writeLong(p.getPeriod());
+            out.writeInt(p.getTickets());
+            out.writeUTF(p.getGroup());
+            int k = p.getCpuBurstCount();
+            out.writeInt(k);
+            for (int i = 0; i < k; i++) out.writeLong(p.getCpuBurst(i));
+            for (int i = 0; i < k - 1; i++) out.writeLong(p.getIoBurst(i));
+            for (int i = 0; i < k - 1; i++) out.writeInt(p.getIoDevice(i));
+        }
+    }
+
+    public static ProcessSpec[] read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary workload (bad magic)");
+        }
+        short version = in.readShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported workload version " + version);
+        }
+        int count = in.readInt();
+        if (count < 0 || count > MAX_PROCESSES) {
+            throw new IOException("Invalid process count " + count);
+        }
+        ProcessSpec[] workload = new ProcessSpec[count];
+        for (int j = 0; j < count; j++) {
+            String name = in.readUTF();
+            boolean wide = version >= 2;
+            long arrival = readTime(in, wide);
+            int priority = in.readInt();
+            int quantum = in.readInt();
+            long deadline = readTime(in, wide);
+            long period = readTime(in, wide);
+            int tickets = in.readInt();
+            String group = version >= 3 ? in.readUTF() : Process.DEFAULT_GROUP;
+            int k = in.readInt();
+            if (k < 1 || k > MAX_BURSTS) {
+                throw new IOException("Invalid burst count " + k + " for " + name);
+            }
+            long[] cpu = new long[k];
+            for (int i = 0; i < k; i++) cpu[i] = readTime(in, wide);
+            if (k == 1) {
+                workload[j] = new ProcessSpec(name, arrival, cpu[0], priority, quantum, deadline, period, tickets,
+                        null, null, null, group);
+            } else {
+                long[] io = new long[k - 1];
+                int[] devices = new int[k - 1];
+                for (int i = 0; i < k - 1; i++) io[i] = readTime(in, wide);
+                for (int i = 0; i < k - 1; i++) devices[i] = in.readInt();
+                workload[j] = new ProcessSpec(name, arrival, 0, priority, quantum, deadline, period, tickets,
+                        cpu, io, devices, group);
+            }
+        }
+        return workload;
+    }
+
+    private static long readTime(DataInput in, boolean wide) throws IOException {
+        return wide ? in.readLong() : in.readInt();
+    }
+}